@@ -0,0 +1,46 @@
+package com.paymentflow.bench;
+
+import com.paymentflow.service.learning.ManualCircuitBreaker;
+import com.paymentflow.service.learning.SlidingWindowCircuitBreaker;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * allowRequest + recordSuccess per call, the path every payment takes while the gateway is healthy,
+ * with 64 threads sharing one breaker: synchronized ManualCircuitBreaker vs the CAS-based sliding window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class CircuitBreakerBenchmark {
+
+    private ManualCircuitBreaker manual;
+    private SlidingWindowCircuitBreaker sliding;
+
+    @Setup
+    public void setup() {
+        manual = new ManualCircuitBreaker(3, 100, 2);
+        sliding = new SlidingWindowCircuitBreaker(new SlidingWindowCircuitBreaker.Options(
+                100, 10, 50, 80, Duration.ofSeconds(2), Duration.ofSeconds(1), 3));
+    }
+
+    @Benchmark
+    public boolean manual() {
+        boolean allowed = manual.allowRequest();
+        if (allowed) manual.recordSuccess();
+        return allowed;
+    }
+
+    @Benchmark
+    public boolean sliding() {
+        boolean allowed = sliding.allowRequest();
+        if (allowed) sliding.recordSuccess(1_000_000L);
+        return allowed;
+    }
+}
@@ -0,0 +1,97 @@
+package com.paymentflow.bench;
+
+import com.paymentflow.gateway.GatewayRouter;
+import com.paymentflow.gateway.GatewayRoutingProperties;
+import com.paymentflow.gateway.PaymentGateway;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.repository.CompactPaymentRepository;
+import com.paymentflow.service.PaymentStatusWaiters;
+import com.paymentflow.service.learning.FairQueueProperties;
+import com.paymentflow.service.learning.LearningPaymentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of the learning pipeline: LearningPaymentService.createPayment with gateways that answer
+ * instantly, so what is measured is our own overhead (idempotency, repository writes, queue hand-off,
+ * routing, breaker, limiter, metrics) and not simulated network time.
+ * <p>
+ * The enqueue timeout is long enough that request threads are held back by the queue instead of being
+ * refused, so at steady state the score is the pipeline's sustained throughput, not just the accept path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CreatePaymentBenchmark {
+
+    private record InstantGateway(String name) implements PaymentGateway {
+        @Override
+        public PaymentResult charge(Payment payment) {
+            return PaymentResult.success(payment.id());
+        }
+    }
+
+    @Param({"platform", "virtual", "sharded"})
+    public String executor;
+
+    @Param({"monitor", "ring"})
+    public String queue;
+
+    private ScheduledExecutorService scheduler;
+    private LearningPaymentService service;
+
+    private final PaymentRequest stripe = new PaymentRequest(BigDecimal.TEN, "USD", "stripe", null);
+    private final PaymentRequest card = new PaymentRequest(BigDecimal.TEN, "EUR", "card", null);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        scheduler = Executors.newScheduledThreadPool(2);
+        PaymentGateway stripeGateway = new InstantGateway("stripe");
+        PaymentGateway payPalGateway = new InstantGateway("paypal");
+        var routing = new GatewayRoutingProperties("stripe", 0.2, 5, Map.of(
+                "stripe", new GatewayRoutingProperties.Rule(1.0, Set.of(), Set.of("stripe", "card")),
+                "paypal", new GatewayRoutingProperties.Rule(1.0, Set.of(), Set.of("paypal", "card"))));
+        List<PaymentGateway> gateways = List.of(stripeGateway, payPalGateway);
+        var router = new GatewayRouter(gateways, routing);
+        // application.yml defaults, except the enqueue timeout (see class comment)
+        service = new LearningPaymentService(new CompactPaymentRepository(), gateways, router,
+                new PaymentStatusWaiters(), FairQueueProperties.DEFAULTS,
+                executor, queue, "park", 0, 128, "payment", 20, "fixed", 200,
+                false, 32, 5, "blocking", scheduler,
+                100_000, Duration.ofHours(24), 10_000, Duration.ofSeconds(20),
+                50, 10, 50, 80, Duration.ofSeconds(2), Duration.ofSeconds(1), 3,
+                false, 95, 100, "same",
+                new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PaymentResult direct04() {
+        return service.createPayment(stripe);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public PaymentResult routed16() {
+        return service.createPayment(card);
+    }
+}
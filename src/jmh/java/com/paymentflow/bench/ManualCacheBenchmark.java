@@ -0,0 +1,63 @@
+package com.paymentflow.bench;
+
+import com.paymentflow.service.learning.ManualCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ManualCache.remember: the hit path (computeIfAbsent + one volatile read, no lock) at 1 and 16 threads,
+ * and the miss path (holder creation + synchronized load). Misses grow the cache, so they are measured
+ * as single shots of a fixed batch on a fresh cache instead of as open-ended throughput.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManualCacheBenchmark {
+
+    private static final int KEYS = 10_000;
+    private static final int MISS_BATCH = 100_000;
+
+    private final ManualCache.ValueProvider<Long, String> loader = key -> "v" + key;
+    private final AtomicLong nextKey = new AtomicLong();
+
+    private ManualCache<Long, String> warm;
+    private ManualCache<Long, String> cold;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        warm = new ManualCache<>();
+        for (long k = 0; k < KEYS; k++) warm.remember(k, loader);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCold() {
+        cold = new ManualCache<>();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public String hit01() {
+        return warm.remember(ThreadLocalRandom.current().nextLong(KEYS), loader);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(16)
+    public String hit16() {
+        return warm.remember(ThreadLocalRandom.current().nextLong(KEYS), loader);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = MISS_BATCH)
+    @Measurement(iterations = 10, batchSize = MISS_BATCH)
+    public String miss() {
+        return cold.remember(nextKey.getAndIncrement(), loader);
+    }
+}
@@ -0,0 +1,56 @@
+package com.paymentflow.bench;
+
+import com.paymentflow.events.PaymentEventLog;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What publishing a transition adds to the write path: 4 threads publishing into one log, with no reader,
+ * a non-gating one (webhooks) or a gating one (the ledger) consuming on its own thread. The gating case
+ * includes the time publishers wait whenever the reader is a full ring behind.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PaymentEventLogBenchmark {
+
+    @Param({"none", "non-gating", "gating"})
+    public String reader;
+
+    private PaymentEventLog log;
+    private PaymentEventLog.Subscription subscription;
+    private Payment payment;
+    // the reader's work, kept observable so it isn't optimised away
+    public volatile long consumed;
+
+    @Setup
+    public void setup() {
+        log = new PaymentEventLog(65_536);
+        payment = new Payment(UUID.randomUUID(), BigDecimal.TEN, "USD", "stripe", PaymentStatus.SUCCESS,
+                Instant.now(), null, "shop");
+        if (!reader.equals("none")) {
+            subscription = log.subscribe(reader, 0, reader.equals("gating"));
+            subscription.start((seq, p, end) -> consumed += p.amount().signum(), 256);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (subscription != null) subscription.close();
+    }
+
+    @Benchmark
+    public long publish() {
+        return log.publish(payment);
+    }
+}
@@ -0,0 +1,99 @@
+package com.paymentflow.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymentflow.controller.PaymentJsonCodec;
+import com.paymentflow.controller.TerminalStatusCache;
+import com.paymentflow.events.PaymentEventLog;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+import com.paymentflow.repository.InMemoryPaymentRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The payments API's JSON work, Jackson binding against {@link PaymentJsonCodec}: reading a create request,
+ * writing a result, and a settled payment's status read as it was (repository lookup, new PaymentResult,
+ * Jackson) against the {@link TerminalStatusCache} lookup. Run with {@code -prof gc} for bytes per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentJsonBenchmark {
+
+    private static final int SETTLED = 10_000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] requestJson;
+    private PaymentResult result;
+    private InMemoryPaymentRepository repository;
+    private TerminalStatusCache cache;
+    private UUID[] ids;
+
+    @Setup
+    public void setup() throws Exception {
+        requestJson = ("{\"amount\":125.50,\"currency\":\"USD\",\"method\":\"stripe\","
+                + "\"idempotencyKey\":\"order-7731-attempt-1\",\"merchantId\":\"shop-42\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        result = PaymentResult.failed(UUID.randomUUID(), "Declined by issuer");
+
+        var events = new PaymentEventLog(SETTLED);
+        repository = new InMemoryPaymentRepository();
+        cache = new TerminalStatusCache(events, SETTLED);
+        ids = new UUID[SETTLED];
+        for (int i = 0; i < SETTLED; i++) {
+            Payment settled = new Payment(UUID.randomUUID(), BigDecimal.TEN, "USD", "stripe",
+                    PaymentStatus.SUCCESS, Instant.now(), null);
+            repository.save(settled);
+            events.publish(settled);
+            ids[i] = settled.id();
+        }
+        while (cache.size() < SETTLED) Thread.sleep(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Benchmark
+    public PaymentRequest readJackson() throws Exception {
+        return mapper.readValue(requestJson, PaymentRequest.class);
+    }
+
+    @Benchmark
+    public PaymentRequest readCodec() throws Exception {
+        return PaymentJsonCodec.parseRequest(requestJson, 0, requestJson.length);
+    }
+
+    @Benchmark
+    public byte[] writeJackson() throws Exception {
+        return mapper.writeValueAsBytes(result);
+    }
+
+    @Benchmark
+    public byte[] writeCodec() {
+        return PaymentJsonCodec.encode(result);
+    }
+
+    @Benchmark
+    public byte[] settledStatusJackson() throws Exception {
+        UUID id = ids[ThreadLocalRandom.current().nextInt(SETTLED)];
+        return mapper.writeValueAsBytes(repository.findById(id).map(PaymentResult::of).orElseThrow());
+    }
+
+    @Benchmark
+    public byte[] settledStatusCached() {
+        return cache.get(ids[ThreadLocalRandom.current().nextInt(SETTLED)]);
+    }
+}
@@ -0,0 +1,96 @@
+package com.paymentflow.bench;
+
+import com.paymentflow.service.learning.FairPaymentQueue;
+import com.paymentflow.service.learning.FairQueueProperties;
+import com.paymentflow.service.learning.ManualPaymentQueue;
+import com.paymentflow.service.learning.PaymentQueue;
+import com.paymentflow.service.learning.RingBufferPaymentQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * put/take throughput of the monitor queue, the lock-free ring buffer, the fair queue (one anonymous
+ * tenant, so this is its scheduling overhead over a plain lock) and ArrayBlockingQueue at 1, 4 and 16 threads. Every thread puts then takes, so the queue never deadlocks at the
+ * end of an iteration while producers and consumers still contend on both ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentQueueBenchmark {
+
+    private static final Runnable TASK = () -> { };
+
+    @Param({"monitor", "ring-spin", "ring-yield", "ring-park", "fair", "abq"})
+    public String queue;
+
+    private PaymentQueue<Runnable> q;
+
+    @Setup
+    public void setup() {
+        q = switch (queue) {
+            case "monitor" -> new ManualPaymentQueue<>(100);
+            case "ring-spin" -> new RingBufferPaymentQueue<>(128, RingBufferPaymentQueue.WaitStrategy.SPIN);
+            case "ring-yield" -> new RingBufferPaymentQueue<>(128, RingBufferPaymentQueue.WaitStrategy.YIELD);
+            case "ring-park" -> new RingBufferPaymentQueue<>(128, RingBufferPaymentQueue.WaitStrategy.PARK);
+            case "fair" -> new FairPaymentQueue<>(100, FairQueueProperties.DEFAULTS);
+            case "abq" -> new BlockingQueueAdapter(new ArrayBlockingQueue<>(100));
+            default -> throw new IllegalArgumentException(queue);
+        };
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Runnable producers01() throws InterruptedException {
+        return putTake();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Runnable producers04() throws InterruptedException {
+        return putTake();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Runnable producers16() throws InterruptedException {
+        return putTake();
+    }
+
+    private Runnable putTake() throws InterruptedException {
+        q.put(TASK);
+        return q.take();
+    }
+
+    private record BlockingQueueAdapter(ArrayBlockingQueue<Runnable> delegate) implements PaymentQueue<Runnable> {
+        @Override
+        public void put(Runnable item) throws InterruptedException {
+            delegate.put(item);
+        }
+
+        @Override
+        public boolean offer(Runnable item, long timeoutMillis) throws InterruptedException {
+            return delegate.offer(item, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public Runnable take() throws InterruptedException {
+            return delegate.take();
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> sink) {
+            return delegate.drainTo(sink);
+        }
+    }
+}
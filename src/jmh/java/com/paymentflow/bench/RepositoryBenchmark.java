@@ -0,0 +1,103 @@
+package com.paymentflow.bench;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import com.paymentflow.repository.CompactPaymentRepository;
+import com.paymentflow.repository.InMemoryPaymentRepository;
+import com.paymentflow.repository.PaymentRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * save/findById on a repository holding 100k payments, heap vs compact storage, at 1 and 8 threads.
+ * {@code update} re-saves an existing PROCESSING payment (the status write every worker does);
+ * {@code insert} adds new payments and so is measured in fixed batches on a fresh repository.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int PRELOADED = 100_000;
+    private static final int INSERT_BATCH = 100_000;
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY"};
+
+    @Param({"heap", "compact"})
+    public String storage;
+
+    private PaymentRepository repo;
+    private PaymentRepository fresh;
+    private Payment[] stored;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        repo = create();
+        stored = new Payment[PRELOADED];
+        for (int i = 0; i < PRELOADED; i++) {
+            stored[i] = payment(i);
+            repo.save(stored[i]);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetFresh() {
+        fresh = create();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public Optional<Payment> find01() {
+        return repo.findById(randomStored().id());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(8)
+    public Optional<Payment> find08() {
+        return repo.findById(randomStored().id());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public Payment update01() {
+        return repo.save(randomStored());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(8)
+    public Payment update08() {
+        return repo.save(randomStored());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = INSERT_BATCH)
+    @Measurement(iterations = 10, batchSize = INSERT_BATCH)
+    public Payment insert() {
+        return fresh.save(payment(ThreadLocalRandom.current().nextInt()));
+    }
+
+    private PaymentRepository create() {
+        return "heap".equals(storage) ? new InMemoryPaymentRepository() : new CompactPaymentRepository();
+    }
+
+    private Payment randomStored() {
+        return stored[ThreadLocalRandom.current().nextInt(PRELOADED)];
+    }
+
+    private static Payment payment(int i) {
+        return new Payment(UUID.randomUUID(), BigDecimal.valueOf(1_000 + (i & 0xffff), 2), CURRENCIES[i & 3],
+                (i & 1) == 0 ? "stripe" : "paypal", PaymentStatus.PROCESSING, Instant.now(), null);
+    }
+}
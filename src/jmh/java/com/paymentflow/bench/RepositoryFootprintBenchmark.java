@@ -0,0 +1,117 @@
+package com.paymentflow.bench;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import com.paymentflow.repository.CompactPaymentRepository;
+import com.paymentflow.repository.InMemoryPaymentRepository;
+import com.paymentflow.repository.PaymentRepository;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.ref.Reference;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retained heap and GC pauses with N payments held in a repository.
+ * Not a JMH benchmark: footprint needs one big heap, not many short forks.
+ * <pre>
+ * mvn -Pbenchmarks test-compile
+ * java -Xmx12g -XX:+UseG1GC -cp target/classes:target/test-classes \
+ *      com.paymentflow.bench.RepositoryFootprintBenchmark heap 10000000
+ * java ... RepositoryFootprintBenchmark compact 10000000
+ * </pre>
+ * Phase 1 loads N payments (and moves 90% to a terminal status), phase 2 churns short-lived garbage
+ * while the store stays retained, so pauses reflect the cost of scanning/copying the retained set.
+ */
+public class RepositoryFootprintBenchmark {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY"};
+    private static final String[] METHODS = {"stripe", "paypal"};
+
+    public static void main(String[] args) throws Exception {
+        String storage = args.length > 0 ? args[0] : "compact";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+        PaymentRepository repo = "heap".equals(storage) ? new InMemoryPaymentRepository() : new CompactPaymentRepository();
+
+        var pauses = new PauseRecorder();
+        long baseline = usedHeapAfterGc();
+
+        long loadStart = System.nanoTime();
+        var random = ThreadLocalRandom.current();
+        Instant start = Instant.now();
+        for (int i = 0; i < count; i++) {
+            var p = new Payment(UUID.randomUUID(), BigDecimal.valueOf(random.nextLong(100, 1_000_000), 2),
+                    CURRENCIES[i & 3], METHODS[i & 1], PaymentStatus.PROCESSING, start.plusMillis(i), null);
+            repo.save(p);
+            int outcome = random.nextInt(10);
+            if (outcome < 8) repo.save(p.succeed());
+            else if (outcome == 8) repo.save(p.withFailure("Stripe temporary failure"));
+        }
+        long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+        var loadPauses = pauses.snapshotAndReset();
+
+        long retained = usedHeapAfterGc() - baseline;
+        pauses.snapshotAndReset(); // ignore the explicit full GCs
+
+        long churnStart = System.nanoTime();
+        long sink = 0;
+        Object[] survivors = new Object[4096]; // keeps allocations escaping so they are not optimized away
+        for (int i = 0; i < 50_000_000; i++) {
+            byte[] garbage = new byte[64 + (i & 255)];
+            survivors[i & 4095] = garbage;
+            sink += garbage.length;
+        }
+        long churnMillis = (System.nanoTime() - churnStart) / 1_000_000;
+        var churnPauses = pauses.snapshotAndReset();
+
+        System.out.printf("storage=%s payments=%,d%n", storage, count);
+        System.out.printf("retained heap: %,d MB (%d bytes/payment)%n", retained >> 20, retained / count);
+        System.out.printf("load:  %,d ms, %s%n", loadMillis, loadPauses);
+        System.out.printf("churn: %,d ms, %s (sink=%d)%n", churnMillis, churnPauses, sink & 1);
+        Reference.reachabilityFence(repo); // measured as retained: keep it alive to here
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        return heap.getUsed();
+    }
+
+    /** Collects every GC pause through JMX notifications. */
+    private static final class PauseRecorder {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMillis = new AtomicLong();
+        private final AtomicLong maxMillis = new AtomicLong();
+
+        PauseRecorder() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                    if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        return;
+                    }
+                    var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    if (info.getGcAction().contains("cycle")) return; // concurrent phases are not pauses
+                    long d = info.getGcInfo().getDuration();
+                    count.incrementAndGet();
+                    totalMillis.addAndGet(d);
+                    maxMillis.accumulateAndGet(d, Math::max);
+                }, null, null);
+            }
+        }
+
+        String snapshotAndReset() {
+            return String.format("gc pauses=%d total=%dms max=%dms",
+                    count.getAndSet(0), totalMillis.getAndSet(0), maxMillis.getAndSet(0));
+        }
+    }
+}
@@ -1,13 +1,75 @@
 package com.paymentflow.config;
 
+import com.paymentflow.events.EventPublishingPaymentRepository;
+import com.paymentflow.events.PaymentEventLog;
+import com.paymentflow.gateway.GatewayRoutingProperties;
+import com.paymentflow.gateway.GatewaySimulationProperties;
+import com.paymentflow.ledger.SettlementLedger;
+import com.paymentflow.repository.CompactPaymentRepository;
+import com.paymentflow.repository.DurablePaymentRepository;
+import com.paymentflow.repository.InMemoryPaymentRepository;
+import com.paymentflow.repository.PaymentRepository;
+import com.paymentflow.repository.PaymentWriteAheadLog;
+import com.paymentflow.service.learning.FairQueueProperties;
+import com.paymentflow.service.production.ProductionPipelineProperties;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Configuration
+@EnableConfigurationProperties({GatewayRoutingProperties.class, GatewaySimulationProperties.class,
+        FairQueueProperties.class, ProductionPipelineProperties.class})
 public class AppConfig {
     @Bean
-    public String paymentMode(@Value("${payment.model:learning}") String mode) {
+    public String paymentMode(@Value("${payment.mode:learning}") String mode) {
         return mode;
     }
+
+    // heap: one Payment object per record, indexed | compact: primitive columns, Payment built on read
+    // wal.enabled wraps either one in a write-ahead log that is replayed on startup;
+    // every accepted write is then published to the event log (replayed records are not), so the ledger
+    // gets the recovered settlements here, before the first publish
+    @Bean
+    public PaymentRepository paymentRepository(PaymentEventLog eventLog, SettlementLedger ledger,
+                                               @Value("${payment.repository.storage:heap}") String storage,
+                                               @Value("${payment.wal.enabled:false}") boolean walEnabled,
+                                               @Value("${payment.wal.dir:data/wal}") String walDir,
+                                               @Value("${payment.wal.segment-size-mb:64}") int segmentSizeMb,
+                                               @Value("${payment.wal.fsync-interval-ms:5}") long fsyncIntervalMs,
+                                               @Value("${payment.wal.fsync-batch:256}") int fsyncBatch,
+                                               @Value("${payment.wal.sync-commit:false}") boolean syncCommit,
+                                               @Value("${payment.wal.snapshot-interval-ms:300000}") long snapshotIntervalMs)
+            throws IOException {
+        PaymentRepository repository = switch (storage.toLowerCase()) {
+            case "heap" -> new InMemoryPaymentRepository();
+            case "compact" -> new CompactPaymentRepository();
+            default -> throw new IllegalArgumentException("Unknown repository storage: " + storage);
+        };
+        if (walEnabled) {
+            var options = new PaymentWriteAheadLog.Options(Path.of(walDir), segmentSizeMb << 20,
+                    fsyncIntervalMs, fsyncBatch, syncCommit);
+            repository = DurablePaymentRepository.open(repository, options, snapshotIntervalMs);
+            repository.forEach(ledger::record); // only SUCCESS counts
+        }
+        return new EventPublishingPaymentRepository(repository, eventLog);
+    }
+
+    // Shared timer for simulated gateway latency and async retry backoff: a handful of threads
+    // drive thousands of in-flight charges because nobody sleeps while waiting
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService gatewayScheduler(@Value("${payment.gateway.scheduler-threads:2}") int threads) {
+        var counter = new AtomicInteger();
+        return Executors.newScheduledThreadPool(threads, r -> {
+            Thread t = new Thread(r, "gateway-timer-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
 }
@@ -0,0 +1,35 @@
+package com.paymentflow.controller;
+
+import com.paymentflow.service.ServiceOverloadedException;
+import com.paymentflow.service.ServiceShuttingDownException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.Duration;
+import java.util.Map;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    // Shed load: tell the client when to come back instead of holding its connection
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<Map<String, String>> overloaded(ServiceOverloadedException e) {
+        return refused(HttpStatus.TOO_MANY_REQUESTS, e.retryAfter(), e.getMessage());
+    }
+
+    // Draining: not overloaded, just going away; 503 sends the retry to another instance
+    @ExceptionHandler(ServiceShuttingDownException.class)
+    public ResponseEntity<Map<String, String>> shuttingDown(ServiceShuttingDownException e) {
+        return refused(HttpStatus.SERVICE_UNAVAILABLE, e.retryAfter(), e.getMessage());
+    }
+
+    private static ResponseEntity<Map<String, String>> refused(HttpStatus status, Duration retryAfter, String message) {
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+                .body(Map.of("error", message));
+    }
+}
@@ -0,0 +1,144 @@
+package com.paymentflow.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.paymentflow.model.BulkItemResult;
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.ratelimit.RequestRateLimiter;
+import com.paymentflow.service.PaymentOrchestrator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Streams a bulk submission through: items are parsed one at a time from the request body (a JSON array or
+ * NDJSON, Jackson handles both), validated, created {@code batchSize} at a time and answered with one
+ * NDJSON {@link BulkItemResult} line each, flushed per batch. At most one batch is held in memory whatever
+ * the size of the upload.
+ * <p>
+ * An item that fails validation or doesn't map to a payment is answered with FAILED and the rest go on;
+ * malformed JSON ends the stream with a last FAILED line, since nothing after it can be trusted.
+ * <p>
+ * Each valid item takes a token from the caller's {@link RequestRateLimiter} buckets, exactly as a single
+ * create does, so moving traffic to bulk uploads doesn't get round the limit. An item refused by the limiter
+ * is answered with a FAILED {@code 429} line. Past {@code payment.bulk.max-items} items the upload is cut
+ * off with one last FAILED line.
+ */
+@Component
+public class BulkPaymentProcessor {
+
+    private final PaymentOrchestrator orchestrator;
+    private final Validator validator;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final ObjectMapper mapper;
+    private final RequestRateLimiter rateLimiter;
+    private final int batchSize;
+    private final int maxItems;
+
+    public BulkPaymentProcessor(PaymentOrchestrator orchestrator, Validator validator, ObjectMapper mapper,
+                                RequestRateLimiter rateLimiter,
+                                @Value("${payment.bulk.batch-size:256}") int batchSize,
+                                @Value("${payment.bulk.max-items:10000}") int maxItems) {
+        this.orchestrator = orchestrator;
+        this.rateLimiter = rateLimiter;
+        this.validator = validator;
+        this.mapper = mapper;
+        this.reader = mapper.readerFor(PaymentRequest.class);
+        this.writer = mapper.writerFor(BulkItemResult.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.batchSize = batchSize;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * @param apiKey the caller's {@code X-Api-Key}, or null: whose rate-limit buckets the items are charged to
+     */
+    public void process(InputStream body, OutputStream out, String apiKey) throws IOException {
+        try (JsonGenerator lines = mapper.getFactory().createGenerator(out);
+             MappingIterator<PaymentRequest> items = reader.readValues(body)) {
+            lines.setRootValueSeparator(null); // we write the newlines
+            List<PaymentRequest> batch = new ArrayList<>(batchSize);
+            List<Integer> batchIndexes = new ArrayList<>(batchSize);
+            int index = 0;
+            while (true) {
+                PaymentRequest request;
+                try {
+                    if (!items.hasNextValue()) break;
+                    if (index == maxItems) {
+                        flush(batch, batchIndexes, lines);
+                        write(lines, BulkItemResult.rejected(index, "Too many items: at most " + maxItems
+                                + " per upload"));
+                        break;
+                    }
+                    request = items.nextValue();
+                } catch (JsonParseException e) {
+                    flush(batch, batchIndexes, lines);
+                    write(lines, BulkItemResult.rejected(index, "Malformed JSON: " + e.getOriginalMessage()));
+                    break;
+                } catch (JsonMappingException e) {
+                    write(lines, BulkItemResult.rejected(index++, "Invalid payment: " + e.getOriginalMessage()));
+                    continue;
+                }
+                String invalid = violations(request);
+                if (invalid != null) {
+                    write(lines, BulkItemResult.rejected(index++, invalid));
+                    continue;
+                }
+                long waitNanos = rateLimiter.tryAcquire(apiKey);
+                if (waitNanos > 0) {
+                    long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+                    write(lines, BulkItemResult.rejected(index++,
+                            "429 Rate limit exceeded, retry after " + seconds + "s"));
+                    continue;
+                }
+                batch.add(request);
+                batchIndexes.add(index++);
+                if (batch.size() == batchSize) flush(batch, batchIndexes, lines);
+            }
+            flush(batch, batchIndexes, lines);
+        }
+    }
+
+    // creates the batch (blocks while the processing queue is full) and streams its results out
+    private void flush(List<PaymentRequest> batch, List<Integer> indexes, JsonGenerator lines) throws IOException {
+        if (!batch.isEmpty()) {
+            List<PaymentResult> results = orchestrator.createAll(batch);
+            for (int i = 0; i < results.size(); i++) write(lines, BulkItemResult.of(indexes.get(i), results.get(i)));
+            batch.clear();
+            indexes.clear();
+        }
+        lines.flush();
+    }
+
+    private void write(JsonGenerator lines, BulkItemResult item) throws IOException {
+        writer.writeValue(lines, item);
+        lines.writeRaw('\n');
+    }
+
+    private String violations(PaymentRequest request) {
+        if (request == null) return "Invalid payment: null";
+        Set<ConstraintViolation<PaymentRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) return null;
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", ", "Invalid payment: ", ""));
+    }
+}
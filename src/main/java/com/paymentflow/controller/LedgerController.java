@@ -0,0 +1,34 @@
+package com.paymentflow.controller;
+
+import com.paymentflow.ledger.LedgerSnapshot;
+import com.paymentflow.ledger.SettlementLedger;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/** Read side of the {@link SettlementLedger}: settled totals per merchant and currency. */
+@RestController
+@RequestMapping("/api/ledger")
+public class LedgerController {
+
+    private final SettlementLedger ledger;
+
+    public LedgerController(SettlementLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    /** Every account, all cut at the same instant. */
+    @GetMapping
+    public LedgerSnapshot snapshot() {
+        return ledger.snapshot();
+    }
+
+    /** One merchant's live totals, one per currency. */
+    @GetMapping("/{merchantId}")
+    public List<LedgerSnapshot.Balance> merchant(@PathVariable String merchantId) {
+        return ledger.balances(merchantId);
+    }
+}
@@ -3,11 +3,22 @@ package com.paymentflow.controller;
 
 import com.paymentflow.model.PaymentRequest;
 import com.paymentflow.model.PaymentResult;
+import com.paymentflow.ratelimit.RequestRateLimiter;
 import com.paymentflow.service.PaymentOrchestrator;
+import com.paymentflow.service.ServiceOverloadedException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.UUID;
 
 @RestController
@@ -15,19 +26,102 @@ import java.util.UUID;
 public class PaymentController {
 
     private final PaymentOrchestrator orchestrator;
+    private final RequestRateLimiter rateLimiter;
+    private final BulkPaymentProcessor bulkPayments;
+    private final TerminalStatusCache terminalStatuses;
+    // longest a long poll or an event stream stays open without news
+    private final long maxWaitMillis;
 
-    public PaymentController(PaymentOrchestrator orchestrator) {
+    public PaymentController(PaymentOrchestrator orchestrator, RequestRateLimiter rateLimiter,
+                             BulkPaymentProcessor bulkPayments, TerminalStatusCache terminalStatuses,
+                             @Value("${payment.status.max-wait:30s}") Duration maxWait) {
         this.orchestrator = orchestrator;
+        this.rateLimiter = rateLimiter;
+        this.bulkPayments = bulkPayments;
+        this.terminalStatuses = terminalStatuses;
+        this.maxWaitMillis = maxWait.toMillis();
     }
 
     @PostMapping
-    public ResponseEntity<PaymentResult> create(@Valid @RequestBody PaymentRequest paymentRequest) {
+    public ResponseEntity<PaymentResult> create(@Valid @RequestBody PaymentRequest paymentRequest,
+                                                @RequestHeader(value = "X-Api-Key", required = false) String apiKey) {
+        long waitNanos = rateLimiter.tryAcquire(apiKey);
+        if (waitNanos > 0) {
+            throw new ServiceOverloadedException("Rate limit exceeded", Duration.ofNanos(waitNanos));
+        }
         var res = orchestrator.create(paymentRequest);
         return ResponseEntity.accepted().body(res);
     }
 
-    @GetMapping("/id")
-    public PaymentResult status(@PathVariable UUID id) {
-        return orchestrator.status(id);
+    /**
+     * Bulk submission: a JSON array or NDJSON of payment requests in, one NDJSON {@code BulkItemResult} per
+     * item out, streamed as items are accepted. The body is read incrementally on the async thread, so
+     * neither side is buffered. Every item counts as one request against the rate limit.
+     */
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> createBulk(HttpServletRequest request,
+                                                            @RequestHeader(value = "X-Api-Key", required = false) String apiKey)
+            throws IOException {
+        InputStream body = request.getInputStream();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> bulkPayments.process(body, out, apiKey));
+    }
+
+    /** Settled payments are answered from their cached response bytes; others are read and encoded. */
+    @GetMapping("/{id}")
+    public ResponseEntity<byte[]> status(@PathVariable UUID id) {
+        byte[] body = terminalStatuses.get(id);
+        if (body == null) body = PaymentJsonCodec.encode(orchestrator.status(id));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Long poll: answers as soon as the payment is SUCCESS or FAILED, or with the current (PROCESSING)
+     * status after {@code timeoutMs}, kept within 1 ms and {@code payment.status.max-wait}. The request thread
+     * is released while waiting.
+     */
+    @GetMapping("/{id}/result")
+    public DeferredResult<PaymentResult> awaitResult(@PathVariable UUID id,
+                                                     @RequestParam(defaultValue = "30000") long timeoutMs) {
+        // a servlet async timeout of 0 or less means none at all, so the low end is clamped too
+        long timeout = Math.clamp(timeoutMs, 1, maxWaitMillis);
+        var deferred = new DeferredResult<PaymentResult>(timeout, () -> orchestrator.status(id));
+        var terminal = orchestrator.awaitTerminal(id);
+        terminal.thenAccept(deferred::setResult);
+        deferred.onCompletion(() -> terminal.cancel(false)); // after a timeout or error too: stop waiting
+        return deferred;
+    }
+
+    /**
+     * Server-sent events: a {@code status} event with the current status right away, then one with the
+     * terminal result, after which the stream ends.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable UUID id) {
+        var emitter = new SseEmitter(maxWaitMillis);
+        PaymentResult current = orchestrator.status(id);
+        send(emitter, current);
+        if (current.status().isTerminal()) {
+            emitter.complete();
+        } else {
+            var terminal = orchestrator.awaitTerminal(id);
+            terminal.thenAccept(result -> {
+                send(emitter, result);
+                emitter.complete();
+            });
+            emitter.onCompletion(() -> terminal.cancel(false)); // after a timeout or a client disconnect too
+        }
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, PaymentResult result) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(result, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // client went away or the stream already timed out: nothing left to tell
+        }
     }
 }
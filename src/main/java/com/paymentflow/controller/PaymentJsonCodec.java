@@ -0,0 +1,480 @@
+package com.paymentflow.controller;
+
+import com.paymentflow.model.PaymentPriority;
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Hand-written JSON for the two hot payloads, {@link PaymentRequest} in and {@link PaymentResult} out, in
+ * place of reflective Jackson binding.
+ * <p>
+ * A request body is read once into a buffer sized from its Content-Length and parsed in place: field names
+ * are matched as bytes, amounts without exponent become a {@code BigDecimal} straight from a long, and the
+ * usual currencies and methods come back as constants instead of new strings. A result is encoded into one
+ * exactly sized array: the UUID as hex from its two longs, the status from precomputed bytes.
+ * <p>
+ * Reads what Jackson accepts for these records, as Spring Boot configures it: unknown fields are skipped,
+ * missing and null fields are null, an amount may also be a string. Writes the same bytes Jackson would.
+ */
+public final class PaymentJsonCodec {
+
+    /** Bodies above this are refused: a payment request is a few hundred bytes. */
+    public static final int MAX_REQUEST_BYTES = 16 * 1024;
+    private static final int MAX_DEPTH = 32;
+
+    /** A body that isn't a valid payment request. */
+    public static final class MalformedJsonException extends IOException {
+        MalformedJsonException(String message) {
+            super(message);
+        }
+    }
+
+    private static final byte[] AMOUNT = ascii("amount");
+    private static final byte[] CURRENCY = ascii("currency");
+    private static final byte[] METHOD = ascii("method");
+    private static final byte[] IDEMPOTENCY_KEY = ascii("idempotencyKey");
+    private static final byte[] MERCHANT_ID = ascii("merchantId");
+    private static final byte[] PRIORITY = ascii("priority");
+
+    // values most requests carry: returned as these constants rather than decoded again
+    private static final String[] KNOWN_VALUES = {"USD", "EUR", "GBP", "stripe", "paypal", "card"};
+    private static final byte[][] KNOWN_BYTES = Arrays.stream(KNOWN_VALUES).map(PaymentJsonCodec::ascii)
+            .toArray(byte[][]::new);
+
+    private static final byte[] RESULT_ID = ascii("{\"paymentId\":");
+    private static final byte[] RESULT_STATUS = ascii(",\"status\":");
+    private static final byte[] RESULT_MESSAGE = ascii(",\"message\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[][] STATUS_NAMES = Arrays.stream(PaymentStatus.values())
+            .map(s -> ascii(s.name())).toArray(byte[][]::new);
+    private static final byte[] HEX = ascii("0123456789abcdef");
+    private static final byte[] HEX_UPPER = ascii("0123456789ABCDEF"); // control characters, as Jackson escapes them
+
+    private PaymentJsonCodec() {
+    }
+
+    // ---- reading ----
+
+    /**
+     * Reads and parses a whole request body.
+     *
+     * @param contentLength the body's declared length, or -1 if unknown; only sizes the buffer
+     */
+    public static PaymentRequest readRequest(InputStream in, long contentLength) throws IOException {
+        int size = contentLength >= 0 ? (int) Math.min(contentLength, MAX_REQUEST_BYTES) + 1 : 512;
+        byte[] buf = new byte[size];
+        int len = 0;
+        while (true) {
+            if (len == buf.length) {
+                if (len > MAX_REQUEST_BYTES) {
+                    throw new MalformedJsonException("Payment request larger than " + MAX_REQUEST_BYTES + " bytes");
+                }
+                buf = Arrays.copyOf(buf, Math.min(buf.length * 2, MAX_REQUEST_BYTES + 1));
+            }
+            int n = in.read(buf, len, buf.length - len);
+            if (n < 0) break;
+            len += n;
+        }
+        return parseRequest(buf, 0, len);
+    }
+
+    public static PaymentRequest parseRequest(byte[] json, int offset, int length) throws MalformedJsonException {
+        return new Parser(json, offset, offset + length).request();
+    }
+
+    private static final class Parser {
+        private final byte[] b;
+        private final int end;
+        private int pos;
+
+        Parser(byte[] b, int offset, int end) {
+            this.b = b;
+            this.pos = offset;
+            this.end = end;
+        }
+
+        PaymentRequest request() throws MalformedJsonException {
+            BigDecimal amount = null;
+            String currency = null, method = null, idempotencyKey = null, merchantId = null;
+            PaymentPriority priority = null;
+
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    expect('"');
+                    int nameStart = pos;
+                    boolean escaped = scanString();
+                    int nameEnd = pos - 1;
+                    expect(':');
+                    byte[] name = escaped ? ascii(decode(nameStart, nameEnd)) : null;
+                    if (matches(AMOUNT, name, nameStart, nameEnd)) amount = amountValue();
+                    else if (matches(CURRENCY, name, nameStart, nameEnd)) currency = stringValue("currency");
+                    else if (matches(METHOD, name, nameStart, nameEnd)) method = stringValue("method");
+                    else if (matches(IDEMPOTENCY_KEY, name, nameStart, nameEnd)) idempotencyKey = stringValue("idempotencyKey");
+                    else if (matches(MERCHANT_ID, name, nameStart, nameEnd)) merchantId = stringValue("merchantId");
+                    else if (matches(PRIORITY, name, nameStart, nameEnd)) priority = priorityValue();
+                    else skipValue(0);
+                    byte c = next();
+                    if (c == '}') break;
+                    if (c != ',') throw error("expected ',' or '}'");
+                }
+            }
+            skipWhitespace();
+            if (pos != end) throw error("unexpected content after the payment");
+            return new PaymentRequest(amount, currency, method, idempotencyKey, merchantId, priority);
+        }
+
+        private boolean matches(byte[] field, byte[] decodedName, int start, int end) {
+            if (decodedName != null) return Arrays.equals(field, decodedName);
+            return Arrays.equals(field, 0, field.length, b, start, end);
+        }
+
+        private BigDecimal amountValue() throws MalformedJsonException {
+            byte c = peek();
+            if (c == 'n') {
+                literal("null");
+                return null;
+            }
+            if (c == '"') { // "amount": "10.50", as Jackson coerces it
+                pos++;
+                int start = pos;
+                String text = scanString() ? decode(start, pos - 1) : new String(b, start, pos - 1 - start,
+                        StandardCharsets.ISO_8859_1);
+                try {
+                    return new BigDecimal(text.strip());
+                } catch (NumberFormatException e) {
+                    throw error("amount is not a number");
+                }
+            }
+            return number();
+        }
+
+        private BigDecimal number() throws MalformedJsonException {
+            int start = pos;
+            if (pos < end && b[pos] == '-') pos++;
+            int intStart = pos;
+            while (pos < end && isDigit(b[pos])) pos++;
+            int intDigits = pos - intStart;
+            if (intDigits == 0 || (intDigits > 1 && b[intStart] == '0')) throw error("invalid number");
+            int fractionDigits = 0;
+            if (pos < end && b[pos] == '.') {
+                pos++;
+                int fractionStart = pos;
+                while (pos < end && isDigit(b[pos])) pos++;
+                fractionDigits = pos - fractionStart;
+                if (fractionDigits == 0) throw error("invalid number");
+            }
+            boolean exponent = false;
+            if (pos < end && (b[pos] == 'e' || b[pos] == 'E')) {
+                exponent = true;
+                pos++;
+                if (pos < end && (b[pos] == '+' || b[pos] == '-')) pos++;
+                int expStart = pos;
+                while (pos < end && isDigit(b[pos])) pos++;
+                if (pos == expStart) throw error("invalid number");
+            }
+            if (!exponent && intDigits + fractionDigits <= 18) { // fits a long: no String, no BigInteger
+                long unscaled = 0;
+                for (int i = intStart; i < pos; i++) {
+                    if (b[i] != '.') unscaled = unscaled * 10 + (b[i] - '0');
+                }
+                return BigDecimal.valueOf(b[start] == '-' ? -unscaled : unscaled, fractionDigits);
+            }
+            return new BigDecimal(new String(b, start, pos - start, StandardCharsets.ISO_8859_1));
+        }
+
+        private String stringValue(String field) throws MalformedJsonException {
+            byte c = peek();
+            if (c == 'n') {
+                literal("null");
+                return null;
+            }
+            if (c != '"') throw error(field + " must be a string");
+            pos++;
+            int start = pos;
+            if (scanString()) return decode(start, pos - 1);
+            int len = pos - 1 - start;
+            for (int i = 0; i < KNOWN_BYTES.length; i++) {
+                if (Arrays.equals(KNOWN_BYTES[i], 0, KNOWN_BYTES[i].length, b, start, start + len)) {
+                    return KNOWN_VALUES[i];
+                }
+            }
+            return new String(b, start, len, StandardCharsets.UTF_8);
+        }
+
+        private PaymentPriority priorityValue() throws MalformedJsonException {
+            String name = stringValue("priority");
+            if (name == null) return null;
+            try {
+                return PaymentPriority.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                throw error("unknown priority " + name);
+            }
+        }
+
+        // Moves past the closing quote of a string whose opening quote was consumed; true if it has escapes
+        private boolean scanString() throws MalformedJsonException {
+            boolean escaped = false;
+            while (pos < end) {
+                byte c = b[pos++];
+                if (c == '"') return escaped;
+                if (c == '\\') {
+                    escaped = true;
+                    byte e = pos < end ? b[pos++] : 0;
+                    if (e == 'u') {
+                        for (int k = 0; k < 4; k++) {
+                            if (pos >= end || Character.digit(b[pos++], 16) < 0) throw error("invalid \\u escape");
+                        }
+                    } else if ("\"\\/bfnrt".indexOf(e) < 0) {
+                        throw error("invalid escape");
+                    }
+                } else if (c >= 0 && c < 0x20) {
+                    throw error("control character in string");
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        // Slow path for strings with escapes (already checked by scanString); the runs between escapes are
+        // decoded as UTF-8 in one go
+        private String decode(int start, int stop) {
+            var sb = new StringBuilder(stop - start);
+            int segment = start;
+            for (int i = start; i < stop; i++) {
+                if (b[i] != '\\') continue;
+                sb.append(new String(b, segment, i - segment, StandardCharsets.UTF_8));
+                byte e = b[++i];
+                switch (e) {
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        sb.append((char) Integer.parseInt(new String(b, i + 1, 4, StandardCharsets.ISO_8859_1), 16));
+                        i += 4;
+                    }
+                    default -> sb.append((char) e); // " \\ /
+                }
+                segment = i + 1;
+            }
+            return sb.append(new String(b, segment, stop - segment, StandardCharsets.UTF_8)).toString();
+        }
+
+        private void skipValue(int depth) throws MalformedJsonException {
+            if (depth > MAX_DEPTH) throw error("nested too deeply");
+            byte c = peek();
+            switch (c) {
+                case '"' -> {
+                    pos++;
+                    scanString();
+                }
+                case 't' -> literal("true");
+                case 'f' -> literal("false");
+                case 'n' -> literal("null");
+                case '{', '[' -> {
+                    pos++;
+                    byte close = (byte) (c == '{' ? '}' : ']');
+                    if (peek() == close) {
+                        pos++;
+                        return;
+                    }
+                    while (true) {
+                        if (c == '{') {
+                            expect('"');
+                            scanString();
+                            expect(':');
+                        }
+                        skipValue(depth + 1);
+                        byte n = next();
+                        if (n == close) return;
+                        if (n != ',') throw error("expected ',' or '" + (char) close + "'");
+                    }
+                }
+                default -> number();
+            }
+        }
+
+        private void literal(String word) throws MalformedJsonException {
+            for (int i = 0; i < word.length(); i++) {
+                if (pos >= end || b[pos++] != word.charAt(i)) throw error("invalid literal");
+            }
+        }
+
+        private void expect(char c) throws MalformedJsonException {
+            if (next() != c) throw error("expected '" + c + "'");
+        }
+
+        // next non-whitespace byte, consumed
+        private byte next() throws MalformedJsonException {
+            byte c = peek();
+            pos++;
+            return c;
+        }
+
+        // next non-whitespace byte, not consumed
+        private byte peek() throws MalformedJsonException {
+            skipWhitespace();
+            if (pos >= end) throw error("unexpected end of input");
+            return b[pos];
+        }
+
+        private void skipWhitespace() {
+            while (pos < end && (b[pos] == ' ' || b[pos] == '\n' || b[pos] == '\r' || b[pos] == '\t')) pos++;
+        }
+
+        private MalformedJsonException error(String message) {
+            return new MalformedJsonException(message + " at offset " + pos);
+        }
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // ---- writing ----
+
+    /** {@code {"paymentId":"…","status":"…","message":…}}, in one exactly sized array; null fields are null. */
+    public static byte[] encode(PaymentResult result) {
+        UUID id = result.paymentId();
+        byte[] status = result.status() == null ? null : STATUS_NAMES[result.status().ordinal()];
+        String message = result.message();
+        int idLength = id == null ? NULL.length : 36 + 2;
+        int statusLength = status == null ? NULL.length : status.length + 2;
+        int messageLength = message == null ? NULL.length : escapedLength(message) + 2;
+        byte[] out = new byte[RESULT_ID.length + idLength + RESULT_STATUS.length + statusLength
+                + RESULT_MESSAGE.length + messageLength + 1];
+        int pos = put(out, 0, RESULT_ID);
+        if (id == null) {
+            pos = put(out, pos, NULL);
+        } else {
+            out[pos++] = '"';
+            pos = putUuid(out, pos, id);
+            out[pos++] = '"';
+        }
+        pos = put(out, pos, RESULT_STATUS);
+        if (status == null) {
+            pos = put(out, pos, NULL);
+        } else {
+            out[pos++] = '"';
+            pos = put(out, pos, status);
+            out[pos++] = '"';
+        }
+        pos = put(out, pos, RESULT_MESSAGE);
+        if (message == null) {
+            pos = put(out, pos, NULL);
+        } else {
+            out[pos++] = '"';
+            pos = putEscaped(out, pos, message);
+            out[pos++] = '"';
+        }
+        out[pos] = '}';
+        return out;
+    }
+
+    private static int put(byte[] out, int pos, byte[] bytes) {
+        System.arraycopy(bytes, 0, out, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private static int putUuid(byte[] out, int pos, UUID id) {
+        long msb = id.getMostSignificantBits(), lsb = id.getLeastSignificantBits();
+        pos = putHex(out, pos, msb >>> 32, 8);
+        out[pos++] = '-';
+        pos = putHex(out, pos, msb >>> 16, 4);
+        out[pos++] = '-';
+        pos = putHex(out, pos, msb, 4);
+        out[pos++] = '-';
+        pos = putHex(out, pos, lsb >>> 48, 4);
+        out[pos++] = '-';
+        return putHex(out, pos, lsb, 12);
+    }
+
+    private static int putHex(byte[] out, int pos, long value, int digits) {
+        return putHex(out, pos, value, digits, HEX);
+    }
+
+    private static int putHex(byte[] out, int pos, long value, int digits, byte[] hex) {
+        for (int i = digits - 1; i >= 0; i--) {
+            out[pos + i] = hex[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return pos + digits;
+    }
+
+    // UTF-8 bytes of s once escaped, as putEscaped writes it
+    private static int escapedLength(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\' || c == '\n' || c == '\r' || c == '\t' || c == '\b' || c == '\f') n += 2;
+            else if (c < 0x20) n += 6;
+            else if (c < 0x80) n += 1;
+            else if (c < 0x800) n += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else n += 3;
+        }
+        return n;
+    }
+
+    private static int putEscaped(byte[] out, int pos, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> pos = putPair(out, pos, '"');
+                case '\\' -> pos = putPair(out, pos, '\\');
+                case '\n' -> pos = putPair(out, pos, 'n');
+                case '\r' -> pos = putPair(out, pos, 'r');
+                case '\t' -> pos = putPair(out, pos, 't');
+                case '\b' -> pos = putPair(out, pos, 'b');
+                case '\f' -> pos = putPair(out, pos, 'f');
+                default -> {
+                    if (c < 0x20) {
+                        out[pos++] = '\\';
+                        out[pos++] = 'u';
+                        pos = putHex(out, pos, c, 4, HEX_UPPER);
+                    } else if (c < 0x80) {
+                        out[pos++] = (byte) c;
+                    } else if (c < 0x800) {
+                        out[pos++] = (byte) (0xC0 | c >> 6);
+                        out[pos++] = (byte) (0x80 | c & 0x3F);
+                    } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                            && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, s.charAt(++i));
+                        out[pos++] = (byte) (0xF0 | cp >> 18);
+                        out[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                        out[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                        out[pos++] = (byte) (0x80 | cp & 0x3F);
+                    } else { // a lone surrogate gets its own 3 bytes rather than failing the response
+                        out[pos++] = (byte) (0xE0 | c >> 12);
+                        out[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                        out[pos++] = (byte) (0x80 | c & 0x3F);
+                    }
+                }
+            }
+        }
+        return pos;
+    }
+
+    private static int putPair(byte[] out, int pos, char escaped) {
+        out[pos] = '\\';
+        out[pos + 1] = (byte) escaped;
+        return pos + 2;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,55 @@
+package com.paymentflow.controller;
+
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentResult;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads {@link PaymentRequest} and writes {@link PaymentResult} with {@link PaymentJsonCodec}. Being a bean,
+ * Spring Boot puts it ahead of the Jackson converter, which keeps every other type (errors, bulk items,
+ * the ledger). Bean validation still runs on the request as before.
+ */
+@Component
+public class PaymentJsonConverter extends AbstractHttpMessageConverter<Object> {
+
+    public PaymentJsonConverter() {
+        super(StandardCharsets.UTF_8, MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == PaymentRequest.class || clazz == PaymentResult.class;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return clazz == PaymentRequest.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return clazz == PaymentResult.class && canWrite(mediaType);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage input) throws IOException {
+        try {
+            return PaymentJsonCodec.readRequest(input.getBody(), input.getHeaders().getContentLength());
+        } catch (PaymentJsonCodec.MalformedJsonException e) {
+            throw new HttpMessageNotReadableException("Invalid payment request: " + e.getMessage(), e, input);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object result, HttpOutputMessage output) throws IOException {
+        output.getBody().write(PaymentJsonCodec.encode((PaymentResult) result));
+    }
+}
@@ -0,0 +1,63 @@
+package com.paymentflow.controller;
+
+import com.paymentflow.events.PaymentEventLog;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encoded status responses of payments that reached SUCCESS or FAILED. A terminal status never changes, so
+ * the bytes never go stale: once cached, a status read is one map lookup and one write, with no repository
+ * read, no {@link PaymentResult} and no encoding.
+ * <p>
+ * Filled from the {@link PaymentEventLog} by a non-gating subscription, off the payment path; a payment it
+ * hasn't seen yet (or skipped after falling a ring behind) is simply read the normal way. Bounded by
+ * evicting the oldest entries first: clients poll a payment shortly after it settles, not days later.
+ */
+@Component
+public class TerminalStatusCache implements AutoCloseable {
+
+    private final ConcurrentHashMap<UUID, byte[]> responses = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<UUID> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxEntries;
+    private final PaymentEventLog.Subscription subscription;
+
+    public TerminalStatusCache(PaymentEventLog events,
+                               @Value("${payment.status.cache-entries:100000}") int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be > 0");
+        this.maxEntries = maxEntries;
+        this.subscription = events.subscribe("status-cache", events.nextSequence(), false);
+        subscription.start((sequence, payment, endOfBatch) -> remember(payment), 256);
+    }
+
+    void remember(Payment payment) {
+        if (!payment.status().isTerminal()) return;
+        if (responses.putIfAbsent(payment.id(), PaymentJsonCodec.encode(PaymentResult.of(payment))) != null) return;
+        insertionOrder.add(payment.id());
+        if (size.incrementAndGet() > maxEntries) {
+            UUID eldest = insertionOrder.poll();
+            if (eldest != null && responses.remove(eldest) != null) size.decrementAndGet();
+        }
+    }
+
+    /** The encoded terminal response, or null if the payment isn't (known to be) settled. */
+    public byte[] get(UUID paymentId) {
+        return responses.get(paymentId);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void close() {
+        subscription.close();
+    }
+}
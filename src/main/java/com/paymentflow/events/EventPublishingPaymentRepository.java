@@ -0,0 +1,82 @@
+package com.paymentflow.events;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import com.paymentflow.repository.PaymentRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Publishes every accepted write (the PROCESSING create and each status transition) to a
+ * {@link PaymentEventLog}, after the delegate stored it. Rejected transitions are not events.
+ * <p>
+ * Wraps the outermost repository, so with the WAL enabled an event is only published once it is logged;
+ * the WAL replay at startup goes to the inner repository and publishes nothing.
+ */
+public class EventPublishingPaymentRepository implements PaymentRepository, AutoCloseable {
+
+    private final PaymentRepository delegate;
+    private final PaymentEventLog events;
+
+    public EventPublishingPaymentRepository(PaymentRepository delegate, PaymentEventLog events) {
+        this.delegate = delegate;
+        this.events = events;
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        Payment stored = delegate.save(payment);
+        if (stored == payment) events.publish(payment);
+        return stored;
+    }
+
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        List<Payment> stored = delegate.saveAll(payments);
+        for (int i = 0; i < stored.size(); i++) {
+            if (stored.get(i) == payments.get(i)) events.publish(payments.get(i));
+        }
+        return stored;
+    }
+
+    @Override
+    public Optional<Payment> findById(UUID id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public boolean compareAndSetStatus(UUID id, PaymentStatus expected, Payment next) {
+        boolean swapped = delegate.compareAndSetStatus(id, expected, next);
+        if (swapped) events.publish(next);
+        return swapped;
+    }
+
+    @Override
+    public List<Payment> findByStatus(PaymentStatus status, Instant createdBefore) {
+        return delegate.findByStatus(status, createdBefore);
+    }
+
+    @Override
+    public void forEach(Consumer<Payment> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public boolean durable() {
+        return delegate.durable();
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) closeable.close();
+    }
+}
@@ -0,0 +1,234 @@
+package com.paymentflow.events;
+
+import com.paymentflow.model.Payment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process, append-only log of payment state transitions (Disruptor-style ring).
+ * <p>
+ * Publishers claim the next sequence from one shared counter, write the slot and mark it available with the
+ * sequence it now holds. Nothing is locked and nothing is allocated: a publish is one {@code getAndIncrement}
+ * and three stores. Each {@link Subscription} keeps its own position, reads whatever is available in batches
+ * and can {@link Subscription#seek} back to replay anything the ring still holds (the last {@code capacity}
+ * events).
+ * <p>
+ * A gating subscription must see every event: a publisher that would overwrite an event it hasn't read yet
+ * waits for it, like a full queue. The ledger subscribes that way. Non-gating subscriptions (webhooks,
+ * reconciliation) never hold publishers back; if one falls a full ring behind it skips to the oldest event
+ * still held and counts what it {@linkplain Subscription#missed() missed}. Gating subscriptions belong to
+ * startup: events published while one is being added may be overwritten before it gets to them.
+ * <p>
+ * Capacity is rounded up to the next power of two.
+ */
+@Component
+public class PaymentEventLog {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentEventLog.class);
+
+    /** Receives events in sequence order; {@code endOfBatch} marks the last one available for now. */
+    @FunctionalInterface
+    public interface EventHandler {
+        void onEvent(long sequence, Payment payment, boolean endOfBatch) throws Exception;
+    }
+
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 50_000; // 50µs, as RingBufferPaymentQueue's PARK
+
+    private final int mask;
+    private final AtomicReferenceArray<Payment> entries;
+    // sequence each slot holds once it is fully written; -1 = never written, or being rewritten
+    private final AtomicLongArray available;
+    // next sequence to claim
+    private final AtomicLong next = new AtomicLong();
+    // copy on write; an array so the publisher's scan doesn't allocate an iterator
+    private volatile Subscription[] gating = new Subscription[0];
+    // a lower bound of the gating positions, rescanned only when a publisher is about to reach it.
+    // Anything that may lower the true minimum sets it to -1, which also fails a concurrent rescan's CAS
+    private final AtomicLong gatingCache = new AtomicLong();
+
+    public PaymentEventLog(@Value("${payment.events.capacity:65536}") int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be > 0");
+        if (capacity > (1 << 30)) throw new IllegalArgumentException("Capacity too large");
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.available = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) available.set(i, -1);
+    }
+
+    /** Appends a transition; returns its sequence. Waits only while a gating subscription is a full ring behind. */
+    public long publish(Payment payment) {
+        long seq = next.getAndIncrement();
+        long wrapPoint = seq - mask - 1; // the event this one overwrites
+        if (wrapPoint >= gatingCache.get()) awaitGating(wrapPoint);
+        int idx = (int) (seq & mask);
+        available.set(idx, -1); // a non-gating reader still on the old event sees it changed under it
+        entries.lazySet(idx, payment);
+        available.set(idx, seq); // release: a reader that sees seq sees the payment
+        return seq;
+    }
+
+    private void awaitGating(long wrapPoint) {
+        int tries = 0;
+        while (true) {
+            long cached = gatingCache.get();
+            long min = minGatingPosition();
+            if (wrapPoint < min) {
+                gatingCache.compareAndSet(cached, min);
+                return;
+            }
+            if (tries++ < SPIN_TRIES) Thread.onSpinWait();
+            else LockSupport.parkNanos(this, PARK_NANOS);
+        }
+    }
+
+    private long minGatingPosition() {
+        long min = Long.MAX_VALUE;
+        for (Subscription s : gating) min = Math.min(min, s.position);
+        return min;
+    }
+
+    private synchronized void addGating(Subscription subscription) {
+        Subscription[] grown = Arrays.copyOf(gating, gating.length + 1);
+        grown[grown.length - 1] = subscription;
+        gating = grown;
+        gatingCache.set(-1);
+    }
+
+    private synchronized void removeGating(Subscription subscription) {
+        gating = Arrays.stream(gating).filter(s -> s != subscription).toArray(Subscription[]::new);
+    }
+
+    /** Sequence the next publish gets: everything below it was claimed (the newest may still be in writing). */
+    public long nextSequence() {
+        return next.get();
+    }
+
+    /** Lowest sequence the ring still holds; a seek further back is clamped to it. */
+    public long oldestRetained() {
+        return Math.max(0, next.get() - mask - 1);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Starts reading at {@code fromSequence} (0 = from the beginning, {@link #nextSequence()} = only new events).
+     *
+     * @param gating true if publishers must wait for this subscription rather than overwrite what it hasn't read
+     */
+    public Subscription subscribe(String name, long fromSequence, boolean gating) {
+        var subscription = new Subscription(name, gating);
+        subscription.seek(fromSequence);
+        if (gating) addGating(subscription);
+        return subscription;
+    }
+
+    /** One reader's position in the log. Used by one thread at a time. */
+    public final class Subscription implements AutoCloseable {
+        private final String name;
+        private final boolean gates;
+        // next sequence to read; publishers read it when deciding whether they may wrap
+        private volatile long position;
+        private volatile long missed;
+        private volatile Thread runner;
+        private volatile boolean closed;
+
+        private Subscription(String name, boolean gating) {
+            this.name = name;
+            this.gates = gating;
+        }
+
+        /**
+         * Hands everything available, at most {@code maxBatch} events, to {@code handler} and moves past it.
+         * An event whose handler throws is not consumed: the next poll starts with it again.
+         *
+         * @return how many events were handled
+         */
+        public int poll(EventHandler handler, int maxBatch) throws Exception {
+            long from = position;
+            long oldest = next.get() - mask - 1;
+            if (!gates && from < oldest) { // lapped: what we hadn't read is overwritten
+                missed += oldest - from;
+                from = oldest;
+                position = from;
+            }
+            long to = from;
+            while (to - from < maxBatch && available.get((int) (to & mask)) == to) to++;
+            for (long seq = from; seq < to; seq++) {
+                int idx = (int) (seq & mask);
+                Payment payment = entries.get(idx);
+                // overwritten since the scan: stop here, the next poll counts it as missed and skips ahead
+                if (!gates && available.get(idx) != seq) return (int) (seq - from);
+                handler.onEvent(seq, payment, seq == to - 1);
+                position = seq + 1;
+            }
+            return (int) (to - from);
+        }
+
+        /**
+         * Reads on a daemon thread of its own until {@link #close()}, parking briefly when there is nothing new.
+         * A handler that throws is logged and skipped, so one bad event doesn't stall the subscription.
+         */
+        public synchronized Thread start(EventHandler handler, int maxBatch) {
+            if (runner != null) throw new IllegalStateException("Subscription " + name + " is already running");
+            runner = Thread.ofPlatform().daemon().name("events-" + name).start(() -> {
+                while (!closed) {
+                    try {
+                        if (poll(handler, maxBatch) == 0) LockSupport.parkNanos(this, PARK_NANOS);
+                    } catch (Exception e) {
+                        // poll stopped at the failed event without consuming it: step over it
+                        log.warn("Event subscription {}: event {} failed, skipped", name, position, e);
+                        position++;
+                    }
+                }
+            });
+            return runner;
+        }
+
+        /** Moves to {@code sequence} to replay from there, clamped to what the ring still holds. */
+        public void seek(long sequence) {
+            if (sequence < 0) throw new IllegalArgumentException("sequence must be >= 0");
+            position = Math.min(Math.max(sequence, oldestRetained()), next.get());
+            if (gates) gatingCache.set(-1); // publishers rescan before overwriting what is now unread
+        }
+
+        /** Next sequence this subscription reads. */
+        public long position() {
+            return position;
+        }
+
+        /** Events published but not read yet. */
+        public long lag() {
+            return Math.max(0, next.get() - position);
+        }
+
+        /** Events overwritten before this (non-gating) subscription read them. */
+        public long missed() {
+            return missed;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /** Stops the reader thread, if any, and stops holding publishers back. */
+        @Override
+        public void close() {
+            closed = true;
+            if (gates) removeGating(this);
+            Thread t = runner;
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.paymentflow.gateway;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link PaymentGateway}: no thread waits while the charge is on the wire.
+ * The future completes with the result, or exceptionally with a {@link PaymentGateway.GatewayException}.
+ * Cancelling the future abandons the call if it has not completed yet.
+ */
+public interface AsyncPaymentGateway {
+    CompletableFuture<PaymentResult> chargeAsync(Payment payment);
+
+    /**
+     * Voids a completed charge for this payment (same idempotency token), so the customer is not charged
+     * by two gateways when a hedged attempt elsewhere won. Completes with false if nothing was charged.
+     */
+    CompletableFuture<Boolean> voidCharge(Payment payment);
+}
@@ -0,0 +1,77 @@
+package com.paymentflow.gateway;
+
+import com.paymentflow.model.PaymentResult;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Gateway-side idempotency for the simulated providers, keyed by payment id (the idempotency token a real
+ * provider gets in its Idempotency-Key header). The first successful attempt commits the charge; a retry or
+ * a hedged duplicate that succeeds later gets the committed result back and charges nothing.
+ * <p>
+ * Providers forget idempotency keys after a while; so do we, or the map grows forever. Commits are grouped
+ * by the minute they were made in, and one sweep a minute drops the groups older than the retention: one
+ * queue append per charge instead of one scheduled task.
+ */
+final class ChargeRegistry {
+
+    private static final long RETENTION_MINUTES = 10;
+    private static final long BUCKET_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private record Charge(PaymentResult result, long minute) { }
+
+    private final Map<UUID, Charge> committed = new ConcurrentHashMap<>();
+    private final Map<Long, Queue<UUID>> commitsByMinute = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    ChargeRegistry(ScheduledExecutorService scheduler) {
+        this(System::nanoTime);
+        scheduler.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.MINUTES);
+    }
+
+    ChargeRegistry(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /** Returns the result the customer is charged under: this one if it is the first, else the earlier one. */
+    PaymentResult commit(PaymentResult result) {
+        long minute = minute();
+        Charge earlier = committed.putIfAbsent(result.paymentId(), new Charge(result, minute));
+        if (earlier != null) return earlier.result();
+        commitsByMinute.computeIfAbsent(minute, m -> new ConcurrentLinkedQueue<>()).add(result.paymentId());
+        return result;
+    }
+
+    /** Voids the committed charge. Returns false if nothing was charged for this payment. */
+    boolean release(UUID paymentId) {
+        return committed.remove(paymentId) != null;
+    }
+
+    boolean isCharged(UUID paymentId) {
+        return committed.containsKey(paymentId);
+    }
+
+    // drops the charges of every minute that is past retention; a charge released and committed again
+    // since carries its newer minute and stays
+    void sweep() {
+        long expired = minute() - RETENTION_MINUTES;
+        commitsByMinute.keySet().removeIf(minute -> {
+            if (minute > expired) return false;
+            for (UUID paymentId : commitsByMinute.get(minute)) {
+                committed.computeIfPresent(paymentId, (id, charge) -> charge.minute() <= expired ? null : charge);
+            }
+            return true;
+        });
+    }
+
+    private long minute() {
+        return Math.floorDiv(nanoClock.getAsLong(), BUCKET_NANOS);
+    }
+}
@@ -0,0 +1,134 @@
+package com.paymentflow.gateway;
+
+import com.paymentflow.model.Payment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks the gateway for a payment from live statistics instead of a fixed method → gateway map.
+ * <p>
+ * Each gateway keeps an EWMA of charge latency and of success rate. A payment gets the gateways whose
+ * rule accepts its currency and method, best first, scored by expected time to a successful charge:
+ * {@code latency / successRate / weight}. The caller walks the list and skips gateways whose breaker is
+ * open, which is the failover. A small share of traffic goes to the runner-up so a gateway that recovered
+ * is noticed even though it stopped winning.
+ */
+@Component
+public class GatewayRouter {
+
+    private final Map<String, PaymentGateway> byName = new LinkedHashMap<>();
+    private final Map<PaymentGateway, GatewayRoutingProperties.Rule> rules = new LinkedHashMap<>();
+    private final Map<PaymentGateway, Stats> stats = new LinkedHashMap<>();
+    private final GatewayRoutingProperties properties;
+
+    public GatewayRouter(List<PaymentGateway> gateways, GatewayRoutingProperties properties) {
+        this.properties = properties;
+        for (PaymentGateway gw : gateways) {
+            byName.put(gw.name().toLowerCase(), gw);
+            // a gateway without a rule only accepts its own name as method (the old fixed mapping)
+            var rule = properties.gateways().get(gw.name().toLowerCase());
+            rules.put(gw, rule != null ? rule : new GatewayRoutingProperties.Rule(1.0, null, Set.of(gw.name())));
+            stats.put(gw, new Stats());
+        }
+        if (!byName.containsKey(properties.defaultGateway().toLowerCase())) {
+            throw new IllegalArgumentException("Unknown default gateway: " + properties.defaultGateway());
+        }
+    }
+
+    /**
+     * Gateways allowed to charge this payment, best first. Never empty: when no rule accepts the payment
+     * the default gateway is returned on its own.
+     */
+    public List<PaymentGateway> route(Payment payment) {
+        // scores are read once: other threads keep updating them while we sort
+        List<Scored> candidates = new ArrayList<>(rules.size());
+        for (var e : rules.entrySet()) {
+            if (e.getValue().accepts(payment.currency(), payment.method())) {
+                candidates.add(new Scored(e.getKey(), score(e.getKey())));
+            }
+        }
+        if (candidates.isEmpty()) return List.of(byName.get(properties.defaultGateway().toLowerCase()));
+
+        candidates.sort(Comparator.comparingDouble(Scored::score));
+        if (candidates.size() > 1 && ThreadLocalRandom.current().nextInt(100) < properties.explorePercent()) {
+            Collections.swap(candidates, 0, 1);
+        }
+        List<PaymentGateway> ordered = new ArrayList<>(candidates.size());
+        for (Scored c : candidates) ordered.add(c.gateway());
+        return ordered;
+    }
+
+    /** Whether some gateway's rule takes this payment method; requests with any other method are refused. */
+    public boolean routes(String method) {
+        for (var rule : rules.values()) {
+            if (rule.acceptsMethod(method)) return true;
+        }
+        return false;
+    }
+
+    /** One finished charge (retries included), as the customer saw it. */
+    public void record(PaymentGateway gateway, long latencyNanos, boolean success) {
+        Stats s = stats.get(gateway);
+        if (s == null) return;
+        double alpha = properties.alpha();
+        s.latencyMillis.update(TimeUnit.NANOSECONDS.toMicros(latencyNanos) / 1000.0, alpha);
+        s.successRate.update(success ? 1.0 : 0.0, alpha);
+    }
+
+    public double latencyMillis(PaymentGateway gateway) {
+        return stats.get(gateway).latencyMillis.get();
+    }
+
+    public double successRate(PaymentGateway gateway) {
+        return stats.get(gateway).successRate.get();
+    }
+
+    // expected milliseconds until a successful charge; lower is better
+    private double score(PaymentGateway gateway) {
+        Stats s = stats.get(gateway);
+        double latency = s.latencyMillis.get();
+        if (Double.isNaN(latency)) return 0; // never used: try it first, that is how it gets numbers
+        double success = Math.max(0.01, s.successRate.get());
+        return latency / success / rules.get(gateway).weight();
+    }
+
+    private record Scored(PaymentGateway gateway, double score) {
+    }
+
+    private static final class Stats {
+        final Ewma latencyMillis = new Ewma(Double.NaN); // NaN until the first charge
+        final Ewma successRate = new Ewma(1.0);
+    }
+
+    // A double updated with CAS on its raw bits: many workers record at once, nobody blocks
+    private static final class Ewma {
+        private final AtomicLong bits;
+
+        Ewma(double initial) {
+            this.bits = new AtomicLong(Double.doubleToRawLongBits(initial));
+        }
+
+        double get() {
+            return Double.longBitsToDouble(bits.get());
+        }
+
+        void update(double sample, double alpha) {
+            while (true) {
+                long current = bits.get();
+                double value = Double.longBitsToDouble(current);
+                double next = Double.isNaN(value) ? sample : value + alpha * (sample - value);
+                if (bits.compareAndSet(current, Double.doubleToRawLongBits(next))) return;
+            }
+        }
+    }
+}
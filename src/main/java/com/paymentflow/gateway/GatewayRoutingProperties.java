@@ -0,0 +1,58 @@
+package com.paymentflow.gateway;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code payment.routing.*}: which gateway may take which payment, and how strongly to prefer it.
+ *
+ * @param defaultGateway gateway for payments no rule accepts (the old "unknown method goes to Stripe")
+ * @param alpha          EWMA weight of the newest outcome in the latency / success-rate averages
+ * @param explorePercent share of traffic sent to the runner-up so its statistics stay current
+ * @param gateways       rules by {@link PaymentGateway#name()}
+ */
+@ConfigurationProperties(prefix = "payment.routing")
+public record GatewayRoutingProperties(@DefaultValue("stripe") String defaultGateway,
+                                       @DefaultValue("0.2") double alpha,
+                                       @DefaultValue("5") int explorePercent,
+                                       Map<String, Rule> gateways) {
+
+    /**
+     * @param weight     preference multiplier: 2.0 makes a gateway look twice as fast
+     * @param currencies accepted currencies, empty = any
+     * @param methods    accepted payment methods, empty = any
+     */
+    public record Rule(@DefaultValue("1.0") double weight, Set<String> currencies, Set<String> methods) {
+        public Rule {
+            if (weight <= 0) throw new IllegalArgumentException("weight must be > 0");
+            currencies = currencies == null ? Set.of() : currencies;
+            methods = methods == null ? Set.of() : methods;
+        }
+
+        boolean accepts(String currency, String method) {
+            return (currencies.isEmpty() || containsIgnoreCase(currencies, currency))
+                    && acceptsMethod(method);
+        }
+
+        boolean acceptsMethod(String method) {
+            return methods.isEmpty() || containsIgnoreCase(methods, method);
+        }
+
+        private static boolean containsIgnoreCase(Set<String> values, String value) {
+            if (value == null) return false;
+            for (String v : values) {
+                if (v.equalsIgnoreCase(value)) return true;
+            }
+            return false;
+        }
+    }
+
+    public GatewayRoutingProperties {
+        if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("alpha must be in (0, 1]");
+        if (explorePercent < 0 || explorePercent > 100) throw new IllegalArgumentException("explorePercent must be 0..100");
+        gateways = gateways == null ? Map.of() : gateways;
+    }
+}
@@ -0,0 +1,21 @@
+package com.paymentflow.gateway;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+/**
+ * {@code payment.gateway.simulation.*}: latency and failure profile of each simulated gateway, by
+ * {@link PaymentGateway#name()}. A gateway without an entry keeps its built-in profile.
+ */
+@ConfigurationProperties(prefix = "payment.gateway")
+public record GatewaySimulationProperties(Map<String, LatencyProfile> simulation) {
+
+    public GatewaySimulationProperties {
+        simulation = simulation == null ? Map.of() : simulation;
+    }
+
+    public LatencyProfile profile(String gateway, LatencyProfile fallback) {
+        return simulation.getOrDefault(gateway, fallback);
+    }
+}
@@ -0,0 +1,65 @@
+package com.paymentflow.gateway;
+
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * How a simulated gateway behaves: latency distribution and failure probability per call.
+ * <p>
+ * {@code uniform} draws between {@code min} and {@code max}. {@code lognormal} is the usual shape of real
+ * network latency: most calls near {@code median}, a long right tail with 1% of calls above {@code p99},
+ * clamped to {@code [min, max]}.
+ *
+ * @param distribution uniform | lognormal
+ * @param failureRate  probability (0..1) that a call fails
+ */
+public record LatencyProfile(@DefaultValue("uniform") String distribution,
+                             @DefaultValue("0ms") Duration min,
+                             @DefaultValue("0ms") Duration max,
+                             @DefaultValue("0ms") Duration median,
+                             @DefaultValue("0ms") Duration p99,
+                             @DefaultValue("0") double failureRate) {
+
+    private static final double Z_99 = 2.326; // standard normal quantile of 0.99
+
+    public LatencyProfile {
+        if (failureRate < 0 || failureRate > 1) throw new IllegalArgumentException("failureRate must be in [0, 1]");
+        if (max.compareTo(min) < 0) throw new IllegalArgumentException("max must be >= min");
+        switch (distribution.toLowerCase()) {
+            case "uniform" -> { }
+            case "lognormal" -> {
+                if (median.isZero() || p99.compareTo(median) < 0) {
+                    throw new IllegalArgumentException("lognormal needs 0 < median <= p99");
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + distribution);
+        }
+    }
+
+    public static LatencyProfile uniform(long minMillis, long maxMillis, double failureRate) {
+        return new LatencyProfile("uniform", Duration.ofMillis(minMillis), Duration.ofMillis(maxMillis),
+                Duration.ZERO, Duration.ZERO, failureRate);
+    }
+
+    /** One call's latency in nanos; {@code factor} stretches it (e.g. for a batch). */
+    public long sampleNanos(RandomGenerator random, double factor) {
+        long minNanos = min.toNanos(), maxNanos = max.toNanos();
+        double nanos;
+        if ("uniform".equalsIgnoreCase(distribution)) {
+            nanos = minNanos == maxNanos ? minNanos : random.nextLong(minNanos, maxNanos + 1);
+        } else {
+            double mu = Math.log(median.toNanos());
+            double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+            nanos = Math.exp(mu + sigma * random.nextGaussian());
+            if (nanos < minNanos) nanos = minNanos;
+            if (maxNanos > 0 && nanos > maxNanos) nanos = maxNanos;
+        }
+        return (long) (nanos * factor);
+    }
+
+    public boolean fails(RandomGenerator random) {
+        return random.nextDouble() < failureRate;
+    }
+}
@@ -1,30 +1,18 @@
 package com.paymentflow.gateway;
 
-import com.paymentflow.model.Payment;
-import com.paymentflow.model.PaymentResult;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Component("payPalGateway")
-public class PayPalGateway implements PaymentGateway {
+public class PayPalGateway extends SimulatedGateway {
 
-    private static void simulateLatency(int minMs, int maxMs) {
-        try {
-            Thread.sleep(ThreadLocalRandom.current().nextInt(minMs, maxMs + 1));
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-        }
-    }
-
-    private static boolean randomFail(double probability) {
-        return ThreadLocalRandom.current().nextDouble() < probability;
-    }
+    // the old hard-coded behaviour, used unless payment.gateway.simulation.paypal says otherwise
+    static final LatencyProfile DEFAULT_PROFILE = LatencyProfile.uniform(80, 250, 0.15);
 
-    @Override
-    public PaymentResult charge(Payment payment) throws GatewayException {
-        simulateLatency(80, 250);
-        if (randomFail(0.15)) throw new GatewayException("PayPal network glitch");
-        return PaymentResult.success(payment.id());
+    public PayPalGateway(@Qualifier("gatewayScheduler") ScheduledExecutorService scheduler,
+                         GatewaySimulationProperties simulation) {
+        super("paypal", DEFAULT_PROFILE, "PayPal network glitch", scheduler, simulation);
     }
 }
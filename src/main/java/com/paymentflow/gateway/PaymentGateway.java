@@ -3,9 +3,47 @@ package com.paymentflow.gateway;
 import com.paymentflow.model.Payment;
 import com.paymentflow.model.PaymentResult;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface PaymentGateway {
     PaymentResult charge(Payment payment) throws GatewayException;
 
+    /**
+     * Charges several payments in one round-trip.
+     * Returns one outcome per payment, in the same order; a failed item never fails the whole batch.
+     * The default falls back to one {@link #charge} call per payment.
+     */
+    default List<ChargeOutcome> chargeBatch(List<Payment> payments) {
+        List<ChargeOutcome> outcomes = new ArrayList<>(payments.size());
+        for (Payment p : payments) {
+            try {
+                outcomes.add(ChargeOutcome.success(p, charge(p)));
+            } catch (GatewayException e) {
+                outcomes.add(ChargeOutcome.failure(p, e));
+            }
+        }
+        return outcomes;
+    }
+
+    default String name() {
+        return getClass().getSimpleName();
+    }
+
+    record ChargeOutcome(Payment payment, PaymentResult result, GatewayException error) {
+        public static ChargeOutcome success(Payment payment, PaymentResult result) {
+            return new ChargeOutcome(payment, result, null);
+        }
+
+        public static ChargeOutcome failure(Payment payment, GatewayException error) {
+            return new ChargeOutcome(payment, null, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
     class GatewayException extends Exception {
         public GatewayException(String message) {
             super(message);
@@ -0,0 +1,103 @@
+package com.paymentflow.gateway;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A provider simulated from a {@link LatencyProfile}: sleeps (or schedules) a sampled latency, fails at the
+ * profile's rate, and commits successful charges to a {@link ChargeRegistry} so an abandoned or duplicate
+ * charge is never counted twice. Subclasses only pick the name, the default profile and the failure text.
+ */
+abstract class SimulatedGateway implements PaymentGateway, AsyncPaymentGateway {
+
+    private final String name;
+    private final String failureMessage;
+    private final ScheduledExecutorService scheduler;
+    private final ChargeRegistry charges;
+    private final LatencyProfile profile;
+
+    /**
+     * @param defaultProfile used unless {@code payment.gateway.simulation.<name>} says otherwise
+     */
+    SimulatedGateway(String name, LatencyProfile defaultProfile, String failureMessage,
+                     ScheduledExecutorService scheduler, GatewaySimulationProperties simulation) {
+        this.name = name;
+        this.failureMessage = failureMessage;
+        this.scheduler = scheduler;
+        this.charges = new ChargeRegistry(scheduler);
+        this.profile = simulation.profile(name, defaultProfile);
+    }
+
+    private void simulateLatency(double factor) {
+        try {
+            Thread.sleep(Duration.ofNanos(profile.sampleNanos(ThreadLocalRandom.current(), factor)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean randomFail() {
+        return profile.fails(ThreadLocalRandom.current());
+    }
+
+    @Override
+    public PaymentResult charge(Payment payment) throws GatewayException {
+        simulateLatency(1);
+        if (randomFail()) throw new GatewayException(failureMessage);
+        return charges.commit(PaymentResult.success(payment.id()));
+    }
+
+    // Same latency and failure profile, but the wait is a scheduled task instead of a sleeping thread
+    @Override
+    public CompletableFuture<PaymentResult> chargeAsync(Payment payment) {
+        var result = new CompletableFuture<PaymentResult>();
+        ScheduledFuture<?> call = scheduler.schedule(() -> {
+            if (randomFail()) result.completeExceptionally(new GatewayException(failureMessage));
+            else complete(result, payment);
+        }, profile.sampleNanos(ThreadLocalRandom.current(), 1), TimeUnit.NANOSECONDS);
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) call.cancel(false);
+        });
+        return result;
+    }
+
+    // A caller that cancelled (abandoned) the call must not end up charged
+    private void complete(CompletableFuture<PaymentResult> result, Payment payment) {
+        PaymentResult fresh = PaymentResult.success(payment.id());
+        PaymentResult charged = charges.commit(fresh);
+        if (!result.complete(charged) && charged == fresh) charges.release(payment.id());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> voidCharge(Payment payment) {
+        return CompletableFuture.completedFuture(charges.release(payment.id()));
+    }
+
+    // One round-trip for the whole batch: latency grows with log2(size), not linearly
+    @Override
+    public List<ChargeOutcome> chargeBatch(List<Payment> payments) {
+        double factor = 1 + 0.25 * (31 - Integer.numberOfLeadingZeros(Math.max(1, payments.size())));
+        simulateLatency(factor);
+        List<ChargeOutcome> outcomes = new ArrayList<>(payments.size());
+        for (Payment p : payments) {
+            outcomes.add(randomFail()
+                    ? ChargeOutcome.failure(p, new GatewayException(failureMessage))
+                    : ChargeOutcome.success(p, charges.commit(PaymentResult.success(p.id()))));
+        }
+        return outcomes;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+}
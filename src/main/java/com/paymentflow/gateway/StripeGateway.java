@@ -1,31 +1,18 @@
 package com.paymentflow.gateway;
 
-import com.paymentflow.model.Payment;
-import com.paymentflow.model.PaymentResult;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Component("stripeGateway")
-public class StripeGateway implements PaymentGateway {
+public class StripeGateway extends SimulatedGateway {
 
-    private static void simulateLatency(int minsMs, int maxMS) {
-        try {
-            Thread.sleep(ThreadLocalRandom.current().nextInt(minsMs, maxMS + 1));
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
-
-    private static boolean randomFail(double probability) {
-        return ThreadLocalRandom.current().nextDouble() < probability;
-    }
-
-    @Override
-    public PaymentResult charge(Payment payment) throws GatewayException {
-        simulateLatency(50, 200);
-        if (randomFail(0.25)) throw new GatewayException("Stripe temporary failure");
-        return PaymentResult.success(payment.id());
+    // the old hard-coded behaviour, used unless payment.gateway.simulation.stripe says otherwise
+    static final LatencyProfile DEFAULT_PROFILE = LatencyProfile.uniform(50, 200, 0.25);
 
+    public StripeGateway(@Qualifier("gatewayScheduler") ScheduledExecutorService scheduler,
+                         GatewaySimulationProperties simulation) {
+        super("stripe", DEFAULT_PROFILE, "Stripe temporary failure", scheduler, simulation);
     }
 }
@@ -0,0 +1,35 @@
+package com.paymentflow.ledger;
+
+import com.paymentflow.events.PaymentEventLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds the {@link SettlementLedger} from the {@link PaymentEventLog}: every accepted transition to SUCCESS
+ * is added exactly once, off the charge path.
+ * <p>
+ * The subscription gates publishers, so the ledger never misses a settlement; a ledger a full ring behind
+ * holds up the next publish instead. Balances therefore trail the terminal write by the time the reader
+ * takes to reach it, normally microseconds.
+ */
+@Component
+public class LedgerEventFeed implements AutoCloseable {
+
+    private final PaymentEventLog.Subscription subscription;
+
+    public LedgerEventFeed(PaymentEventLog events, SettlementLedger ledger,
+                           @Value("${payment.events.ledger-batch:256}") int maxBatch) {
+        this.subscription = events.subscribe("ledger", 0, true);
+        subscription.start((sequence, payment, endOfBatch) -> ledger.record(payment), maxBatch);
+    }
+
+    /** Events published but not in the ledger yet. */
+    public long lag() {
+        return subscription.lag();
+    }
+
+    @Override
+    public void close() {
+        subscription.close();
+    }
+}
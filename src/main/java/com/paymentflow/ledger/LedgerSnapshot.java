@@ -0,0 +1,27 @@
+package com.paymentflow.ledger;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Totals of every account at one cut of the {@link SettlementLedger}.
+ *
+ * @param sequence increases with every snapshot, so a consumer can tell two apart
+ * @param takenAt  when the cut was made
+ * @param balances one per merchant and currency
+ * @param refused  successful payments never added, their amount having too many decimals
+ */
+public record LedgerSnapshot(long sequence, Instant takenAt, List<Balance> balances, long refused) {
+
+    public LedgerSnapshot {
+        balances = List.copyOf(balances);
+    }
+
+    /**
+     * @param amount sum of the merchant's successful payments in {@code currency}
+     * @param count  how many payments that is
+     */
+    public record Balance(String merchantId, String currency, BigDecimal amount, long count) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.paymentflow.ledger;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of settled (SUCCESS) payments per merchant and currency.
+ * <p>
+ * Amounts are kept as fixed-point longs ({@link #SCALE} decimals) in {@link LongAdder}s, which stripe
+ * concurrent adds over per-thread cells: recording a charge is a hash lookup and two uncontended adds,
+ * with no lock and no shared cache line between charging threads.
+ * <p>
+ * A snapshot is a consistent cut over all accounts: every charge recorded before it is in it, every charge
+ * after it is not, and none is half in. Writers add into the accumulators of the current epoch; a snapshot
+ * moves to the next epoch, waits for the few writers still inside the old one, and folds the old epoch into
+ * the settled totals. Only snapshot takers wait on each other.
+ * <p>
+ * Writers register in two striped counters per epoch parity, one counted on the way in and one on the way
+ * out, so entering costs no contention either. Both only grow, which makes a non-atomic {@code sum()} safe to
+ * compare: read "out" first, then "in"; if they are equal, every writer that had entered by the first read had
+ * also left. (One counter incremented and decremented can't be read that way: a sum taken across its cells
+ * while writers come and go can be zero with a writer still inside.)
+ */
+@Component
+public class SettlementLedger {
+
+    /** Decimals kept: amounts with more are refused rather than rounded. */
+    public static final int SCALE = 4;
+    /** Account of payments that carry no merchantId. */
+    public static final String NO_MERCHANT = "anonymous";
+
+    private record Key(String merchantId, String currency) {
+    }
+
+    private static final class Account {
+        final Key key;
+        // per epoch parity: the open epoch's writers add here
+        final LongAdder[] units = {new LongAdder(), new LongAdder()};
+        final LongAdder[] count = {new LongAdder(), new LongAdder()};
+        // everything up to the last snapshot; written under the ledger's monitor only
+        volatile long settledUnits;
+        volatile long settledCount;
+        // odd while a snapshot moves an epoch into the settled totals, so balances() can read without the monitor
+        volatile long folds;
+
+        Account(Key key) {
+            this.key = key;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Account> accounts = new ConcurrentHashMap<>();
+    // writers that entered / left each epoch parity, ever: equal means nobody is inside
+    private final LongAdder[] entered = {new LongAdder(), new LongAdder()};
+    private final LongAdder[] left = {new LongAdder(), new LongAdder()};
+    private volatile long epoch = 0;
+    private final LongAdder refused = new LongAdder();
+
+    /**
+     * Adds a SUCCESS payment to its merchant's balance; anything else is ignored.
+     * Returns false for an amount that doesn't fit {@link #SCALE} decimals: it is counted in
+     * {@link #refused()} instead, and never fails the caller's charge path.
+     */
+    public boolean record(Payment payment) {
+        if (payment.status() != PaymentStatus.SUCCESS) return false;
+        long units;
+        try {
+            units = payment.amount().setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            refused.increment();
+            return false;
+        }
+        Account account = account(payment.merchantId(), payment.currency());
+        while (true) {
+            long e = epoch;
+            int parity = (int) (e & 1);
+            entered[parity].increment();
+            // re-read after registering: a snapshot that moved on meanwhile may already be folding this parity
+            if (epoch == e) {
+                account.units[parity].add(units);
+                account.count[parity].increment();
+                left[parity].increment();
+                return true;
+            }
+            left[parity].increment();
+        }
+    }
+
+    private Account account(String merchantId, String currency) {
+        var key = new Key(merchantId != null ? merchantId : NO_MERCHANT, currency);
+        Account account = accounts.get(key); // present almost always: skip computeIfAbsent's bin lock
+        return account != null ? account : accounts.computeIfAbsent(key, Account::new);
+    }
+
+    /** Consistent totals of every account, sorted by merchant and currency. */
+    public synchronized LedgerSnapshot snapshot() {
+        long closed = epoch;
+        int parity = (int) (closed & 1);
+        epoch = closed + 1;
+        // writers registered before the move finish their two adds; later ones see the new epoch and go there
+        for (int spins = 0; !quiescent(parity); spins++) {
+            if (spins < 1_000) Thread.onSpinWait();
+            else Thread.yield(); // a writer was descheduled mid-add
+        }
+
+        List<LedgerSnapshot.Balance> balances = new ArrayList<>(accounts.size());
+        for (Account a : accounts.values()) {
+            a.folds++;
+            a.settledUnits += a.units[parity].sumThenReset();
+            a.settledCount += a.count[parity].sumThenReset();
+            a.folds++;
+            balances.add(balance(a.key, a.settledUnits, a.settledCount));
+        }
+        balances.sort(Comparator.comparing(LedgerSnapshot.Balance::merchantId)
+                .thenComparing(LedgerSnapshot.Balance::currency));
+        return new LedgerSnapshot(closed + 1, Instant.now(), balances, refused.sum());
+    }
+
+    // exit count first: see the class comment
+    private boolean quiescent(int parity) {
+        long out = left[parity].sum();
+        return entered[parity].sum() == out;
+    }
+
+    /**
+     * One merchant's totals right now, without a snapshot and without waiting for one: each account is exact
+     * up to the charges still being added, but accounts are not cut at the same instant. Empty if the merchant
+     * has none.
+     */
+    public List<LedgerSnapshot.Balance> balances(String merchantId) {
+        List<LedgerSnapshot.Balance> balances = new ArrayList<>();
+        for (Account a : accounts.values()) {
+            if (!a.key.merchantId().equals(merchantId)) continue;
+            long units, count, folds;
+            do { // retried only if a snapshot was moving this account's totals meanwhile
+                folds = a.folds;
+                units = a.settledUnits + a.units[0].sum() + a.units[1].sum();
+                count = a.settledCount + a.count[0].sum() + a.count[1].sum();
+            } while ((folds & 1) != 0 || a.folds != folds);
+            balances.add(balance(a.key, units, count));
+        }
+        balances.sort(Comparator.comparing(LedgerSnapshot.Balance::currency));
+        return balances;
+    }
+
+    /** Successful payments left out because their amount had more than {@link #SCALE} decimals. */
+    public long refused() {
+        return refused.sum();
+    }
+
+    private static LedgerSnapshot.Balance balance(Key key, long units, long count) {
+        BigDecimal amount = BigDecimal.valueOf(units, SCALE).stripTrailingZeros();
+        if (amount.scale() < 0) amount = amount.setScale(0); // 1000, not 1E+3, in JSON
+        return new LedgerSnapshot.Balance(key.merchantId(), key.currency(), amount, count);
+    }
+}
@@ -0,0 +1,122 @@
+package com.paymentflow.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What a run measured, in microseconds, from any number of threads.
+ * <ul>
+ *   <li>response time: POST completion minus the time the request was <em>supposed</em> to start. A server
+ *   stall delays every request queued behind it, and each of those delays is counted, so the percentiles
+ *   are corrected for coordinated omission;</li>
+ *   <li>service time: POST completion minus the time it was actually sent (what most tools report);</li>
+ *   <li>settlement: from the intended POST start until a status poll saw SUCCESS or FAILED.</li>
+ * </ul>
+ */
+final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Recorder response = new Recorder(3);
+    private final Recorder service = new Recorder(3);
+    private final Recorder settlement = new Recorder(3);
+
+    final LongAdder sent = new LongAdder();
+    final LongAdder accepted = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder succeeded = new LongAdder();
+    final LongAdder unsettled = new LongAdder();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    void recordResponse(long intendedStartNanos, long sentNanos, long doneNanos) {
+        response.recordValue(micros(doneNanos - intendedStartNanos));
+        service.recordValue(micros(doneNanos - sentNanos));
+    }
+
+    /**
+     * Closed loop without a pacing target has no schedule to measure from; HdrHistogram back-fills the
+     * samples a stalled client could not send, assuming one request per {@code expectedIntervalNanos}
+     * (0 = unknown, recorded uncorrected).
+     */
+    void recordResponseWithExpectedInterval(long sentNanos, long doneNanos, long expectedIntervalNanos) {
+        long micros = micros(doneNanos - sentNanos);
+        long expectedMicros = micros(expectedIntervalNanos);
+        if (expectedMicros > 0) response.recordValueWithExpectedInterval(micros, expectedMicros);
+        else response.recordValue(micros);
+        service.recordValue(micros);
+    }
+
+    void recordSettled(long intendedStartNanos, long doneNanos, String status, String message) {
+        settlement.recordValue(micros(doneNanos - intendedStartNanos));
+        if ("SUCCESS".equals(status)) succeeded.increment();
+        else failures.computeIfAbsent(message == null || message.isBlank() ? "?" : message, m -> new LongAdder()).increment();
+    }
+
+    /** Prints the summary and, if {@code hgrmDir} is set, the full distributions. Call once, at the end. */
+    void print(PrintStream out, LoadTestOptions options, long measuredNanos, Path hgrmDir) throws IOException {
+        Histogram responses = response.getIntervalHistogram();
+        Histogram services = service.getIntervalHistogram();
+        Histogram settlements = settlement.getIntervalHistogram();
+        double seconds = measuredNanos / 1e9;
+
+        out.println();
+        out.printf("%s loop, %s, %ds after %ds warmup, seed %d%n", options.mode(),
+                options.openLoop() ? String.format("%.0f req/s (%s arrivals)", options.rate(), options.arrival())
+                        : options.concurrency() + " clients" + (options.rate() > 0 ? String.format(", paced to %.0f req/s", options.rate()) : ""),
+                options.duration().toSeconds(), options.warmup().toSeconds(), options.seed());
+        out.printf("sent %d (%.1f/s), accepted %d, rejected (429) %d, errors %d%n",
+                sent.sum(), sent.sum() / seconds, accepted.sum(), rejected.sum(), errors.sum());
+        out.printf("%-28s %9s %9s %9s %9s %9s   (ms)%n", "", "p50", "p90", "p99", "p99.9", "max");
+        row(out, "POST response time (CO-corr)", responses);
+        row(out, "POST service time", services);
+        row(out, "settlement", settlements);
+        if (options.settleVia().equals("poll")) {
+            out.printf("settlement resolution: poll every %d ms%n", options.pollInterval().toMillis());
+        }
+        long failed = failures.values().stream().mapToLong(LongAdder::sum).sum();
+        out.printf("settled: SUCCESS %d, FAILED %d, unsettled after %ds %d%n",
+                succeeded.sum(), failed, options.settleTimeout().toSeconds(), unsettled.sum());
+        failures.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .limit(5)
+                .forEach(e -> out.printf("  FAILED %-40s %d%n", e.getKey(), e.getValue().sum()));
+
+        if (hgrmDir != null) {
+            Files.createDirectories(hgrmDir);
+            write(hgrmDir.resolve("response.hgrm"), responses);
+            write(hgrmDir.resolve("service.hgrm"), services);
+            write(hgrmDir.resolve("settlement.hgrm"), settlements);
+            out.println("distributions written to " + hgrmDir.toAbsolutePath());
+        }
+    }
+
+    private static void row(PrintStream out, String label, Histogram h) {
+        if (h.getTotalCount() == 0) {
+            out.printf("%-28s %9s%n", label, "-");
+            return;
+        }
+        out.printf("%-28s", label);
+        for (double p : PERCENTILES) out.printf(" %9.2f", h.getValueAtPercentile(p) / 1000.0);
+        out.printf(" %9.2f%n", h.getMaxValue() / 1000.0);
+    }
+
+    private static void write(Path file, Histogram h) throws IOException {
+        try (var out = new PrintStream(Files.newOutputStream(file))) {
+            h.outputPercentileDistribution(out, 1000.0); // microseconds -> milliseconds
+        }
+    }
+
+    private static long micros(long nanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+}
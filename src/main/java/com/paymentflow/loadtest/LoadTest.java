@@ -0,0 +1,181 @@
+package com.paymentflow.loadtest;
+
+import com.paymentflow.PaymentFlowApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for the payment API: drives {@code POST /api/payments}, polls every accepted payment until
+ * it settles and prints response-time and settlement percentiles.
+ * <pre>
+ * mvn compile exec:java -Dexec.mainClass=com.paymentflow.loadtest.LoadTest \
+ *     -Dexec.args="--mode open --rate 300 --duration 60s --payment.rate-limit.enabled=false"
+ * </pre>
+ * Without {@code --url} the application is started in this JVM on a random port, so a run needs nothing
+ * else; dotted options configure it, including the simulated gateways
+ * ({@code --payment.gateway.simulation.stripe.distribution=lognormal ...}). With {@code --url} a separately
+ * started instance is driven and its resources are not shared with the generator.
+ * <p>
+ * Open loop sends on a fixed schedule whatever the server does, like real independent customers. Closed loop
+ * runs N clients that each wait for their answer, which is how a server under test hides its stalls: the
+ * clients just stop sending. Both measure from the scheduled start, see {@link LoadReport}.
+ */
+public final class LoadTest {
+
+    private final LoadTestOptions options;
+    private final PaymentClient client;
+    private final LoadReport report = new LoadReport();
+    private final SettlementTracker settlements;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private LoadTest(LoadTestOptions options, PaymentClient client, ScheduledExecutorService timer) {
+        this.options = options;
+        this.client = client;
+        this.settlements = new SettlementTracker(client, timer, report, options.settleVia(),
+                options.pollInterval(), options.settleTimeout());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext app = null;
+        URI url = options.url();
+        if (url == null) {
+            List<String> appArgs = new ArrayList<>(options.appArgs());
+            appArgs.add("--server.port=0");
+            // the report is the output: keep the application's startup and request logging out of it
+            if (appArgs.stream().noneMatch(a -> a.startsWith("--logging.level.root="))) appArgs.add("--logging.level.root=WARN");
+            app = SpringApplication.run(PaymentFlowApplication.class, appArgs.toArray(String[]::new));
+            url = URI.create("http://localhost:" + app.getEnvironment().getProperty("local.server.port"));
+        } else if (!options.appArgs().isEmpty()) {
+            System.err.println("ignored with --url (configure that instance instead): " + options.appArgs());
+        }
+
+        ScheduledExecutorService timer = Executors.newScheduledThreadPool(2);
+        try (var client = new PaymentClient(url, options)) {
+            var test = new LoadTest(options, client, timer);
+            long measured = options.openLoop() ? test.openLoop() : test.closedLoop();
+            test.awaitCompletion();
+            test.report.print(System.out, options, measured, options.hgrmDir());
+        } finally {
+            timer.shutdownNow();
+            if (app != null) app.close();
+        }
+    }
+
+    /** Sends on schedule from one dispatcher thread; a late dispatch still measures from the schedule. */
+    private long openLoop() {
+        var random = new SplittableRandom(options.seed());
+        double meanGapNanos = 1e9 / options.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+
+        double intended = start;
+        while (intended < end) {
+            long due = (long) intended;
+            for (long now = System.nanoTime(); now < due; now = System.nanoTime()) LockSupport.parkNanos(due - now);
+            send(random, due, due >= measureFrom);
+            intended += options.arrival().equals("poisson") ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+        }
+        return end - measureFrom;
+    }
+
+    private void send(SplittableRandom random, long intendedStart, boolean measured) {
+        inFlight.incrementAndGet();
+        long sentAt = System.nanoTime();
+        client.create(random).whenComplete((r, e) -> {
+            long done = System.nanoTime();
+            if (measured) {
+                report.recordResponse(intendedStart, sentAt, done);
+                count(r, e, intendedStart);
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    /**
+     * N clients on virtual threads, each with its own seeded random. With {@code --rate} every client
+     * follows its share of the schedule; without, it sends as soon as it has its answer.
+     */
+    private long closedLoop() throws InterruptedException {
+        int clients = options.concurrency();
+        long gapNanos = options.rate() > 0 ? (long) (1e9 * clients / options.rate()) : 0;
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+
+        var seeds = new SplittableRandom(options.seed());
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            var random = seeds.split();
+            long offset = gapNanos * c / clients; // spread the clients over one gap
+            threads.add(Thread.ofVirtual().name("loadtest-client-" + c)
+                    .start(() -> runClient(random, start + offset, gapNanos, measureFrom, end)));
+        }
+        for (Thread t : threads) t.join();
+        return end - measureFrom;
+    }
+
+    private void runClient(SplittableRandom random, long first, long gapNanos, long measureFrom, long end) {
+        long warmupNanos = 0, warmupCount = 0;
+        for (long intended = first; intended < end; intended += gapNanos) {
+            if (gapNanos > 0) {
+                for (long now = System.nanoTime(); now < intended; now = System.nanoTime()) LockSupport.parkNanos(intended - now);
+            }
+            long sentAt = System.nanoTime();
+            if (gapNanos == 0) intended = sentAt; // unpaced: the schedule is "right after the last answer"
+            CompletableFuture<PaymentClient.Response> call = client.create(random);
+            PaymentClient.Response r = null;
+            Throwable error = null;
+            try {
+                r = call.join();
+            } catch (RuntimeException e) {
+                error = e.getCause() != null ? e.getCause() : e;
+            }
+            long done = System.nanoTime();
+            if (intended < measureFrom) {
+                warmupNanos += done - sentAt;
+                warmupCount++;
+                continue;
+            }
+            if (gapNanos > 0) {
+                report.recordResponse(intended, sentAt, done);
+            } else {
+                // no schedule to measure from: assume the pace seen during warmup was the intended one
+                long expected = warmupCount == 0 ? 0 : warmupNanos / warmupCount;
+                report.recordResponseWithExpectedInterval(sentAt, done, expected);
+            }
+            count(r, error, intended);
+        }
+    }
+
+    private void count(PaymentClient.Response r, Throwable error, long intendedStart) {
+        report.sent.increment();
+        if (error != null) {
+            report.errors.increment();
+        } else if (r.code() == 202) {
+            report.accepted.increment();
+            settlements.track(r.paymentId(), intendedStart);
+        } else if (r.code() == 429) {
+            report.rejected.increment();
+        } else {
+            report.errors.increment();
+        }
+    }
+
+    private void awaitCompletion() throws InterruptedException {
+        long deadline = System.nanoTime() + options.settleTimeout().toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) Thread.sleep(10);
+        settlements.awaitSettled(options.settleTimeout());
+    }
+}
@@ -0,0 +1,105 @@
+package com.paymentflow.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line of {@link LoadTest}: {@code --name=value} or {@code --name value}. Dotted names
+ * ({@code --payment.learning.queue=ring}) are not ours and go to the embedded application.
+ *
+ * @param url           running instance to drive; null = start one in-process on a random port
+ * @param mode          open (constant arrival rate) | closed (fixed number of clients)
+ * @param rate          open: arrivals per second | closed: total pacing target, 0 = as fast as answered
+ * @param concurrency   closed: number of clients
+ * @param arrival       open: uniform (fixed gaps) | poisson (exponential gaps, same mean)
+ * @param seed          drives arrival gaps and the request mix, so two runs send the same sequence
+ * @param settleVia     await (long poll on /{id}/result, told the moment it settles) | poll (GET /{id} every pollInterval)
+ * @param pollInterval  poll: how often an accepted payment's status is read; settlement time is this precise
+ * @param settleTimeout an accepted payment not terminal after this long counts as unsettled
+ * @param apiKeys       X-Api-Key values (rate-limit tenants, sent as merchantId too) rotated over, 0 = no header
+ * @param hgrmDir       if set, percentile distributions are written there (HdrHistogram plotter format)
+ * @param appArgs       forwarded to the embedded application
+ */
+record LoadTestOptions(URI url, String mode, double rate, int concurrency, Duration duration, Duration warmup,
+                       String arrival, long seed, List<String> methods, List<String> currencies,
+                       String settleVia, Duration pollInterval, Duration settleTimeout, int apiKeys, Path hgrmDir,
+                       List<String> appArgs) {
+
+    LoadTestOptions {
+        if (!mode.equals("open") && !mode.equals("closed")) throw new IllegalArgumentException("mode must be open or closed");
+        if (!arrival.equals("uniform") && !arrival.equals("poisson")) throw new IllegalArgumentException("arrival must be uniform or poisson");
+        if (mode.equals("open") && rate <= 0) throw new IllegalArgumentException("open loop needs --rate > 0");
+        if (!settleVia.equals("await") && !settleVia.equals("poll")) throw new IllegalArgumentException("settle-via must be await or poll");
+        if (concurrency <= 0) throw new IllegalArgumentException("concurrency must be > 0");
+        if (methods.isEmpty() || currencies.isEmpty()) throw new IllegalArgumentException("methods and currencies must not be empty");
+    }
+
+    boolean openLoop() {
+        return mode.equals("open");
+    }
+
+    static LoadTestOptions parse(String... args) {
+        URI url = null;
+        String mode = "open", arrival = "uniform", settleVia = "await";
+        double rate = 100;
+        int concurrency = 16, apiKeys = 0;
+        Duration duration = Duration.ofSeconds(30), warmup = Duration.ofSeconds(5);
+        Duration pollInterval = Duration.ofMillis(20), settleTimeout = Duration.ofSeconds(30);
+        long seed = 42;
+        List<String> methods = List.of("stripe", "paypal", "card"), currencies = List.of("USD", "EUR", "GBP");
+        Path hgrmDir = null;
+        List<String> appArgs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + arg);
+            String name = arg.substring(2), value;
+            int eq = name.indexOf('=');
+            if (eq >= 0) {
+                value = name.substring(eq + 1);
+                name = name.substring(0, eq);
+            } else if (name.contains(".")) {
+                value = "true"; // a bare Spring flag
+            } else {
+                if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for --" + name);
+                value = args[++i];
+            }
+            if (name.contains(".")) {
+                appArgs.add("--" + name + "=" + value);
+                continue;
+            }
+            switch (name) {
+                case "url" -> url = URI.create(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+                case "mode" -> mode = value;
+                case "rate" -> rate = Double.parseDouble(value);
+                case "concurrency" -> concurrency = Integer.parseInt(value);
+                case "duration" -> duration = duration(value);
+                case "warmup" -> warmup = duration(value);
+                case "arrival" -> arrival = value;
+                case "seed" -> seed = Long.parseLong(value);
+                case "methods" -> methods = List.of(value.split(","));
+                case "currencies" -> currencies = List.of(value.split(","));
+                case "settle-via" -> settleVia = value;
+                case "poll-interval" -> pollInterval = duration(value);
+                case "settle-timeout" -> settleTimeout = duration(value);
+                case "api-keys" -> apiKeys = Integer.parseInt(value);
+                case "hgrm" -> hgrmDir = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        return new LoadTestOptions(url, mode, rate, concurrency, duration, warmup, arrival, seed, methods,
+                currencies, settleVia, pollInterval, settleTimeout, apiKeys, hgrmDir, List.copyOf(appArgs));
+    }
+
+    // 250ms, 30s, 2m
+    static Duration duration(String value) {
+        String v = value.trim().toLowerCase();
+        if (v.endsWith("ms")) return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        if (v.endsWith("s")) return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+        if (v.endsWith("m")) return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+        throw new IllegalArgumentException("Duration needs a unit (ms, s, m): " + value);
+    }
+}
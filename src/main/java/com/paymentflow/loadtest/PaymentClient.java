@@ -0,0 +1,99 @@
+package com.paymentflow.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Non-blocking client for {@code /api/payments}, plus the request mix: every request is drawn from the
+ * caller's seeded random, so a given seed always produces the same payments in the same order.
+ */
+final class PaymentClient implements AutoCloseable {
+
+    /** What a POST or GET came back with; {@code paymentId}/{@code status} are null unless it parsed. */
+    record Response(int code, UUID paymentId, String status, String message) {
+        boolean terminal() {
+            return "SUCCESS".equals(status) || "FAILED".equals(status);
+        }
+    }
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient http;
+    private final ObjectMapper json = new ObjectMapper();
+    private final URI payments;
+    private final List<String> methods;
+    private final List<String> currencies;
+    private final int apiKeys;
+
+    PaymentClient(URI baseUrl, LoadTestOptions options) {
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        this.payments = URI.create(baseUrl + "/api/payments");
+        this.methods = options.methods();
+        this.currencies = options.currencies();
+        this.apiKeys = options.apiKeys();
+    }
+
+    /** POSTs the next payment of the mix; with api keys, each key is also the payment's merchant. */
+    CompletableFuture<Response> create(SplittableRandom random) {
+        String tenant = apiKeys > 0 ? "loadtest-" + random.nextInt(apiKeys) : null;
+        String body = "{\"amount\":" + random.nextInt(100, 100_000) / 100.0
+                + ",\"currency\":\"" + currencies.get(random.nextInt(currencies.size()))
+                + "\",\"method\":\"" + methods.get(random.nextInt(methods.size())) + "\""
+                + (tenant != null ? ",\"merchantId\":\"" + tenant + "\"}" : "}");
+        var request = HttpRequest.newBuilder(payments)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (tenant != null) request.header("X-Api-Key", tenant);
+        return send(request.build());
+    }
+
+    CompletableFuture<Response> status(UUID paymentId) {
+        return send(HttpRequest.newBuilder(URI.create(payments + "/" + paymentId)).timeout(REQUEST_TIMEOUT).GET().build());
+    }
+
+    /** Long poll: answers when the payment settles, or with its current status after {@code timeout}. */
+    CompletableFuture<Response> awaitResult(UUID paymentId, Duration timeout) {
+        var uri = URI.create(payments + "/" + paymentId + "/result?timeoutMs=" + timeout.toMillis());
+        return send(HttpRequest.newBuilder(uri).timeout(timeout.plus(REQUEST_TIMEOUT)).GET().build());
+    }
+
+    private CompletableFuture<Response> send(HttpRequest request) {
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(this::parse);
+    }
+
+    private Response parse(HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) return new Response(response.statusCode(), null, null, null);
+        try {
+            JsonNode node = json.readTree(response.body());
+            return new Response(response.statusCode(), UUID.fromString(node.path("paymentId").asText()),
+                    node.path("status").asText(), node.path("message").asText());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
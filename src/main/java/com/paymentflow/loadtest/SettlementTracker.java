@@ -0,0 +1,70 @@
+package com.paymentflow.loadtest;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Follows each accepted payment until it is SUCCESS or FAILED (or the settle timeout passes) and records how
+ * long that took from the intended POST start: by long poll, which the server answers the moment the
+ * payment settles, or by plain polling every {@code pollInterval}. Either way no thread waits per payment,
+ * so tens of thousands can be in flight.
+ */
+final class SettlementTracker {
+
+    private final PaymentClient client;
+    private final ScheduledExecutorService timer;
+    private final LoadReport report;
+    private final long pollNanos;
+    private final long timeoutNanos;
+    private final boolean longPoll;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    SettlementTracker(PaymentClient client, ScheduledExecutorService timer, LoadReport report,
+                      String settleVia, Duration pollInterval, Duration settleTimeout) {
+        this.client = client;
+        this.timer = timer;
+        this.report = report;
+        this.pollNanos = pollInterval.toNanos();
+        this.timeoutNanos = settleTimeout.toNanos();
+        this.longPoll = settleVia.equals("await");
+    }
+
+    void track(UUID paymentId, long intendedStartNanos) {
+        pending.incrementAndGet();
+        if (longPoll) poll(paymentId, intendedStartNanos);
+        else schedulePoll(paymentId, intendedStartNanos);
+    }
+
+    /** Waits for every tracked payment to settle or time out; the ones still open count as unsettled. */
+    void awaitSettled(Duration max) throws InterruptedException {
+        long deadline = System.nanoTime() + max.toNanos();
+        while (pending.get() > 0 && System.nanoTime() < deadline) Thread.sleep(50);
+        report.unsettled.add(pending.getAndSet(0));
+    }
+
+    private void schedulePoll(UUID paymentId, long intendedStartNanos) {
+        timer.schedule(() -> poll(paymentId, intendedStartNanos), pollNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void poll(UUID paymentId, long intendedStartNanos) {
+        var call = longPoll ? client.awaitResult(paymentId, Duration.ofNanos(timeoutNanos)) : client.status(paymentId);
+        call.whenComplete((r, e) -> {
+            long now = System.nanoTime();
+            if (e == null && r.terminal()) {
+                if (release()) report.recordSettled(intendedStartNanos, now, r.status(), r.message());
+            } else if (now - intendedStartNanos > timeoutNanos) {
+                if (release()) report.unsettled.increment();
+            } else {
+                schedulePoll(paymentId, intendedStartNanos); // still PROCESSING, or the call itself failed
+            }
+        });
+    }
+
+    // false once awaitSettled gave up on it: it was already counted as unsettled
+    private boolean release() {
+        return pending.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.paymentflow.model;
+
+import java.util.UUID;
+
+/**
+ * One line of a bulk submission's response: the outcome for the item at {@code index} (0-based) of the
+ * request body. {@code paymentId} is null when the item was rejected before a payment was created.
+ */
+public record BulkItemResult(
+        int index,
+        UUID paymentId,
+        PaymentStatus status,
+        String message
+) {
+    public static BulkItemResult of(int index, PaymentResult result) {
+        return new BulkItemResult(index, result.paymentId(), result.status(), result.message());
+    }
+
+    public static BulkItemResult rejected(int index, String reason) {
+        return new BulkItemResult(index, null, PaymentStatus.FAILED, reason);
+    }
+}
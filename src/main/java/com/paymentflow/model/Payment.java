@@ -12,18 +12,24 @@ public record Payment(
         String method,
         PaymentStatus status,
         Instant createdAt,
-        String failureReason
+        String failureReason,
+        String merchantId // null = no merchant given
 ) {
+    public Payment(UUID id, BigDecimal amount, String currency, String method, PaymentStatus status,
+                   Instant createdAt, String failureReason) {
+        this(id, amount, currency, method, status, createdAt, failureReason, null);
+    }
+
     public Payment withStatus(PaymentStatus newStatus) {
-        return new Payment(id, amount, currency, method, newStatus, createdAt, failureReason);
+        return new Payment(id, amount, currency, method, newStatus, createdAt, failureReason, merchantId);
     }
 
     public Payment withFailure(String reason) {
-        return new Payment(id, amount, currency, method, PaymentStatus.FAILED, createdAt, reason);
+        return new Payment(id, amount, currency, method, PaymentStatus.FAILED, createdAt, reason, merchantId);
     }
 
     public Payment succeed() {
-        return new Payment(id, amount, currency, method, PaymentStatus.SUCCESS, createdAt, null);
+        return new Payment(id, amount, currency, method, PaymentStatus.SUCCESS, createdAt, null, merchantId);
     }
 
 }
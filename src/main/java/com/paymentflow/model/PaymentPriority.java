@@ -0,0 +1,14 @@
+package com.paymentflow.model;
+
+/**
+ * Scheduling class of a payment waiting for a worker. Classes share the workers by weight
+ * ({@code payment.learning.fair.*-weight}), so a lower class is slowed down, never starved.
+ */
+public enum PaymentPriority {
+    /** A customer is waiting at checkout: the default for single payments. */
+    CHECKOUT,
+    /** Merchant-initiated, nobody waiting on it: the default for bulk uploads. */
+    PAYOUT,
+    /** A payment being re-attempted, e.g. resumed after a restart; first attempts go ahead of it. */
+    RETRY
+}
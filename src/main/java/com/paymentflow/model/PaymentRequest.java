@@ -1,5 +1,6 @@
 package com.paymentflow.model;
 
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -11,9 +12,14 @@ import java.math.BigDecimal;
  * Request payload for creating a payment.
  */
 public record PaymentRequest(
-        @NotNull @Min(1) BigDecimal amount,
+        @NotNull @Min(1) @Digits(integer = 14, fraction = 4) BigDecimal amount, // fits the stores' fixed-point encoding
         @NotBlank String currency,
         @NotBlank String method,          // "stripe" or "paypal" (for now)
-        String idempotencyKey             // optional for Sprint 1
+        String idempotencyKey,            // optional for Sprint 1
+        String merchantId,                // optional: fair-share tenant and ledger account; null = anonymous
+        PaymentPriority priority          // optional: CHECKOUT, or PAYOUT for bulk uploads
 ) {
+    public PaymentRequest(BigDecimal amount, String currency, String method, String idempotencyKey) {
+        this(amount, currency, method, idempotencyKey, null, null);
+    }
 }
@@ -21,4 +21,9 @@ public record PaymentResult(
     public static PaymentResult failed(UUID id, String reason) {
         return new PaymentResult(id, PaymentStatus.FAILED, reason);
     }
+
+    /** A stored payment as the status endpoints report it. */
+    public static PaymentResult of(Payment payment) {
+        return new PaymentResult(payment.id(), payment.status(), payment.failureReason());
+    }
 }
\ No newline at end of file
@@ -4,5 +4,14 @@ public enum PaymentStatus {
     PENDING,
     PROCESSING,
     SUCCESS,
-    FAILED
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == SUCCESS || this == FAILED;
+    }
+
+    // Status only moves forward (PENDING → PROCESSING → SUCCESS | FAILED); a terminal status is final
+    public boolean canTransitionTo(PaymentStatus next) {
+        return !isTerminal() && next.ordinal() >= ordinal();
+    }
 }
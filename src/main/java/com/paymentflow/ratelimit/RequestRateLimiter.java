@@ -0,0 +1,94 @@
+package com.paymentflow.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control at the HTTP edge: one global bucket plus one bucket per API key (tenant).
+ * Checked before a payment is created, so an overloaded service answers 429 in microseconds
+ * instead of parking a tomcat thread on a full queue.
+ * <p>
+ * At most {@code maxKeys} tenant buckets are kept. Each new key past that evicts an old one, preferring
+ * buckets that have refilled (dropping a full bucket is the same as recreating it later), so a flood of
+ * one-off keys costs a few queue polls per request and never grows the map.
+ */
+@Component
+public class RequestRateLimiter {
+
+    private static final int EVICTION_PROBES = 4;
+
+    private final boolean enabled;
+    private final TokenBucket global;
+    private final double perKeyRate;
+    private final int perKeyBurst;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, TokenBucket> perKey = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger keys = new AtomicInteger();
+
+    public RequestRateLimiter(@Value("${payment.rate-limit.enabled:true}") boolean enabled,
+                              @Value("${payment.rate-limit.global-per-second:500}") double globalRate,
+                              @Value("${payment.rate-limit.global-burst:100}") int globalBurst,
+                              @Value("${payment.rate-limit.per-key-per-second:50}") double perKeyRate,
+                              @Value("${payment.rate-limit.per-key-burst:20}") int perKeyBurst,
+                              @Value("${payment.rate-limit.max-keys:10000}") int maxKeys) {
+        this.enabled = enabled;
+        this.global = new TokenBucket(globalRate, globalBurst);
+        this.perKeyRate = perKeyRate;
+        this.perKeyBurst = perKeyBurst;
+        this.maxKeys = Math.max(1, maxKeys);
+    }
+
+    /**
+     * Takes a token for this request.
+     *
+     * @param apiKey tenant key, or null for anonymous callers (global bucket only)
+     * @return 0 if admitted, otherwise nanoseconds until the caller may retry
+     */
+    public long tryAcquire(String apiKey) {
+        if (!enabled) return 0;
+        if (apiKey == null || apiKey.isBlank()) return global.tryAcquire();
+        // tenant first: a noisy tenant that is over its own quota must not drain the shared bucket
+        TokenBucket tenant = bucketFor(apiKey);
+        long wait = tenant.tryAcquire();
+        if (wait > 0) return wait;
+        wait = global.tryAcquire();
+        if (wait > 0) tenant.refund(); // refused anyway: don't charge the tenant for it
+        return wait;
+    }
+
+    private TokenBucket bucketFor(String apiKey) {
+        TokenBucket bucket = perKey.get(apiKey);
+        if (bucket != null) return bucket;
+        TokenBucket created = new TokenBucket(perKeyRate, perKeyBurst);
+        bucket = perKey.putIfAbsent(apiKey, created);
+        if (bucket != null) return bucket;
+        insertionOrder.add(apiKey);
+        if (keys.incrementAndGet() > maxKeys) evictOne();
+        return created;
+    }
+
+    // oldest first; a bucket still in use goes to the back of the line unless every probe finds one busy
+    private void evictOne() {
+        for (int probe = 1; ; probe++) {
+            String eldest = insertionOrder.poll();
+            if (eldest == null) return;
+            TokenBucket bucket = perKey.get(eldest);
+            if (bucket != null && !bucket.isIdle() && probe < EVICTION_PROBES) {
+                insertionOrder.add(eldest);
+                continue;
+            }
+            if (bucket != null && perKey.remove(eldest, bucket)) keys.decrementAndGet();
+            return;
+        }
+    }
+
+    /** Tenant buckets currently held. */
+    public int trackedKeys() {
+        return perKey.size();
+    }
+}
@@ -0,0 +1,63 @@
+package com.paymentflow.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket: {@code ratePerSecond} tokens refill continuously, at most {@code burst} are stored.
+ * <p>
+ * Stored as a single "theoretical arrival time" (GCRA): the instant the bucket would be full again.
+ * Taking a token pushes it one emission interval ({@code 1s / rate}) into the future; the request is
+ * refused when that would put it more than {@code burst} intervals ahead of now. One CAS per call,
+ * no refill thread, no lock.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;  // time to earn one token
+    private final long toleranceNanos; // how far ahead of now the bucket may run: burst - 1 tokens
+    private final LongSupplier nanoClock;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        this(ratePerSecond, burst, System::nanoTime);
+    }
+
+    public TokenBucket(double ratePerSecond, int burst, LongSupplier nanoClock) {
+        if (ratePerSecond <= 0) throw new IllegalArgumentException("ratePerSecond must be > 0");
+        if (burst <= 0) throw new IllegalArgumentException("burst must be > 0");
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.nanoClock = nanoClock;
+        this.fullAt = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Takes one token if available.
+     *
+     * @return 0 when a token was taken, otherwise how many nanoseconds until one will be
+     */
+    public long tryAcquire() {
+        long now = nanoClock.getAsLong();
+        while (true) {
+            long current = fullAt.get();
+            long start = current - now < 0 ? now : current; // an idle bucket is full, not "in credit"
+            long ahead = start - now;
+            if (ahead > toleranceNanos) {
+                return ahead - toleranceNanos;
+            }
+            if (fullAt.compareAndSet(current, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /** Gives back a token taken by {@link #tryAcquire} when the request was refused further on. */
+    public void refund() {
+        fullAt.addAndGet(-intervalNanos); // falling behind now just reads as full, see tryAcquire
+    }
+
+    /** True when the bucket has refilled completely, i.e. nobody used it for a while. */
+    public boolean isIdle() {
+        return fullAt.get() - nanoClock.getAsLong() <= 0;
+    }
+}
@@ -0,0 +1,307 @@
+package com.paymentflow.repository;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Compact storage mode for retaining large volumes of payments.
+ * <p>
+ * Records are stored column-wise in chunks of primitive arrays instead of one object graph per payment:
+ * <pre>
+ *  id            2 × long   (UUID msb/lsb)
+ *  amount        long + byte (unscaled value + scale)
+ *  createdAt     long       (epoch micros)
+ *  status        byte       (enum ordinal)
+ *  currency      short      (interned ordinal, -1 = in the overflow column)
+ *  method        short      (interned ordinal, -1 = in the overflow column)
+ *  failureReason int        (interned ordinal, 0 = null)
+ *  merchantId    int        (interned ordinal, 0 = null)
+ * </pre>
+ * About 48 bytes per record plus 8-16 bytes of open-addressing id index, versus several hundred bytes for a
+ * {@link Payment} with its UUID, BigDecimal, Strings and Instant. The GC sees a few hundred large arrays
+ * instead of tens of millions of small objects. {@code Payment} objects are only built on read.
+ * <p>
+ * Currency and method come from clients. Past 32,767 distinct values their dictionaries stop growing and a
+ * new value is kept as a plain string, in an overflow column whose chunks only exist once they are needed.
+ * <p>
+ * Trade-offs against {@link InMemoryPaymentRepository}: writes take one exclusive lock, createdAt is
+ * truncated to microseconds, and {@link #findByStatus} is a dense scan over the status column.
+ */
+public class CompactPaymentRepository implements PaymentRepository {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+
+    private final StampedLock lock = new StampedLock();
+
+    // columns, chunked so growing never copies existing records
+    private long[][] idHi = new long[0][];
+    private long[][] idLo = new long[0][];
+    private long[][] unscaled = new long[0][];
+    private byte[][] scale = new byte[0][];
+    private long[][] createdMicros = new long[0][];
+    private byte[][] status = new byte[0][];
+    private short[][] currency = new short[0][];
+    private short[][] method = new short[0][];
+    private int[][] reason = new int[0][];
+    private int[][] merchant = new int[0][];
+    // the values of full dictionaries; a chunk stays null until one of its records needs it
+    private String[][] currencyText = new String[0][];
+    private String[][] methodText = new String[0][];
+    private int size = 0;
+
+    private final StringDictionary currencies = new StringDictionary(Short.MAX_VALUE);
+    private final StringDictionary methods = new StringDictionary(Short.MAX_VALUE);
+    // int ordinals: a List cannot hold enough values to overflow these
+    private final StringDictionary reasons = new StringDictionary(Integer.MAX_VALUE - 1);
+    private final StringDictionary merchants = new StringDictionary(Integer.MAX_VALUE - 1);
+
+    // open-addressing id index
+    private int[] index = new int[1 << 10];
+
+    @Override
+    public Payment save(Payment payment) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = lookup(payment.id());
+            if (slot < 0) {
+                slot = append(payment);
+                indexPut(payment.id(), slot);
+                return payment;
+            }
+            PaymentStatus current = statusAt(slot);
+            if (!current.canTransitionTo(payment.status())) {
+                return materialize(slot);
+            }
+            update(slot, payment);
+            return payment;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Optional<Payment> findById(UUID id) {
+        long stamp = lock.readLock();
+        try {
+            int slot = lookup(id);
+            return slot < 0 ? Optional.empty() : Optional.of(materialize(slot));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean compareAndSetStatus(UUID id, PaymentStatus expected, Payment next) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = lookup(id);
+            if (slot < 0 || statusAt(slot) != expected || !expected.canTransitionTo(next.status())) {
+                return false;
+            }
+            update(slot, next);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public List<Payment> findByStatus(PaymentStatus wanted, Instant createdBefore) {
+        byte code = (byte) wanted.ordinal();
+        // stored micros are truncated, so round the cutoff up to keep "strictly before" exact
+        long cutoff = toMicros(createdBefore) + (createdBefore.getNano() % 1_000 == 0 ? 0 : 1);
+        List<Payment> result = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            for (int slot = 0; slot < size; slot++) {
+                int c = slot >>> CHUNK_BITS, i = slot & CHUNK_MASK;
+                if (status[c][i] == code && createdMicros[c][i] < cutoff) {
+                    result.add(materialize(slot));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return result;
+    }
+
+    /** Visits records one chunk at a time so writers are never held off for the whole scan. */
+    @Override
+    public void forEach(Consumer<Payment> action) {
+        List<Payment> batch = new ArrayList<>(CHUNK_SIZE);
+        for (int from = 0; ; from += CHUNK_SIZE) {
+            long stamp = lock.readLock();
+            try {
+                if (from >= size) return;
+                int to = Math.min(size, from + CHUNK_SIZE);
+                for (int slot = from; slot < to; slot++) batch.add(materialize(slot));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            batch.forEach(action);
+            batch.clear();
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // ---- record encoding (caller holds the lock) ----
+
+    private int append(Payment p) {
+        int slot = size;
+        int c = slot >>> CHUNK_BITS, i = slot & CHUNK_MASK;
+        if (c == idHi.length) addChunk();
+        idHi[c][i] = p.id().getMostSignificantBits();
+        idLo[c][i] = p.id().getLeastSignificantBits();
+        createdMicros[c][i] = toMicros(p.createdAt());
+        merchant[c][i] = merchants.intern(p.merchantId()); // fixed at creation, like id and createdAt
+        encodeMutable(c, i, p);
+        size++;
+        return slot;
+    }
+
+    private void update(int slot, Payment p) {
+        encodeMutable(slot >>> CHUNK_BITS, slot & CHUNK_MASK, p);
+    }
+
+    private void encodeMutable(int c, int i, Payment p) {
+        BigDecimal amount = p.amount() == null ? BigDecimal.ZERO : p.amount();
+        if (amount.scale() < Byte.MIN_VALUE || amount.scale() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Amount scale out of range: " + amount);
+        }
+        unscaled[c][i] = amount.unscaledValue().longValueExact(); // > 18 digits is not a payment amount
+        scale[c][i] = (byte) amount.scale();
+        status[c][i] = (byte) p.status().ordinal();
+        currency[c][i] = (short) currencies.intern(p.currency());
+        spill(currencyText, c, i, currency[c][i], p.currency());
+        method[c][i] = (short) methods.intern(p.method());
+        spill(methodText, c, i, method[c][i], p.method());
+        reason[c][i] = reasons.intern(p.failureReason());
+    }
+
+    private Payment materialize(int slot) {
+        int c = slot >>> CHUNK_BITS, i = slot & CHUNK_MASK;
+        long micros = createdMicros[c][i];
+        return new Payment(
+                new UUID(idHi[c][i], idLo[c][i]),
+                BigDecimal.valueOf(unscaled[c][i], scale[c][i]),
+                currency[c][i] == StringDictionary.OVERFLOW ? currencyText[c][i] : currencies.get(currency[c][i]),
+                method[c][i] == StringDictionary.OVERFLOW ? methodText[c][i] : methods.get(method[c][i]),
+                STATUSES[status[c][i]],
+                micros == Long.MIN_VALUE ? null : Instant.EPOCH.plus(micros, ChronoUnit.MICROS),
+                reasons.get(reason[c][i]),
+                merchants.get(merchant[c][i])
+        );
+    }
+
+    // keeps a value its dictionary had no room for; clears a stale one when an update interned the value
+    private static void spill(String[][] text, int c, int i, int ordinal, String value) {
+        if (ordinal == StringDictionary.OVERFLOW) {
+            if (text[c] == null) text[c] = new String[CHUNK_SIZE];
+            text[c][i] = value;
+        } else if (text[c] != null) {
+            text[c][i] = null;
+        }
+    }
+
+    private PaymentStatus statusAt(int slot) {
+        return STATUSES[status[slot >>> CHUNK_BITS][slot & CHUNK_MASK]];
+    }
+
+    private void addChunk() {
+        int n = idHi.length + 1;
+        idHi = Arrays.copyOf(idHi, n);
+        idLo = Arrays.copyOf(idLo, n);
+        unscaled = Arrays.copyOf(unscaled, n);
+        scale = Arrays.copyOf(scale, n);
+        createdMicros = Arrays.copyOf(createdMicros, n);
+        status = Arrays.copyOf(status, n);
+        currency = Arrays.copyOf(currency, n);
+        method = Arrays.copyOf(method, n);
+        reason = Arrays.copyOf(reason, n);
+        merchant = Arrays.copyOf(merchant, n);
+        currencyText = Arrays.copyOf(currencyText, n);
+        methodText = Arrays.copyOf(methodText, n);
+        int c = n - 1;
+        idHi[c] = new long[CHUNK_SIZE];
+        idLo[c] = new long[CHUNK_SIZE];
+        unscaled[c] = new long[CHUNK_SIZE];
+        scale[c] = new byte[CHUNK_SIZE];
+        createdMicros[c] = new long[CHUNK_SIZE];
+        status[c] = new byte[CHUNK_SIZE];
+        currency[c] = new short[CHUNK_SIZE];
+        method[c] = new short[CHUNK_SIZE];
+        reason[c] = new int[CHUNK_SIZE];
+        merchant[c] = new int[CHUNK_SIZE];
+    }
+
+    private static long toMicros(Instant instant) {
+        if (instant == null) return Long.MIN_VALUE;
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    // ---- id index: linear probing over slot numbers, load factor <= 0.5 ----
+    // Only slot + 1 is stored (0 = empty); the id itself is compared against the id columns.
+
+    private int lookup(UUID id) {
+        long hi = id.getMostSignificantBits(), lo = id.getLeastSignificantBits();
+        int mask = index.length - 1;
+        for (int pos = hash(hi, lo) & mask; ; pos = (pos + 1) & mask) {
+            int s = index[pos] - 1;
+            if (s < 0) return -1;
+            int c = s >>> CHUNK_BITS, i = s & CHUNK_MASK;
+            if (idHi[c][i] == hi && idLo[c][i] == lo) return s;
+        }
+    }
+
+    private void indexPut(UUID id, int slot) {
+        if ((size << 1) > index.length) rehash();
+        insert(index, hash(id.getMostSignificantBits(), id.getLeastSignificantBits()), slot + 1);
+    }
+
+    private void rehash() {
+        int[] grown = new int[index.length << 1];
+        for (int entry : index) {
+            if (entry == 0) continue;
+            int s = entry - 1, c = s >>> CHUNK_BITS, i = s & CHUNK_MASK;
+            insert(grown, hash(idHi[c][i], idLo[c][i]), entry);
+        }
+        index = grown;
+    }
+
+    private static void insert(int[] table, int hash, int entry) {
+        int mask = table.length - 1;
+        int pos = hash & mask;
+        while (table[pos] != 0) pos = (pos + 1) & mask;
+        table[pos] = entry;
+    }
+
+    private static int hash(long hi, long lo) {
+        long h = hi ^ lo;
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return (int) h;
+    }
+}
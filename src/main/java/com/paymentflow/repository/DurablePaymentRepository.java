@@ -0,0 +1,175 @@
+package com.paymentflow.repository;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Makes any in-memory {@link PaymentRepository} durable: every accepted write (create and each status
+ * transition) is appended to a {@link PaymentWriteAheadLog}, and the log is replayed into the delegate
+ * on startup. A background task compacts the log into a snapshot periodically.
+ * <p>
+ * <b>Log first:</b> a write is appended (and with sync-commit made durable) before the delegate sees it. If
+ * the append throws, nothing changed in memory and the caller must treat the write as not done. The record
+ * may still reach the disk (an fsync wait that was interrupted), in which case it shows up after a restart,
+ * like any logged write. Writes to one payment hold one of {@value #STRIPES} locks, picked by id, from the
+ * transition check to the delegate update, so the log and the delegate see them in the same order.
+ */
+public class DurablePaymentRepository implements PaymentRepository, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DurablePaymentRepository.class);
+    private static final int STRIPES = 256;
+
+    private final PaymentRepository delegate;
+    private final PaymentWriteAheadLog wal;
+    private final ScheduledExecutorService compactor;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    private DurablePaymentRepository(PaymentRepository delegate, PaymentWriteAheadLog wal, long snapshotIntervalMillis) {
+        this.delegate = delegate;
+        this.wal = wal;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new ReentrantLock();
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        if (snapshotIntervalMillis > 0) {
+            compactor.scheduleWithFixedDelay(this::compact, snapshotIntervalMillis, snapshotIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Replays the log into {@code delegate} and returns the durable view over it. */
+    public static DurablePaymentRepository open(PaymentRepository delegate, PaymentWriteAheadLog.Options options,
+                                                long snapshotIntervalMillis) throws IOException {
+        var wal = PaymentWriteAheadLog.open(options, delegate::save);
+        return new DurablePaymentRepository(delegate, wal, snapshotIntervalMillis);
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        ReentrantLock stripe = stripe(payment.id());
+        stripe.lock();
+        try {
+            Payment current = delegate.findById(payment.id()).orElse(null);
+            if (!accepts(current, payment)) return current; // rejected transitions are not logged
+            wal.append(payment);
+            return delegate.save(payment);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // one WAL append (and with sync-commit one fsync wait) for the whole batch
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        // every stripe the batch touches, taken in index order so two batches can't deadlock
+        int[] held = payments.stream().mapToInt(p -> stripeIndex(p.id())).distinct().sorted().toArray();
+        for (int i : held) stripes[i].lock();
+        try {
+            Map<UUID, Payment> latest = new HashMap<>(); // the same id twice in a batch: check against the first
+            List<Payment> accepted = new ArrayList<>(payments.size());
+            List<Payment> stored = new ArrayList<>(payments.size());
+            for (Payment p : payments) {
+                Payment current = latest.containsKey(p.id())
+                        ? latest.get(p.id()) : delegate.findById(p.id()).orElse(null);
+                Payment outcome = accepts(current, p) ? p : current;
+                if (outcome == p) accepted.add(p);
+                latest.put(p.id(), outcome);
+                stored.add(outcome);
+            }
+            wal.appendAll(accepted);
+            for (Payment p : accepted) delegate.save(p);
+            return stored;
+        } finally {
+            for (int i : held) stripes[i].unlock();
+        }
+    }
+
+    @Override
+    public Optional<Payment> findById(UUID id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public boolean compareAndSetStatus(UUID id, PaymentStatus expected, Payment next) {
+        ReentrantLock stripe = stripe(id);
+        stripe.lock();
+        try {
+            Payment current = delegate.findById(id).orElse(null);
+            if (current == null || current.status() != expected || !expected.canTransitionTo(next.status())) {
+                return false;
+            }
+            wal.append(next);
+            return delegate.compareAndSetStatus(id, expected, next);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public List<Payment> findByStatus(PaymentStatus status, Instant createdBefore) {
+        return delegate.findByStatus(status, createdBefore);
+    }
+
+    @Override
+    public void forEach(Consumer<Payment> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public boolean durable() {
+        return true;
+    }
+
+    // group commit may be holding the last few records back: force them out now
+    @Override
+    public void flush() {
+        wal.sync();
+    }
+
+    /** Writes a snapshot of the current state and drops the log segments it replaces. */
+    public void compact() {
+        try {
+            wal.snapshot(delegate::forEach);
+        } catch (IOException e) {
+            // keep running on the uncompacted log; the next attempt may succeed
+            log.warn("WAL snapshot failed, keeping the uncompacted log", e);
+        }
+    }
+
+    // the delegate's own rule, checked before logging: a new payment, or a forward status transition
+    private static boolean accepts(Payment current, Payment next) {
+        return current == null || current.status().canTransitionTo(next.status());
+    }
+
+    private ReentrantLock stripe(UUID id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    private static int stripeIndex(UUID id) {
+        return (id.hashCode() & 0x7fffffff) % STRIPES;
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        wal.close();
+    }
+}
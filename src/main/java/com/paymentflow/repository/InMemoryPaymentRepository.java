@@ -1,24 +1,127 @@
 package com.paymentflow.repository;
 
 import com.paymentflow.model.Payment;
-import org.springframework.stereotype.Repository;
+import com.paymentflow.model.PaymentStatus;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
 
-@Repository
+/**
+ * Concurrent in-memory store.
+ * <ul>
+ *   <li>Primary index: {@code ConcurrentHashMap} by id, so findById stays O(1).</li>
+ *   <li>Status index: one concurrent set of ids per {@link PaymentStatus}.</li>
+ *   <li>Time index: ids grouped into {@code createdAt} buckets, ordered in a skip list.</li>
+ * </ul>
+ * Writes go through {@code store.compute}, which locks only that id's bin: the transition check
+ * and the status-index move happen atomically for the payment, while other ids proceed in parallel.
+ * Index readers re-check against the primary map, so a momentarily stale index entry is harmless.
+ */
 public class InMemoryPaymentRepository implements PaymentRepository {
+    private static final long DEFAULT_BUCKET_MILLIS = 1_000;
+
     private final Map<UUID, Payment> store = new ConcurrentHashMap<>();
+    private final Map<PaymentStatus, Set<UUID>> byStatus = new EnumMap<>(PaymentStatus.class);
+    private final ConcurrentNavigableMap<Long, Set<UUID>> byCreatedBucket = new ConcurrentSkipListMap<>();
+    private final long bucketMillis;
+
+    public InMemoryPaymentRepository() {
+        this(DEFAULT_BUCKET_MILLIS);
+    }
+
+    public InMemoryPaymentRepository(long bucketMillis) {
+        if (bucketMillis <= 0) throw new IllegalArgumentException("bucketMillis must be > 0");
+        this.bucketMillis = bucketMillis;
+        for (PaymentStatus s : PaymentStatus.values()) {
+            byStatus.put(s, ConcurrentHashMap.newKeySet());
+        }
+    }
 
     @Override
     public Payment save(Payment payment) {
-        return null;
+        return store.compute(payment.id(), (id, current) -> {
+            if (current == null) {
+                byStatus.get(payment.status()).add(id);
+                byCreatedBucket.computeIfAbsent(bucketOf(payment.createdAt()), b -> ConcurrentHashMap.newKeySet()).add(id);
+                return payment;
+            }
+            if (!current.status().canTransitionTo(payment.status())) {
+                return current; // e.g. late PROCESSING after SUCCESS: keep the terminal state
+            }
+            moveStatus(id, current.status(), payment.status());
+            return payment;
+        });
     }
 
     @Override
     public Optional<Payment> findById(UUID id) {
-        return Optional.empty();
+        return Optional.ofNullable(store.get(id));
+    }
+
+    @Override
+    public boolean compareAndSetStatus(UUID id, PaymentStatus expected, Payment next) {
+        boolean[] swapped = {false};
+        store.computeIfPresent(id, (k, current) -> {
+            if (current.status() != expected || !expected.canTransitionTo(next.status())) {
+                return current;
+            }
+            moveStatus(k, expected, next.status());
+            swapped[0] = true;
+            return next;
+        });
+        return swapped[0];
+    }
+
+    @Override
+    public List<Payment> findByStatus(PaymentStatus status, Instant createdBefore) {
+        Set<UUID> inStatus = byStatus.get(status);
+        Collection<Set<UUID>> olderBuckets = byCreatedBucket.headMap(bucketOf(createdBefore), true).values();
+
+        // walk whichever side is smaller, filter by the other predicate on the primary map
+        long olderCount = 0;
+        for (Set<UUID> bucket : olderBuckets) olderCount += bucket.size();
+
+        List<Payment> result = new ArrayList<>();
+        if (inStatus.size() <= olderCount) {
+            collect(inStatus, status, createdBefore, result);
+        } else {
+            for (Set<UUID> bucket : olderBuckets) collect(bucket, status, createdBefore, result);
+        }
+        return result;
+    }
+
+    @Override
+    public void forEach(Consumer<Payment> action) {
+        store.values().forEach(action);
+    }
+
+    private void collect(Set<UUID> ids, PaymentStatus status, Instant createdBefore, List<Payment> out) {
+        for (UUID id : ids) {
+            Payment p = store.get(id);
+            if (p != null && p.status() == status && p.createdAt().isBefore(createdBefore)) {
+                out.add(p);
+            }
+        }
+    }
+
+    private void moveStatus(UUID id, PaymentStatus from, PaymentStatus to) {
+        if (from == to) return;
+        byStatus.get(to).add(id);
+        byStatus.get(from).remove(id);
+    }
+
+    private long bucketOf(Instant createdAt) {
+        return Math.floorDiv(createdAt.toEpochMilli(), bucketMillis);
     }
 }
@@ -0,0 +1,121 @@
+package com.paymentflow.repository;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary framing for payment records in the write-ahead log and snapshots.
+ * <pre>
+ * frame   = length:int crc32c:int payload[length]
+ * payload = version:byte idMsb:long idLsb:long unscaled:long scale:byte
+ *           createdEpochSecond:long createdNano:int status:byte
+ *           currency:str method:str failureReason:str merchantId:str
+ * str     = byteLength:short (-1 = null) utf8[byteLength]
+ * </pre>
+ * A zero length marks the end of written data (mapped segments are zero-filled).
+ * Version 1 records (no merchantId) are still read, with a null merchant.
+ */
+final class PaymentRecordCodec {
+    static final int HEADER_BYTES = 8;
+    private static final byte VERSION = 2;
+    private static final byte VERSION_NO_MERCHANT = 1;
+    private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+
+    private PaymentRecordCodec() {
+    }
+
+    /** Returns a complete frame (header + payload) ready to be copied into the log. */
+    static ByteBuffer encode(Payment p) {
+        byte[] currency = utf8(p.currency());
+        byte[] method = utf8(p.method());
+        byte[] reason = utf8(p.failureReason());
+        byte[] merchant = utf8(p.merchantId());
+        BigDecimal amount = p.amount() == null ? BigDecimal.ZERO : p.amount();
+        int payloadLength = 1 + 8 + 8 + 8 + 1 + 8 + 4 + 1
+                + strLength(currency) + strLength(method) + strLength(reason) + strLength(merchant);
+
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payloadLength);
+        frame.position(HEADER_BYTES);
+        frame.put(VERSION);
+        frame.putLong(p.id().getMostSignificantBits());
+        frame.putLong(p.id().getLeastSignificantBits());
+        frame.putLong(amount.unscaledValue().longValueExact());
+        frame.put((byte) amount.scale());
+        Instant created = p.createdAt() == null ? Instant.EPOCH : p.createdAt();
+        frame.putLong(created.getEpochSecond());
+        frame.putInt(created.getNano());
+        frame.put((byte) p.status().ordinal());
+        putStr(frame, currency);
+        putStr(frame, method);
+        putStr(frame, reason);
+        putStr(frame, merchant);
+
+        var crc = new CRC32C();
+        crc.update(frame.array(), HEADER_BYTES, payloadLength);
+        frame.putInt(0, payloadLength);
+        frame.putInt(4, (int) crc.getValue());
+        return frame.flip();
+    }
+
+    /**
+     * Reads the frame at the buffer's position and advances past it.
+     * Returns null (position unchanged) at end of data or on a torn/corrupt frame.
+     */
+    static Payment decode(ByteBuffer buf) {
+        int start = buf.position();
+        if (buf.remaining() < HEADER_BYTES) return null;
+        int length = buf.getInt(start);
+        int expectedCrc = buf.getInt(start + 4);
+        if (length <= 0 || length > buf.remaining() - HEADER_BYTES) return null;
+
+        var crc = new CRC32C();
+        crc.update(buf.slice(start + HEADER_BYTES, length));
+        if ((int) crc.getValue() != expectedCrc) return null;
+
+        ByteBuffer in = buf.slice(start + HEADER_BYTES, length);
+        byte version = in.get();
+        if (version != VERSION && version != VERSION_NO_MERCHANT) return null;
+        UUID id = new UUID(in.getLong(), in.getLong());
+        BigDecimal amount = BigDecimal.valueOf(in.getLong(), in.get());
+        Instant created = Instant.ofEpochSecond(in.getLong(), in.getInt());
+        PaymentStatus status = STATUSES[in.get()];
+        String currency = getStr(in), method = getStr(in), reason = getStr(in);
+        String merchant = version == VERSION ? getStr(in) : null;
+        Payment p = new Payment(id, amount, currency, method, status, created, reason, merchant);
+        buf.position(start + HEADER_BYTES + length);
+        return p;
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int strLength(byte[] b) {
+        return 2 + (b == null ? 0 : Math.min(b.length, Short.MAX_VALUE));
+    }
+
+    private static void putStr(ByteBuffer out, byte[] b) {
+        if (b == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        int n = Math.min(b.length, Short.MAX_VALUE);
+        out.putShort((short) n);
+        out.put(b, 0, n);
+    }
+
+    private static String getStr(ByteBuffer in) {
+        int n = in.getShort();
+        if (n < 0) return null;
+        byte[] b = new byte[n];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
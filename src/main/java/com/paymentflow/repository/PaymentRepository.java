@@ -1,15 +1,69 @@
 package com.paymentflow.repository;
 
 import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Repository abstraction (in-memory for Sprint 1).
  */
 public interface PaymentRepository {
+
+    /**
+     * Inserts or updates a payment. Updates must follow {@link PaymentStatus#canTransitionTo},
+     * so a late PROCESSING write never overwrites SUCCESS/FAILED.
+     *
+     * @return the payment as stored after the call (the existing one if the update was rejected)
+     */
     Payment save(Payment payment);
 
+    /**
+     * Saves several payments, e.g. one bulk upload batch. Same rules as {@link #save} per payment;
+     * implementations may make the whole batch durable at once.
+     *
+     * @return the stored payments, in the same order
+     */
+    default List<Payment> saveAll(List<Payment> payments) {
+        List<Payment> stored = new ArrayList<>(payments.size());
+        for (Payment p : payments) stored.add(save(p));
+        return stored;
+    }
+
     Optional<Payment> findById(UUID id);
+
+    /**
+     * Atomically replaces the payment only if its current status is {@code expected}.
+     */
+    boolean compareAndSetStatus(UUID id, PaymentStatus expected, Payment next);
+
+    /**
+     * Payments currently in {@code status} created strictly before {@code createdBefore}.
+     */
+    List<Payment> findByStatus(PaymentStatus status, Instant createdBefore);
+
+    /**
+     * Visits every stored payment (weakly consistent with concurrent writes).
+     */
+    void forEach(Consumer<Payment> action);
+
+    /**
+     * Whether saved payments survive a restart, so that a payment left PROCESSING is resumed by the next
+     * instance. False for plain in-memory storage.
+     */
+    default boolean durable() {
+        return false;
+    }
+
+    /**
+     * Blocks until every write accepted so far would survive a restart. Nothing to do for storage that
+     * is not {@link #durable()}.
+     */
+    default void flush() {
+    }
 }
@@ -0,0 +1,405 @@
+package com.paymentflow.repository;
+
+import com.paymentflow.model.Payment;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, memory-mapped write-ahead log of payment states.
+ * <p>
+ * The log is a sequence of fixed-size segment files named by their starting logical offset
+ * ({@code 00000000000000000000.wal}). Appends copy one {@link PaymentRecordCodec} frame into the mapped
+ * segment under a short lock; the bytes are in the page cache at that point and survive a process crash.
+ * <p>
+ * <b>Group commit:</b> a flusher thread calls {@code force()} at most every {@code fsyncIntervalMillis},
+ * or as soon as {@code fsyncBatch} records are pending, and advances the durable offset for all of them at once.
+ * With {@code syncCommit} an append waits until its record is durable (survives power loss); otherwise it
+ * returns right after the copy.
+ * <p>
+ * <b>Snapshots:</b> {@link #snapshot} rolls to a new segment at offset P, writes the full current state to
+ * {@code snapshot-P.snap}, then deletes older segments and snapshots. Recovery loads the newest snapshot and
+ * replays segments from P. Replaying an older record over a newer state is harmless because the repository
+ * only accepts forward status transitions.
+ */
+public final class PaymentWriteAheadLog implements AutoCloseable {
+
+    public record Options(Path dir, int segmentBytes, long fsyncIntervalMillis, int fsyncBatch, boolean syncCommit) {
+        public Options {
+            if (segmentBytes < 4096) throw new IllegalArgumentException("segmentBytes must be >= 4096");
+            if (fsyncBatch <= 0) throw new IllegalArgumentException("fsyncBatch must be > 0");
+        }
+    }
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Options options;
+
+    // append state, guarded by appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition flushNeeded = appendLock.newCondition();
+    private Segment active;
+    private final List<Segment> unforced = new ArrayList<>(); // sealed segments not yet forced
+    private long writtenOffset;
+    private int pendingRecords;
+    private boolean syncRequested; // a sync() the flusher has not picked up yet
+
+    // durability state, guarded by durableLock
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+    private volatile long durableOffset;
+
+    private final Thread flusher;
+    private volatile boolean closed = false;
+
+    private PaymentWriteAheadLog(Options options, Segment active) {
+        this.options = options;
+        this.active = active;
+        this.writtenOffset = active.baseOffset + active.buffer.position();
+        this.durableOffset = writtenOffset;
+        this.flusher = Thread.ofPlatform().name("wal-flusher").daemon(true).unstarted(this::flushLoop);
+    }
+
+    /**
+     * Opens (or creates) the log in {@code options.dir()}, feeding every recovered record to {@code replay}
+     * in log order: first the newest snapshot, then all later segments.
+     */
+    public static PaymentWriteAheadLog open(Options options, Consumer<Payment> replay) throws IOException {
+        Files.createDirectories(options.dir());
+
+        long snapshotOffset = -1;
+        Path snapshot = newestSnapshot(options.dir());
+        if (snapshot != null) {
+            snapshotOffset = offsetOf(snapshot, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            readFrames(snapshot, replay);
+        }
+
+        List<Path> segments = segments(options.dir());
+        Segment last = null;
+        for (Path path : segments) {
+            long base = offsetOf(path, "", SEGMENT_SUFFIX);
+            if (base < snapshotOffset) continue; // already covered by the snapshot
+            if (last != null) last.close();
+            last = Segment.map(path, base, options.segmentBytes());
+            ByteBuffer view = last.buffer.duplicate().position(0);
+            Payment p;
+            while ((p = PaymentRecordCodec.decode(view)) != null) replay.accept(p);
+            last.buffer.position(view.position());
+            last.zeroTail(); // drop a torn record at the end so it can't be mistaken for data later
+        }
+        if (last == null) {
+            long base = Math.max(0, snapshotOffset);
+            last = Segment.map(segmentPath(options.dir(), base), base, options.segmentBytes());
+        }
+
+        var wal = new PaymentWriteAheadLog(options, last);
+        wal.flusher.start();
+        return wal;
+    }
+
+    /** Appends one record; with syncCommit, returns only once it has been forced to disk. */
+    public void append(Payment payment) {
+        ByteBuffer frame = PaymentRecordCodec.encode(payment);
+        long end;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            end = put(frame);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+        if (options.syncCommit()) awaitDurable(end);
+    }
+
+    /**
+     * Appends several records under one lock acquisition; with syncCommit, waits once for the last of them,
+     * so a batch costs one fsync wait instead of one per record.
+     */
+    public void appendAll(List<Payment> payments) {
+        if (payments.isEmpty()) return;
+        ByteBuffer[] frames = new ByteBuffer[payments.size()];
+        for (int i = 0; i < frames.length; i++) frames[i] = PaymentRecordCodec.encode(payments.get(i));
+        long end = 0;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            for (ByteBuffer frame : frames) end = put(frame);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+        if (options.syncCommit()) awaitDurable(end);
+    }
+
+    // appendLock held; returns the log offset just past the record
+    private long put(ByteBuffer frame) throws IOException {
+        if (frame.remaining() > active.buffer.remaining()) roll();
+        if (frame.remaining() > active.buffer.remaining()) {
+            throw new IllegalArgumentException("Record larger than a WAL segment");
+        }
+        active.buffer.put(frame);
+        long end = active.baseOffset + active.buffer.position();
+        writtenOffset = end;
+        if (++pendingRecords >= options.fsyncBatch()) flushNeeded.signal();
+        return end;
+    }
+
+    /** Blocks until everything appended so far is on disk. */
+    public void sync() {
+        long target;
+        appendLock.lock();
+        try {
+            target = writtenOffset;
+            syncRequested = true;
+            flushNeeded.signal();
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(target);
+    }
+
+    /**
+     * Writes the full state produced by {@code state} as a snapshot and deletes the log it replaces.
+     * Appends keep flowing into the new segment while the snapshot is written.
+     */
+    public void snapshot(Consumer<Consumer<Payment>> state) throws IOException {
+        long cut;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            roll();
+            cut = active.baseOffset;
+        } finally {
+            appendLock.unlock();
+        }
+
+        Path dir = options.dir();
+        Path tmp = dir.resolve(SNAPSHOT_PREFIX + cut + SNAPSHOT_SUFFIX + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+             OutputStream out = new BufferedOutputStream(java.nio.channels.Channels.newOutputStream(ch), 1 << 16)) {
+            state.accept(p -> {
+                ByteBuffer frame = PaymentRecordCodec.encode(p);
+                try {
+                    out.write(frame.array(), 0, frame.limit());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, cut, SNAPSHOT_SUFFIX)),
+                StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path segment : segments(dir)) {
+            if (offsetOf(segment, "", SEGMENT_SUFFIX) < cut) Files.deleteIfExists(segment);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path old : files.filter(f -> isSnapshot(f) && offsetOf(f, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < cut).toList()) {
+                Files.deleteIfExists(old);
+            }
+        }
+    }
+
+    public long writtenOffset() {
+        appendLock.lock();
+        try {
+            return writtenOffset;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public long durableOffset() {
+        return durableOffset;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        sync();
+        closed = true;
+        flusher.interrupt();
+        try {
+            flusher.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appendLock.lock();
+        try {
+            active.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // ---- internals ----
+
+    private void ensureOpen() {
+        if (closed) throw new IllegalStateException("WAL is closed");
+    }
+
+    // caller holds appendLock
+    private void roll() throws IOException {
+        unforced.add(active);
+        long base = active.baseOffset + active.buffer.position();
+        active = Segment.map(segmentPath(options.dir(), base), base, options.segmentBytes());
+        writtenOffset = base;
+    }
+
+    private void awaitDurable(long offset) {
+        if (durableOffset >= offset) return;
+        durableLock.lock();
+        try {
+            while (durableOffset < offset) {
+                if (closed && !flusher.isAlive()) throw new IllegalStateException("WAL closed before sync");
+                durableAdvanced.await(10, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            // the record is written but not yet forced: the caller must not treat it as committed
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted before the WAL record was durable"));
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            List<Segment> sealed;
+            Segment current;
+            int from, to;
+            long target;
+            appendLock.lock();
+            try {
+                if (pendingRecords < options.fsyncBatch() && !syncRequested) {
+                    long interval = Math.max(1, options.fsyncIntervalMillis());
+                    flushNeeded.await(interval, TimeUnit.MILLISECONDS);
+                }
+                syncRequested = false;
+                if (writtenOffset == durableOffset) continue;
+                sealed = new ArrayList<>(unforced);
+                unforced.clear();
+                current = active;
+                from = (int) Math.max(0, durableOffset - current.baseOffset);
+                to = current.buffer.position();
+                target = writtenOffset;
+                pendingRecords = 0;
+            } catch (InterruptedException e) {
+                break; // close() forces the final state itself via sync() before interrupting
+            } finally {
+                appendLock.unlock();
+            }
+
+            // fsync outside the append lock: appenders keep copying while the disk works
+            for (Segment s : sealed) {
+                s.buffer.force();
+                s.close();
+            }
+            if (to > from) current.buffer.force(from, to - from);
+            durableLock.lock();
+            try {
+                durableOffset = target;
+                durableAdvanced.signalAll();
+            } finally {
+                durableLock.unlock();
+            }
+        }
+    }
+
+    private static void readFrames(Path file, Consumer<Payment> replay) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            Payment p;
+            while ((p = PaymentRecordCodec.decode(buf)) != null) replay.accept(p);
+        }
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingLong(f -> offsetOf(f, "", SEGMENT_SUFFIX)))
+                    .toList();
+        }
+    }
+
+    private static Path newestSnapshot(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(PaymentWriteAheadLog::isSnapshot)
+                    .max(Comparator.comparingLong(f -> offsetOf(f, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)))
+                    .orElse(null);
+        }
+    }
+
+    private static boolean isSnapshot(Path f) {
+        String name = f.getFileName().toString();
+        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+    }
+
+    private static long offsetOf(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private static Path segmentPath(Path dir, long base) {
+        return dir.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    private static final class Segment {
+        final long baseOffset;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+
+        private Segment(long baseOffset, FileChannel channel, MappedByteBuffer buffer) {
+            this.baseOffset = baseOffset;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment map(Path path, long baseOffset, int size) throws IOException {
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long length = Math.max(size, ch.size());
+            return new Segment(baseOffset, ch, ch.map(FileChannel.MapMode.READ_WRITE, 0, length));
+        }
+
+        void zeroTail() {
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                if (buffer.get(i) == 0) continue;
+                buffer.put(i, (byte) 0);
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // mapping stays valid until GC; nothing else to release
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.paymentflow.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns repeated strings (currency, method, failure reason, merchant) to small ordinals.
+ * Ordinal 0 is reserved for null. Once full it stops growing and answers {@link #OVERFLOW}: the caller stores
+ * that value as a plain string instead. Not thread-safe: callers guard it.
+ */
+final class StringDictionary {
+    /** Returned by {@link #intern} when the dictionary is full. */
+    static final int OVERFLOW = -1;
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final int maxOrdinal;
+
+    StringDictionary(int maxOrdinal) {
+        this.maxOrdinal = maxOrdinal;
+        values.add(null);
+    }
+
+    int intern(String value) {
+        if (value == null) return 0;
+        Integer existing = ordinals.get(value);
+        if (existing != null) return existing;
+        int ordinal = values.size();
+        if (ordinal > maxOrdinal) return OVERFLOW;
+        values.add(value);
+        ordinals.put(value, ordinal);
+        return ordinal;
+    }
+
+    String get(int ordinal) {
+        return values.get(ordinal);
+    }
+
+    int size() {
+        return values.size() - 1;
+    }
+}
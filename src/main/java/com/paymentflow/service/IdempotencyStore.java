@@ -0,0 +1,204 @@
+package com.paymentflow.service;
+
+import com.paymentflow.model.PaymentResult;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded idempotency store: idempotencyKey → the {@link PaymentResult} returned for it.
+ * <p>
+ * Used by both payment modes. Replaces the grow-forever {@link com.paymentflow.service.learning.ManualCache}:
+ * <ul>
+ *   <li>entries expire {@code ttl} after they were last written;</li>
+ *   <li>size is bounded with a segmented LRU: new keys enter a probation segment, keys hit again are promoted
+ *       to a protected segment (80% of capacity). One-off keys are evicted first, so a burst of new keys cannot
+ *       flush the keys clients are actually retrying;</li>
+ *   <li>the map is split into independently locked stripes, so different keys rarely contend.</li>
+ * </ul>
+ */
+public class IdempotencyStore {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public IdempotencyStore(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    public IdempotencyStore(int maxEntries, Duration ttl, LongSupplier nanoClock) {
+        if (maxEntries < STRIPES) throw new IllegalArgumentException("maxEntries must be >= " + STRIPES);
+        this.ttlNanos = ttl.toNanos();
+        this.clock = nanoClock;
+        int perStripe = maxEntries / STRIPES;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe(perStripe);
+    }
+
+    /**
+     * Stores {@code result} for {@code key} unless a live entry exists.
+     *
+     * @return the existing result (a duplicate request), or null if {@code result} was stored
+     */
+    public PaymentResult putIfAbsent(String key, PaymentResult result) {
+        Stripe s = stripeFor(key);
+        long now = clock.getAsLong();
+        s.lock.lock();
+        try {
+            PaymentResult existing = s.get(key, now);
+            if (existing != null) {
+                hits.increment();
+                return existing;
+            }
+            misses.increment();
+            s.insert(key, result, now + ttlNanos);
+            return null;
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    public PaymentResult get(String key) {
+        Stripe s = stripeFor(key);
+        s.lock.lock();
+        try {
+            PaymentResult existing = s.get(key, clock.getAsLong());
+            if (existing != null) hits.increment();
+            else misses.increment();
+            return existing;
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    /** Replaces the stored result (e.g. with the terminal outcome) if the key is still present. */
+    public void update(String key, PaymentResult result) {
+        Stripe s = stripeFor(key);
+        s.lock.lock();
+        try {
+            Entry e = s.probation.get(key);
+            if (e == null) e = s.protectedSegment.get(key);
+            if (e != null) {
+                e.result = result;
+                e.expiresAt = clock.getAsLong() + ttlNanos;
+            }
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    /** Forgets the key, e.g. when the first request could not be accepted and the client must retry. */
+    public void remove(String key) {
+        Stripe s = stripeFor(key);
+        s.lock.lock();
+        try {
+            if (s.probation.remove(key) == null) s.protectedSegment.remove(key);
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    public int size() {
+        int n = 0;
+        for (Stripe s : stripes) {
+            s.lock.lock();
+            try {
+                n += s.probation.size() + s.protectedSegment.size();
+            } finally {
+                s.lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long expirationCount() {
+        return expirations.sum();
+    }
+
+    private Stripe stripeFor(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static final class Entry {
+        PaymentResult result;
+        long expiresAt;
+
+        Entry(PaymentResult result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        // insertion order = recency order: we re-insert on access, so the head is always the LRU entry
+        final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>();
+        final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>();
+        final int capacity;
+        final int protectedCapacity;
+
+        Stripe(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            this.protectedCapacity = this.capacity * 4 / 5;
+        }
+
+        PaymentResult get(String key, long now) {
+            Entry e = probation.remove(key);
+            boolean wasProtected = false;
+            if (e == null) {
+                e = protectedSegment.remove(key);
+                wasProtected = true;
+            }
+            if (e == null) return null;
+            if (now - e.expiresAt >= 0) {
+                expirations.increment();
+                return null;
+            }
+            protectedSegment.put(key, e); // promote (or refresh recency inside protected)
+            if (!wasProtected && protectedSegment.size() > protectedCapacity) {
+                // demote the protected LRU back to probation instead of dropping it
+                Iterator<Map.Entry<String, Entry>> it = protectedSegment.entrySet().iterator();
+                Map.Entry<String, Entry> lru = it.next();
+                it.remove();
+                probation.put(lru.getKey(), lru.getValue());
+            }
+            return e.result;
+        }
+
+        void insert(String key, PaymentResult result, long expiresAt) {
+            probation.put(key, new Entry(result, expiresAt));
+            while (probation.size() + protectedSegment.size() > capacity) {
+                LinkedHashMap<String, Entry> victims = probation.isEmpty() ? protectedSegment : probation;
+                Iterator<Map.Entry<String, Entry>> it = victims.entrySet().iterator();
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+}
@@ -2,41 +2,43 @@ package com.paymentflow.service;
 
 import com.paymentflow.model.PaymentRequest;
 import com.paymentflow.model.PaymentResult;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class PaymentOrchestrator {
 
-    private final PaymentService learningPaymentService;
-    private final PaymentService productionPaymentService;
-    private final String paymentMode;
+    private final PaymentService paymentService;
+    private final PaymentStatusWaiters waiters;
 
+    // Only the service of the configured payment.mode exists (learning or production), so the other
+    // one's threads are never started
     public PaymentOrchestrator(
-            @Qualifier("learningPaymentService")PaymentService learningPaymentService,
-            @Qualifier("productionPaymentService")PaymentService productionPaymentService,
-            @Value("${payment.model:learning}")String paymentMode
+            PaymentService paymentService,
+            PaymentStatusWaiters waiters
     ) {
-        this.learningPaymentService = learningPaymentService;
-        this.productionPaymentService = productionPaymentService;
-        this.paymentMode = paymentMode;
+        this.paymentService = paymentService;
+        this.waiters = waiters;
     }
 
 
     public PaymentResult create(PaymentRequest paymentRequest) {
-        return isProduction() ? productionPaymentService.createPayment(paymentRequest)
-                : learningPaymentService.createPayment(paymentRequest);
+        return paymentService.createPayment(paymentRequest);
+    }
+
+    public List<PaymentResult> createAll(List<PaymentRequest> paymentRequests) {
+        return paymentService.createPayments(paymentRequests);
     }
 
     public PaymentResult status(UUID id) {
-        return isProduction() ? productionPaymentService.getStatus(id)
-                : learningPaymentService.getStatus(id);
+        return paymentService.getStatus(id);
     }
 
-    private boolean isProduction() {
-        return "production".equalsIgnoreCase(paymentMode);
+    // Completes once the payment is SUCCESS or FAILED (at once if it already is); nobody polls meanwhile
+    public CompletableFuture<PaymentResult> awaitTerminal(UUID id) {
+        return waiters.await(id, () -> status(id));
     }
 }
@@ -3,10 +3,22 @@ package com.paymentflow.service;
 import com.paymentflow.model.PaymentRequest;
 import com.paymentflow.model.PaymentResult;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 public interface PaymentService {
     PaymentResult createPayment(PaymentRequest request);
 
+    /**
+     * Creates a batch of already validated payments; one result per request, in the same order.
+     * The default creates them one by one.
+     */
+    default List<PaymentResult> createPayments(List<PaymentRequest> requests) {
+        List<PaymentResult> results = new ArrayList<>(requests.size());
+        for (PaymentRequest r : requests) results.add(createPayment(r));
+        return results;
+    }
+
     PaymentResult getStatus(UUID paymentId);
 }
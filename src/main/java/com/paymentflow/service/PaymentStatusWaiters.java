@@ -0,0 +1,78 @@
+package com.paymentflow.service;
+
+import com.paymentflow.model.PaymentResult;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Clients waiting for a payment to become SUCCESS or FAILED (SSE streams, long polls).
+ * <p>
+ * A waiter is a callback on one shared future per payment, not a parked thread, so thousands of open
+ * streams cost a map entry each. The terminal write calls {@link #complete}; with nobody waiting that is
+ * a single map lookup. Callbacks run on a virtual thread, never on the payment worker that settled the
+ * payment, so a slow client can't hold up processing.
+ * <p>
+ * A caller that gives up (times out, disconnects) cancels its copy, which detaches it; the entry of a
+ * payment that never settles goes away with its last waiter.
+ */
+@Component
+public class PaymentStatusWaiters implements AutoCloseable {
+
+    private static final class Waiting {
+        final CompletableFuture<PaymentResult> shared = new CompletableFuture<>();
+        int attached; // guarded by the map's lock on this entry (compute)
+    }
+
+    private final Map<UUID, Waiting> waiting = new ConcurrentHashMap<>();
+    private final ExecutorService notifier = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Completes with the payment's terminal result, immediately if it already has one.
+     *
+     * @param current reads the stored status; read again after registering so a write in between is not missed
+     */
+    public CompletableFuture<PaymentResult> await(UUID paymentId, Supplier<PaymentResult> current) {
+        PaymentResult now = current.get();
+        if (now.status().isTerminal()) return CompletableFuture.completedFuture(now);
+        Waiting entry = waiting.compute(paymentId, (id, w) -> {
+            if (w == null) w = new Waiting();
+            w.attached++;
+            return w;
+        });
+        now = current.get();
+        if (now.status().isTerminal()) complete(now);
+        // callers get their own copy: one that cancels or times out doesn't affect the others
+        CompletableFuture<PaymentResult> copy = entry.shared.copy();
+        copy.whenComplete((result, error) -> {
+            if (error != null) detach(paymentId, entry);
+        });
+        return copy;
+    }
+
+    private void detach(UUID paymentId, Waiting entry) {
+        waiting.computeIfPresent(paymentId, (id, w) -> w == entry && --w.attached == 0 ? null : w);
+    }
+
+    /** Called after a terminal status was stored. */
+    public void complete(PaymentResult terminal) {
+        Waiting entry = waiting.remove(terminal.paymentId());
+        if (entry != null) entry.shared.completeAsync(() -> terminal, notifier);
+    }
+
+    /** Payments somebody is waiting for. */
+    public int size() {
+        return waiting.size();
+    }
+
+    @Override
+    public void close() {
+        notifier.shutdownNow();
+    }
+}
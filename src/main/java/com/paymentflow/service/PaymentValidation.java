@@ -0,0 +1,33 @@
+package com.paymentflow.service;
+
+import com.paymentflow.gateway.GatewayRouter;
+import com.paymentflow.model.PaymentRequest;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * What bean validation can't say about a request, checked by both services before anything is stored: the
+ * currency exists (ISO 4217), some gateway takes the method, and the amount fits the stores' fixed-point
+ * encoding. Currency and method end up interned by the compact store, so free text must not get that far.
+ */
+public final class PaymentValidation {
+
+    private PaymentValidation() {
+    }
+
+    /** Why the request can't become a payment, or null if it can. */
+    public static String invalidReason(PaymentRequest request, GatewayRouter router) {
+        BigDecimal amount = request.amount();
+        if (amount == null || amount.signum() <= 0) return "amount must be positive";
+        if (amount.scale() > 4 || amount.precision() - amount.scale() > 14) return "amount out of range";
+        try {
+            Currency.getInstance(request.currency());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return "unknown currency " + request.currency();
+        }
+        if (request.method() == null || request.method().isBlank()) return "method is required";
+        if (!router.routes(request.method())) return "no gateway takes method " + request.method();
+        return null;
+    }
+}
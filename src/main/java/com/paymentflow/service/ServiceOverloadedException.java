@@ -0,0 +1,21 @@
+package com.paymentflow.service;
+
+import java.time.Duration;
+
+/**
+ * The request was refused without being processed because the service is at capacity.
+ * Mapped to 429 Too Many Requests with a Retry-After header.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
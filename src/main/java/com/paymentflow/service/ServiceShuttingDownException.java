@@ -0,0 +1,22 @@
+package com.paymentflow.service;
+
+import java.time.Duration;
+
+/**
+ * The request was refused without being processed because this instance is shutting down; another
+ * instance (or this one after a restart) will take it. Mapped to 503 Service Unavailable with a
+ * Retry-After header, so clients and load balancers retry elsewhere instead of backing off as from a 429.
+ */
+public class ServiceShuttingDownException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceShuttingDownException(Duration retryAfter) {
+        super("Service is shutting down");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,134 @@
+package com.paymentflow.service.learning;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limiter that finds the gateway's capacity from observed latency
+ * (gradient algorithm, after Netflix concurrency-limits "Gradient").
+ * <p>
+ * Two latency figures are kept: a short moving average (what the gateway does now) and the no-load RTT
+ * (the fastest recent call: what it does when nothing is queued). While short stays within
+ * {@code tolerance × noLoad} the gateway isn't queueing, so the limit grows by {@code sqrt(limit)}.
+ * Above that our calls are waiting in its queue, and the limit shrinks by the ratio noLoad/short.
+ * The no-load RTT only drifts up slowly, so a gateway that really got slower becomes the new baseline
+ * while ordinary queueing never does. Errors cut the limit multiplicatively (AIMD back-off).
+ * The result tracks real capacity: enough in flight to use the gateway, not so much that calls
+ * pile up in its queue and every latency explodes.
+ */
+public class AdaptiveConcurrencyLimiter implements ConcurrencyLimiter {
+
+    private static final double SHORT_ALPHA = 0.1;   // ~10 samples
+    private static final double NO_LOAD_DRIFT = 0.002; // baseline creeps toward slower samples, ~500 samples
+    private static final double TOLERANCE = 1.5;     // accepted latency inflation before backing off
+    private static final double SMOOTHING = 0.2;
+    private static final double ERROR_BACKOFF = 0.9;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitFreed = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+
+    // guarded by lock
+    private double limit;
+    private int inFlight;
+    private double shortRtt = Double.NaN;
+    private double noLoadRtt = Double.NaN;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || minLimit > maxLimit) throw new IllegalArgumentException("need 0 < minLimit <= maxLimit");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    @Override
+    public boolean acquire(long maxWaitMillis) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                if (nanos <= 0) return false;
+                nanos = permitFreed.awaitNanos(nanos);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release() {
+        lock.lock();
+        try {
+            if (inFlight > 0) inFlight--;
+            permitFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onSample(long latencyNanos, boolean success) {
+        lock.lock();
+        try {
+            double before = limit;
+            if (!success) {
+                limit = clamp(limit * ERROR_BACKOFF);
+            } else {
+                double rtt = latencyNanos;
+                shortRtt = Double.isNaN(shortRtt) ? rtt : shortRtt + SHORT_ALPHA * (rtt - shortRtt);
+                noLoadRtt = Double.isNaN(noLoadRtt) || rtt < noLoadRtt ? rtt : noLoadRtt + NO_LOAD_DRIFT * (rtt - noLoadRtt);
+
+                // don't grow while we aren't even using the current limit (app-limited, no signal)
+                if (inFlight < limit / 2) return;
+
+                double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * noLoadRtt / shortRtt));
+                double newLimit = limit * gradient + Math.sqrt(limit);
+                limit = clamp(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+            }
+            if ((int) limit > (int) before) permitFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int inUse() {
+        return inFlight();
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int availablePermits() {
+        lock.lock();
+        try {
+            return Math.max(0, (int) limit - inFlight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+}
@@ -0,0 +1,36 @@
+package com.paymentflow.service.learning;
+
+/**
+ * Caps concurrent gateway calls. Take a permit before the call, give it back after.
+ */
+public interface ConcurrencyLimiter {
+
+    boolean acquire(long maxWaitMillis) throws InterruptedException;
+
+    void release();
+
+    /**
+     * Reports one gateway call made under a permit (per attempt, not per payment).
+     * Adaptive limiters size themselves from these samples; fixed ones ignore them.
+     */
+    default void onSample(long latencyNanos, boolean success) {
+    }
+
+    int availablePermits();
+
+    /** Permits currently held, i.e. gateway calls in flight under this limiter. */
+    int inUse();
+
+    /**
+     * {@code fixed} (or empty): a semaphore of {@code initialLimit} permits.
+     * {@code adaptive}: starts at {@code initialLimit} and moves between 1 and {@code maxLimit} with gateway latency.
+     */
+    static ConcurrencyLimiter create(String type, int initialLimit, int maxLimit) {
+        String t = type == null ? "" : type.toLowerCase();
+        return switch (t) {
+            case "adaptive" -> new AdaptiveConcurrencyLimiter(initialLimit, 1, maxLimit);
+            case "fixed", "" -> new ManualRateLimiter(initialLimit);
+            default -> throw new IllegalArgumentException("Unknown limiter: " + type);
+        };
+    }
+}
@@ -0,0 +1,230 @@
+package com.paymentflow.service.learning;
+
+import com.paymentflow.model.PaymentPriority;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue that schedules instead of serving FIFO, with two levels of weighted fair queuing:
+ * <ul>
+ *   <li>priority classes ({@link PaymentPriority}) share the takes by class weight;</li>
+ *   <li>inside a class, tenants (merchants) share them by tenant weight, 1 unless configured.</li>
+ * </ul>
+ * Each flow (a class, or a tenant within a class) has a virtual "pass" that advances by
+ * {@code STRIDE / weight} every time it is served, and the backlogged flow with the lowest pass goes next
+ * (stride scheduling). A flow that was idle restarts at the current virtual time, so it can't save up
+ * credit. While backlogged, a flow of weight w among flows of total weight W gets w/W of the takes
+ * whatever the others have queued: a bulk merchant's 10 000 items delay a checkout by a few takes, not
+ * 10 000, and RETRY work is slowed down under load but never starved.
+ * <p>
+ * A named tenant may also hold at most {@code tenant-share}% of the capacity, so a flood can't fill the
+ * queue and make every other tenant's enqueue time out. Anonymous work (no merchant) is one tenant for
+ * scheduling but is not capped.
+ * <p>
+ * Items say who they are by implementing {@link Scheduled}; anything else counts as anonymous CHECKOUT work.
+ * One lock guards everything; put and take are O(log t) for t tenants with queued work in the class.
+ */
+public class FairPaymentQueue<T> implements PaymentQueue<T> {
+
+    /** Scheduling identity of a queued item. */
+    public interface Scheduled {
+        /** Merchant the work is for; null = anonymous. */
+        String tenant();
+
+        PaymentPriority priority();
+    }
+
+    // virtual-time cost of one take at weight 1
+    private static final long STRIDE = 1L << 20;
+    private static final String ANONYMOUS = "";
+
+    private static final class Flow<T> {
+        final String tenant;
+        final long stride;
+        final ArrayDeque<T> items = new ArrayDeque<>();
+        long pass;
+        long order; // activation order, breaks ties between equal passes FIFO
+
+        Flow(String tenant, long stride) {
+            this.tenant = tenant;
+            this.stride = stride;
+        }
+    }
+
+    private static final class ClassQueue<T> {
+        final long stride;
+        final Map<String, Flow<T>> flows = new HashMap<>(); // only tenants with queued items
+        final PriorityQueue<Flow<T>> ready = new PriorityQueue<>(
+                Comparator.<Flow<T>>comparingLong(f -> f.pass).thenComparingLong(f -> f.order));
+        long pass;
+        long virtualTime; // pass of the tenant served last
+        int size;
+
+        ClassQueue(long stride) {
+            this.stride = stride;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final FairQueueProperties weights;
+    private final ClassQueue<T>[] classes;
+    private final Map<String, Integer> perTenant = new HashMap<>();
+    private final int capacity;
+    private final int tenantCapacity;
+    private long virtualTime; // pass of the class served last
+    private long activations;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public FairPaymentQueue(int capacity, FairQueueProperties weights) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be > 0");
+        this.capacity = capacity;
+        this.weights = weights;
+        this.tenantCapacity = Math.max(1, capacity * weights.tenantShare() / 100);
+        PaymentPriority[] priorities = PaymentPriority.values();
+        this.classes = new ClassQueue[priorities.length];
+        for (PaymentPriority p : priorities) classes[p.ordinal()] = new ClassQueue<>(STRIDE / weights.weight(p));
+    }
+
+    @Override
+    public void put(T item) throws InterruptedException {
+        String tenant = tenantOf(item);
+        lock.lockInterruptibly();
+        try {
+            while (!hasRoom(tenant)) notFull.await();
+            enqueue(item, tenant);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(T item, long timeoutMillis) throws InterruptedException {
+        String tenant = tenantOf(item);
+        long nanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        lock.lockInterruptibly();
+        try {
+            while (!hasRoom(tenant)) {
+                if (nanos <= 0) return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(item, tenant);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) notEmpty.await();
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Items currently queued for {@code tenant} (null = anonymous), all classes together. */
+    public int size(String tenant) {
+        lock.lock();
+        try {
+            return perTenant.getOrDefault(tenant == null ? ANONYMOUS : tenant, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> sink) {
+        lock.lock();
+        try {
+            int n = size;
+            while (size > 0) sink.add(dequeue());
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---- scheduling (caller holds the lock) ----
+
+    private boolean hasRoom(String tenant) {
+        return size < capacity && (tenant.equals(ANONYMOUS) || perTenant.getOrDefault(tenant, 0) < tenantCapacity);
+    }
+
+    private void enqueue(T item, String tenant) {
+        ClassQueue<T> c = classes[priorityOf(item).ordinal()];
+        if (c.size == 0) c.pass = Math.max(c.pass, virtualTime);
+        Flow<T> flow = c.flows.get(tenant);
+        if (flow == null) {
+            flow = new Flow<>(tenant, STRIDE / weights.tenantWeight(tenant));
+            flow.pass = c.virtualTime;
+            flow.order = activations++;
+            c.flows.put(tenant, flow);
+            c.ready.add(flow);
+        }
+        flow.items.add(item);
+        c.size++;
+        size++;
+        perTenant.merge(tenant, 1, Integer::sum);
+        notEmpty.signal();
+    }
+
+    private T dequeue() {
+        ClassQueue<T> c = null;
+        for (ClassQueue<T> candidate : classes) { // in priority order, so ties go to the higher class
+            if (candidate.size > 0 && (c == null || candidate.pass < c.pass)) c = candidate;
+        }
+        virtualTime = c.pass;
+        c.pass += c.stride;
+
+        Flow<T> flow = c.ready.poll();
+        c.virtualTime = flow.pass;
+        T item = flow.items.poll();
+        if (flow.items.isEmpty()) {
+            c.flows.remove(flow.tenant); // idle flows are forgotten: they restart at the virtual time
+        } else {
+            flow.pass += flow.stride;
+            c.ready.add(flow);
+        }
+        c.size--;
+        size--;
+        perTenant.compute(flow.tenant, (t, n) -> n == 1 ? null : n - 1);
+        // producers may be waiting for the global capacity or for this tenant's share
+        notFull.signalAll();
+        return item;
+    }
+
+    private static String tenantOf(Object item) {
+        String tenant = item instanceof Scheduled s ? s.tenant() : null;
+        return tenant == null ? ANONYMOUS : tenant;
+    }
+
+    private static PaymentPriority priorityOf(Object item) {
+        PaymentPriority p = item instanceof Scheduled s ? s.priority() : null;
+        return p == null ? PaymentPriority.CHECKOUT : p;
+    }
+}
@@ -0,0 +1,47 @@
+package com.paymentflow.service.learning;
+
+import com.paymentflow.model.PaymentPriority;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Weights of {@link FairPaymentQueue} ({@code payment.learning.queue: fair}), from {@code payment.learning.fair}.
+ * While several flows have work queued, each one's share of the takes is its weight over the sum.
+ *
+ * @param tenantShare   most of the queue capacity (percent) one merchant may hold
+ * @param tenantWeights merchant id -> weight; merchants not listed weigh 1
+ */
+@ConfigurationProperties("payment.learning.fair")
+public record FairQueueProperties(@DefaultValue("8") int checkoutWeight,
+                                  @DefaultValue("2") int payoutWeight,
+                                  @DefaultValue("1") int retryWeight,
+                                  @DefaultValue("50") int tenantShare,
+                                  Map<String, Integer> tenantWeights) {
+
+    public static final FairQueueProperties DEFAULTS = new FairQueueProperties(8, 2, 1, 50, Map.of());
+
+    public FairQueueProperties {
+        if (checkoutWeight <= 0 || payoutWeight <= 0 || retryWeight <= 0) {
+            throw new IllegalArgumentException("Class weights must be > 0");
+        }
+        if (tenantShare <= 0 || tenantShare > 100) throw new IllegalArgumentException("tenantShare must be in 1..100");
+        tenantWeights = tenantWeights == null ? Map.of() : Map.copyOf(tenantWeights);
+        tenantWeights.forEach((tenant, weight) -> {
+            if (weight <= 0) throw new IllegalArgumentException("Weight of " + tenant + " must be > 0");
+        });
+    }
+
+    public int weight(PaymentPriority priority) {
+        return switch (priority) {
+            case CHECKOUT -> checkoutWeight;
+            case PAYOUT -> payoutWeight;
+            case RETRY -> retryWeight;
+        };
+    }
+
+    public int tenantWeight(String tenant) {
+        return tenantWeights.getOrDefault(tenant, 1);
+    }
+}
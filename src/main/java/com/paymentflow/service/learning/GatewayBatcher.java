@@ -0,0 +1,198 @@
+package com.paymentflow.service.learning;
+
+import com.paymentflow.gateway.PaymentGateway;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-batching stage in front of one gateway.
+ * <p>
+ * Payments are collected until {@code maxBatchSize} are waiting or {@code lingerMillis} has passed since
+ * the first one, then sent with a single {@link PaymentGateway#chargeBatch} call.
+ * Only the items that failed are retried (exponential backoff + jitter, like {@link ManualRetry});
+ * the rest of the batch completes immediately.
+ * <p>
+ * {@link #close()} completes every future it still holds, queued or waiting out a retry backoff, with a
+ * {@link RejectedExecutionException}, and so does a submit after it: a caller is always answered.
+ */
+class GatewayBatcher implements AutoCloseable {
+
+    private record Pending(Payment payment, CompletableFuture<PaymentResult> future, int attempt, long backoffMs) {
+    }
+
+    private final PaymentGateway gateway;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final ConcurrencyLimiter limiter; // one permit (and one latency sample) per batch call, may be null
+
+    private final BlockingQueue<Pending> pending = new LinkedBlockingQueue<>();
+    // failed items waiting out their backoff before going back to pending
+    private final Set<Pending> backingOff = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+    private final Thread collector;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService retries;
+
+    GatewayBatcher(PaymentGateway gateway, int maxBatchSize, long lingerMillis,
+                   int maxAttempts, long initialBackoffMs, ConcurrencyLimiter limiter) {
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("maxBatchSize must be > 0");
+        if (maxAttempts <= 0) throw new IllegalArgumentException("maxAttempts must be >= 1");
+        this.gateway = gateway;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = Math.max(1, initialBackoffMs);
+        this.limiter = limiter;
+        this.retries = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batch-retry-" + gateway.name());
+            t.setDaemon(true);
+            return t;
+        });
+        this.collector = new Thread(this::collectLoop, "batch-" + gateway.name());
+        this.collector.setDaemon(true);
+        this.collector.start();
+    }
+
+    /**
+     * Completes with the gateway result, or exceptionally with the last GatewayException, or with a
+     * RejectedExecutionException once closed.
+     */
+    CompletableFuture<PaymentResult> submit(Payment payment) {
+        var future = new CompletableFuture<PaymentResult>();
+        enqueue(new Pending(payment, future, 1, initialBackoffMs));
+        return future;
+    }
+
+    // close() may have drained the queue between the check and the add: take it back out and refuse it
+    private void enqueue(Pending p) {
+        if (closed) {
+            refuse(p);
+            return;
+        }
+        pending.add(p);
+        if (closed && pending.remove(p)) refuse(p);
+    }
+
+    private void collectLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(pending.take());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long left = deadline - System.nanoTime();
+                    Pending next = left > 0 ? pending.poll(left, TimeUnit.NANOSECONDS) : pending.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                List<Pending> full = batch;
+                batch = new ArrayList<>(maxBatchSize);
+                try {
+                    senders.execute(() -> send(full));
+                } catch (RejectedExecutionException e) {
+                    full.forEach(this::refuse);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        batch.forEach(this::refuse); // collected but never sent
+    }
+
+    private void send(List<Pending> batch) {
+        boolean acquired = false;
+        boolean answered = false;
+        long start = 0;
+        try {
+            if (limiter != null) {
+                acquired = limiter.acquire(200);
+                if (!acquired) {
+                    batch.forEach(p -> p.future().completeExceptionally(
+                            new PaymentGateway.GatewayException("RATE_LIMIT")));
+                    return;
+                }
+            }
+            List<Payment> payments = new ArrayList<>(batch.size());
+            for (Pending p : batch) payments.add(p.payment());
+            start = System.nanoTime();
+            List<PaymentGateway.ChargeOutcome> outcomes = gateway.chargeBatch(payments);
+            answered = true; // per-item declines are still a timely answer from the gateway
+            for (int i = 0; i < batch.size(); i++) {
+                Pending p = batch.get(i);
+                PaymentGateway.ChargeOutcome outcome = outcomes.get(i);
+                if (outcome.isSuccess()) {
+                    p.future().complete(outcome.result());
+                } else {
+                    retryOrFail(p, outcome.error());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.forEach(this::refuse); // only close() interrupts a sender, and before the charge went out
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.future().completeExceptionally(e));
+        } finally {
+            if (acquired) {
+                limiter.onSample(System.nanoTime() - start, answered);
+                limiter.release();
+            }
+        }
+    }
+
+    // Only the failed item goes back to the queue, after its own backoff
+    private void retryOrFail(Pending p, PaymentGateway.GatewayException error) {
+        if (p.attempt() >= maxAttempts) {
+            p.future().completeExceptionally(error);
+            return;
+        }
+        long backoff = p.backoffMs();
+        long jitter = ThreadLocalRandom.current().nextLong(Math.max(1, backoff / 2), backoff + 1);
+        var next = new Pending(p.payment(), p.future(), p.attempt() + 1, Math.min(backoff * 2, 2_000L));
+        backingOff.add(next);
+        try {
+            retries.schedule(() -> {
+                if (backingOff.remove(next)) enqueue(next);
+            }, jitter, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            if (backingOff.remove(next)) refuse(next); // closed meanwhile
+        }
+    }
+
+    private void refuse(Pending p) {
+        p.future().completeExceptionally(
+                new RejectedExecutionException("Batcher for " + gateway.name() + " is closed"));
+    }
+
+    int pendingSize() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        collector.interrupt();
+        retries.shutdownNow();
+        senders.shutdownNow(); // batches on the wire still complete, from the gateway's answer or the interrupt
+        for (Pending p; (p = pending.poll()) != null; ) refuse(p);
+        for (Pending p : backingOff) {
+            if (backingOff.remove(p)) refuse(p);
+        }
+    }
+}
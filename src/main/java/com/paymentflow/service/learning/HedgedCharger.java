@@ -0,0 +1,151 @@
+package com.paymentflow.service.learning;
+
+import com.paymentflow.gateway.AsyncPaymentGateway;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Hedged charges ("The Tail at Scale"): if a charge is still running after the gateway's recent p-th
+ * percentile latency, a second attempt is sent and the first success wins.
+ * <p>
+ * Double-charge safety: both attempts carry the payment id as idempotency token. A hedge to the same
+ * gateway is de-duplicated by the gateway (the loser gets the winner's result back). A hedge to another
+ * gateway can't be, so the losing attempt is cancelled, and if it had already gone through it is voided.
+ * <p>
+ * Meters: {@code payment.hedge.charges}/{@code payment.hedge.issued} give the hedge rate,
+ * {@code payment.hedge.latency{attempt=primary|effective}} the p99 gain (primary latency of a lost
+ * primary is a lower bound: it is cancelled when the hedge wins).
+ */
+class HedgedCharger {
+
+    private final ScheduledExecutorService scheduler;
+    private final int percentile;
+    private final int minSamples;
+    private final Map<AsyncPaymentGateway, LatencyTracker> latencies = new ConcurrentHashMap<>();
+
+    private final Counter charges;
+    private final Counter issued;
+    private final Counter hedgeWins;
+    private final Counter voided;
+    private final Timer primaryLatency;
+    private final Timer effectiveLatency;
+
+    HedgedCharger(ScheduledExecutorService scheduler, int percentile, int minSamples, MeterRegistry registry) {
+        this.scheduler = scheduler;
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.charges = Counter.builder("payment.hedge.charges").description("charges eligible for hedging").register(registry);
+        this.issued = Counter.builder("payment.hedge.issued").description("hedged attempts sent").register(registry);
+        this.hedgeWins = Counter.builder("payment.hedge.wins").description("hedged attempts that finished first").register(registry);
+        this.voided = Counter.builder("payment.hedge.voided").description("losing cross-gateway charges voided").register(registry);
+        this.primaryLatency = Timer.builder("payment.hedge.latency").tag("attempt", "primary")
+                .publishPercentiles(0.5, 0.99).register(registry);
+        this.effectiveLatency = Timer.builder("payment.hedge.latency").tag("attempt", "effective")
+                .publishPercentiles(0.5, 0.99).register(registry);
+    }
+
+    /**
+     * One charge attempt of {@code payment} on {@code primary}, hedged on {@code hedge} (the same gateway or
+     * an alternate) once it runs longer than usual. Completes with the first success, or with the last
+     * failure when every attempt failed.
+     */
+    CompletableFuture<PaymentResult> charge(Payment payment, AsyncPaymentGateway primary, AsyncPaymentGateway hedge) {
+        return charge(payment, primary, hedge, gateway -> { });
+    }
+
+    /**
+     * As above; {@code answeredBy} is told which gateway's answer decided the outcome (the winner, or the
+     * attempt whose failure ended it) before the returned future completes.
+     */
+    CompletableFuture<PaymentResult> charge(Payment payment, AsyncPaymentGateway primary, AsyncPaymentGateway hedge,
+                                            Consumer<AsyncPaymentGateway> answeredBy) {
+        charges.increment();
+        long start = System.nanoTime();
+        var attempt = new HedgedAttempt(payment, answeredBy);
+        LatencyTracker tracker = latencies.computeIfAbsent(primary, g -> new LatencyTracker(1024, percentile, minSamples));
+
+        CompletableFuture<PaymentResult> first = primary.chargeAsync(payment);
+        attempt.register(first, primary);
+        first.whenComplete((r, e) -> {
+            long elapsed = System.nanoTime() - start;
+            primaryLatency.record(elapsed, TimeUnit.NANOSECONDS);
+            if (!first.isCancelled()) tracker.record(elapsed);
+            attempt.onComplete(primary, false, r, e);
+        });
+
+        long delay = tracker.value(); // -1 until there is enough history to know what "slow" means
+        if (delay >= 0) {
+            ScheduledFuture<?> timer = scheduler.schedule(() -> attempt.hedge(hedge), delay, TimeUnit.NANOSECONDS);
+            attempt.result.whenComplete((r, e) -> timer.cancel(false));
+        }
+        attempt.result.whenComplete((r, e) -> effectiveLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        return attempt.result;
+    }
+
+    private final class HedgedAttempt {
+        final CompletableFuture<PaymentResult> result = new CompletableFuture<>();
+        final Payment payment;
+        // attempts still running; 0 means the outcome is decided and no new hedge may start
+        final AtomicInteger running = new AtomicInteger(1);
+        final AtomicReference<AsyncPaymentGateway> winner = new AtomicReference<>();
+        final Map<CompletableFuture<PaymentResult>, AsyncPaymentGateway> attempts = new ConcurrentHashMap<>();
+        final Consumer<AsyncPaymentGateway> answeredBy;
+
+        HedgedAttempt(Payment payment, Consumer<AsyncPaymentGateway> answeredBy) {
+            this.payment = payment;
+            this.answeredBy = answeredBy;
+        }
+
+        void register(CompletableFuture<PaymentResult> call, AsyncPaymentGateway gateway) {
+            attempts.put(call, gateway);
+        }
+
+        void hedge(AsyncPaymentGateway gateway) {
+            if (result.isDone()) return;
+            // don't start once the primary already failed for good: the caller has its answer
+            if (running.getAndUpdate(n -> n == 0 ? 0 : n + 1) == 0) return;
+            issued.increment();
+            CompletableFuture<PaymentResult> call = gateway.chargeAsync(payment);
+            register(call, gateway);
+            call.whenComplete((r, e) -> onComplete(gateway, true, r, e));
+            if (result.isDone()) call.cancel(false); // the primary won while we were sending
+        }
+
+        void onComplete(AsyncPaymentGateway gateway, boolean isHedge, PaymentResult r, Throwable e) {
+            if (e == null) {
+                if (winner.compareAndSet(null, gateway)) {
+                    if (isHedge) hedgeWins.increment();
+                    answeredBy.accept(gateway);
+                    result.complete(r);
+                    // stop the other attempt; if it still goes through, the branch below voids it
+                    attempts.keySet().forEach(call -> call.cancel(false)); // no-op on the finished ones
+                } else if (winner.get() != gateway) {
+                    // charged by two different gateways: give the loser's money back
+                    voided.increment();
+                    gateway.voidCharge(payment);
+                }
+                // same gateway: its idempotency already made this the same charge
+                return;
+            }
+            if (e instanceof CancellationException) return; // a loser we stopped
+            if (running.decrementAndGet() == 0) {
+                answeredBy.accept(gateway);
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
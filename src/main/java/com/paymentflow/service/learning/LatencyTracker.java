@@ -0,0 +1,53 @@
+package com.paymentflow.service.learning;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Percentile of the last {@code capacity} latencies. Recording is a slot write; the percentile is
+ * recomputed (copy + sort) by whichever caller crosses a refresh boundary and cached for everyone else,
+ * so reads on the hot path are one volatile load.
+ */
+class LatencyTracker {
+
+    private static final int REFRESH_EVERY = 64;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+    private final double percentile;
+    private final int minSamples;
+    private volatile long cached = -1;
+
+    /**
+     * @param percentile 0-100, e.g. 95 for p95
+     * @param minSamples below this the tracker has no opinion ({@link #value()} returns -1)
+     */
+    LatencyTracker(int capacity, double percentile, int minSamples) {
+        if (percentile <= 0 || percentile > 100) throw new IllegalArgumentException("percentile must be in (0, 100]");
+        this.samples = new AtomicLongArray(capacity);
+        this.percentile = percentile;
+        this.minSamples = Math.min(minSamples, capacity);
+    }
+
+    void record(long latencyNanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % samples.length()), latencyNanos);
+        if (n + 1 >= minSamples && ((n + 1) % REFRESH_EVERY == 0 || cached < 0)) {
+            cached = compute(Math.min(n + 1, samples.length()));
+        }
+    }
+
+    /** Cached percentile in nanos, or -1 until {@code minSamples} latencies were recorded. */
+    long value() {
+        return cached;
+    }
+
+    private long compute(long filled) {
+        long[] copy = new long[(int) filled];
+        for (int i = 0; i < copy.length; i++) copy[i] = samples.get(i);
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(percentile / 100.0 * copy.length) - 1;
+        return copy[Math.max(0, Math.min(copy.length - 1, idx))];
+    }
+}
@@ -1,128 +1,629 @@
 package com.paymentflow.service.learning;
 
+import com.paymentflow.gateway.AsyncPaymentGateway;
+import com.paymentflow.gateway.GatewayRouter;
 import com.paymentflow.gateway.PaymentGateway;
 import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentPriority;
 import com.paymentflow.model.PaymentRequest;
 import com.paymentflow.model.PaymentResult;
 import com.paymentflow.model.PaymentStatus;
 import com.paymentflow.repository.PaymentRepository;
+import com.paymentflow.service.IdempotencyStore;
 import com.paymentflow.service.PaymentService;
+import com.paymentflow.service.PaymentStatusWaiters;
+import com.paymentflow.service.PaymentValidation;
+import com.paymentflow.service.ServiceOverloadedException;
+import com.paymentflow.service.ServiceShuttingDownException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Learning mode: accept fast (202) and process asynchronously in a manual thread pool.
+ * Learning mode: accept fast (202) and process asynchronously in a manual thread pool. Created with
+ * {@code payment.mode: learning}, the default.
+ * <p>
+ * On shutdown (see {@link #stop()}) admission closes, queued payments are handed over to the next instance
+ * and in-flight ones get {@code payment.learning.shutdown.drain-timeout} to settle.
+ * <p>
+ * With {@code executor: sharded} every write after the PROCESSING one runs on the payment's shard thread,
+ * async and batched completions included. The PROCESSING write itself stays on the request thread, since a 202
+ * must mean the payment is stored, and the enqueue that follows it orders it before anything the shard does.
  */
 @Service("learningPaymentService")
-public class LearningPaymentService implements PaymentService {
+@ConditionalOnProperty(name = "payment.mode", havingValue = "learning", matchIfMissing = true)
+public class LearningPaymentService implements PaymentService, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(LearningPaymentService.class);
 
     private final PaymentRepository repository;
-    private final PaymentGateway stripeGateway;
-    private final PaymentGateway payPalGateway;
+    // recovery cut-off: PROCESSING payments created before this were accepted by an earlier instance
+    private final Instant createdAt = Instant.now();
+    // SSE / long-poll clients, told on the terminal write instead of polling the repository
+    private final PaymentStatusWaiters waiters;
+    // which gateway(s) may take a payment, best first, from live latency / success statistics
+    private final GatewayRouter router;
 
-    // 4 workers, queue capacity 100
-    private final ManualThreadPool pool = new ManualThreadPool(4,100);
+    // platform: 4 workers, queue capacity 100 | virtual: one virtual thread per payment
+    // | sharded: one thread per shard, a payment's whole life on the shard its key hashes to
+    private final PaymentExecutor pool;
+    // sharded only: shard by merchant instead of payment id, so one merchant's payments are also serial
+    private final boolean shardByMerchant;
 
-    private final ManualCircuitBreaker breaker = new ManualCircuitBreaker(
-            3,
-            100,
-            2
-    );
-    private final ManualRateLimiter limiter = new ManualRateLimiter(20);
-    private final ManualCache<String, UUID> idemCache = new ManualCache<>();
+    // one breaker per gateway: a Stripe outage must not fast-fail PayPal payments
+    private final Map<PaymentGateway, SlidingWindowCircuitBreaker> breakers;
+    // one limiter per gateway, so a slow PayPal doesn't eat Stripe's permits (fixed semaphore or adaptive)
+    private final Map<PaymentGateway, ConcurrencyLimiter> limiters;
+    private final IdempotencyStore idempotency;
+    // empty unless payment.learning.batch.enabled: then charges go through one micro-batcher per gateway
+    private final Map<PaymentGateway, GatewayBatcher> batchers;
+    // blocking: worker waits in charge() and sleeps between retries | async: chargeAsync + scheduled retries
+    private final boolean asyncGateways;
+    private final ScheduledExecutorService scheduler;
+    // async mode only, null unless payment.learning.hedge.enabled: slow charges get a second attempt
+    private final HedgedCharger hedger;
+    private final boolean hedgeToAlternate;
+    private final PaymentMetrics metrics;
+    // how long a request thread may wait for a queue slot before the request is refused with 429
+    private final long enqueueTimeoutMs;
 
+    // shutdown: how long in-flight payments get to settle before their threads are interrupted
+    private final Duration drainTimeout;
+    // payments taken off the queue and not finished yet, including async / batched charges on the wire
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean running = false;
+    // set by stop(): no new payments are accepted
+    private volatile boolean draining = false;
+    // set when the drain deadline passed: interrupted payments are left PROCESSING instead of failed
+    private volatile boolean abandoned = false;
 
     public LearningPaymentService(PaymentRepository repository,
-                                  @Qualifier("stripeGateway") PaymentGateway stripeGateway,
-                                  @Qualifier("payPalGateway")  PaymentGateway payPalGateway) {
+                                  List<PaymentGateway> gateways,
+                                  GatewayRouter router,
+                                  PaymentStatusWaiters waiters,
+                                  FairQueueProperties fairQueue,
+                                  @Value("${payment.learning.executor:platform}") String executorMode,
+                                  @Value("${payment.learning.queue:monitor}") String queueType,
+                                  @Value("${payment.learning.wait-strategy:park}") String waitStrategy,
+                                  @Value("${payment.learning.shard.count:0}") int shardCount,
+                                  @Value("${payment.learning.shard.queue-capacity:128}") int shardQueueCapacity,
+                                  @Value("${payment.learning.shard.key:payment}") String shardKey,
+                                  @Value("${payment.learning.max-concurrent:20}") int maxConcurrent,
+                                  @Value("${payment.learning.limiter:fixed}") String limiterType,
+                                  @Value("${payment.learning.limiter-max:200}") int limiterMax,
+                                  @Value("${payment.learning.batch.enabled:false}") boolean batchEnabled,
+                                  @Value("${payment.learning.batch.max-size:32}") int batchMaxSize,
+                                  @Value("${payment.learning.batch.linger-ms:5}") long batchLingerMs,
+                                  @Value("${payment.learning.gateway-mode:blocking}") String gatewayMode,
+                                  @Qualifier("gatewayScheduler") ScheduledExecutorService scheduler,
+                                  @Value("${payment.learning.idempotency.max-entries:100000}") int idempotencyMaxEntries,
+                                  @Value("${payment.learning.idempotency.ttl:24h}") Duration idempotencyTtl,
+                                  @Value("${payment.learning.enqueue-timeout-ms:50}") long enqueueTimeoutMs,
+                                  @Value("${payment.learning.shutdown.drain-timeout:20s}") Duration drainTimeout,
+                                  @Value("${payment.learning.breaker.window-size:50}") int breakerWindow,
+                                  @Value("${payment.learning.breaker.minimum-calls:10}") int breakerMinimumCalls,
+                                  @Value("${payment.learning.breaker.failure-rate:50}") int breakerFailureRate,
+                                  @Value("${payment.learning.breaker.slow-call-rate:80}") int breakerSlowCallRate,
+                                  @Value("${payment.learning.breaker.slow-call:2s}") Duration breakerSlowCall,
+                                  @Value("${payment.learning.breaker.open-duration:1s}") Duration breakerOpenDuration,
+                                  @Value("${payment.learning.breaker.half-open-probes:3}") int breakerProbes,
+                                  @Value("${payment.learning.hedge.enabled:false}") boolean hedgeEnabled,
+                                  @Value("${payment.learning.hedge.percentile:95}") int hedgePercentile,
+                                  @Value("${payment.learning.hedge.min-samples:100}") int hedgeMinSamples,
+                                  @Value("${payment.learning.hedge.target:same}") String hedgeTarget,
+                                  MeterRegistry meterRegistry) {
         this.repository = Objects.requireNonNull(repository);
-        this.stripeGateway = stripeGateway;
-        this.payPalGateway = payPalGateway;
+        this.router = router;
+        this.waiters = waiters;
+        this.metrics = new PaymentMetrics(meterRegistry, gateways);
+        boolean sharded = "sharded".equalsIgnoreCase(executorMode);
+        int queueCapacity = sharded ? shardQueueCapacity : 100;
+        var waits = RingBufferPaymentQueue.WaitStrategy.valueOf(waitStrategy.toUpperCase());
+        this.pool = PaymentExecutor.create(executorMode,
+                !sharded ? 4 : shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors(),
+                () -> PaymentQueue.create(queueType, queueCapacity, waits, fairQueue));
+        this.shardByMerchant = "merchant".equalsIgnoreCase(shardKey);
+        metrics.bindQueue(pool);
+        if (pool instanceof ShardedPaymentExecutor shards) metrics.bindShards(shards);
+        this.limiters = new HashMap<>();
+        this.batchers = new HashMap<>();
+        for (PaymentGateway gateway : gateways) {
+            ConcurrencyLimiter limiter = ConcurrencyLimiter.create(limiterType, maxConcurrent, limiterMax);
+            limiters.put(gateway, metrics.instrument(gateway, limiter));
+            if (batchEnabled) {
+                batchers.put(gateway, new GatewayBatcher(gateway, batchMaxSize, batchLingerMs, 3, 100,
+                        limiters.get(gateway)));
+            }
+        }
+        this.asyncGateways = "async".equalsIgnoreCase(gatewayMode);
+        this.scheduler = scheduler;
+        this.idempotency = new IdempotencyStore(idempotencyMaxEntries, idempotencyTtl);
+        metrics.bindIdempotency(idempotency);
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.drainTimeout = drainTimeout;
+        var breakerOptions = new SlidingWindowCircuitBreaker.Options(breakerWindow, breakerMinimumCalls,
+                breakerFailureRate, breakerSlowCallRate, breakerSlowCall, breakerOpenDuration, breakerProbes);
+        this.breakers = new HashMap<>();
+        for (PaymentGateway gateway : gateways) {
+            breakers.put(gateway, new SlidingWindowCircuitBreaker(breakerOptions, System::nanoTime,
+                    metrics.breakerListener(gateway)));
+        }
+        breakers.forEach(metrics::bindBreaker);
+        this.hedger = hedgeEnabled ? new HedgedCharger(scheduler, hedgePercentile, hedgeMinSamples, meterRegistry) : null;
+        this.hedgeToAlternate = "alternate".equalsIgnoreCase(hedgeTarget);
     }
 
     @Override
     public PaymentResult createPayment(PaymentRequest request) {
-        // Idempotency
-        UUID pid = request.idempotencyKey() == null ? UUID.randomUUID()
-                : idemCache.remember(request.idempotencyKey(), key -> UUID.randomUUID());
+        if (draining) throw shuttingDown();
+        String key = request.idempotencyKey();
+        UUID pid = UUID.randomUUID();
+        String invalid = PaymentValidation.invalidReason(request, router);
+        if (invalid != null) return PaymentResult.failed(pid, "INVALID: " + invalid); // nothing stored
+
+        // Idempotency: a duplicate gets the stored result back and is never enqueued again
+        if (key != null) {
+            PaymentResult previous = idempotency.putIfAbsent(key, PaymentResult.accepted(pid));
+            if (previous != null) return previous;
+        }
+
+        var payment = newPayment(pid, request);
+        repository.save(payment);
 
-        var payment = new Payment(
+        try {
+            long acceptedAt = System.nanoTime();
+            var task = new PaymentTask(payment, key, acceptedAt,
+                    request.priority() != null ? request.priority() : PaymentPriority.CHECKOUT);
+            boolean enqueued = pool.tryExecute(task, enqueueTimeoutMs);
+            metrics.recordEnqueueWait(System.nanoTime() - acceptedAt);
+            if (enqueued) {
+                return PaymentResult.accepted(payment.id());
+            }
+            repository.save(payment.withFailure("QUEUE_FULL"));
+            if (key != null) idempotency.remove(key); // refused, not processed: the retry must go through
+            throw new ServiceOverloadedException("Payment queue is full", Duration.ofSeconds(1));
+
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            repository.save(payment.withFailure("QUEUE_INTERRUPTED"));
+            if (key != null) idempotency.remove(key); // not accepted: let the client retry with the same key
+            return PaymentResult.failed(payment.id(), "System interrupted");
+        } catch (IllegalStateException shutDown) {
+            // stop() closed the pool between the check above and the enqueue
+            repository.save(payment.withFailure("SHUTTING_DOWN"));
+            if (key != null) idempotency.remove(key);
+            throw shuttingDown();
+        }
+    }
+
+    /**
+     * Bulk variant: one repository batch write for the whole list, then each payment is enqueued with a
+     * blocking put, so a full queue slows the caller down (backpressure) instead of refusing items.
+     * Idempotency keys are honoured per item, duplicates inside the same list included. Items that don't
+     * say otherwise are PAYOUT work, so with the fair queue a bulk upload doesn't hold checkouts back.
+     */
+    @Override
+    public List<PaymentResult> createPayments(List<PaymentRequest> requests) {
+        if (draining) throw shuttingDown();
+        PaymentResult[] results = new PaymentResult[requests.size()];
+        List<Payment> fresh = new ArrayList<>(requests.size());
+        int[] slots = new int[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            PaymentRequest request = requests.get(i);
+            UUID pid = UUID.randomUUID();
+            String invalid = PaymentValidation.invalidReason(request, router);
+            if (invalid != null) {
+                results[i] = PaymentResult.failed(pid, "INVALID: " + invalid);
+                continue;
+            }
+            if (request.idempotencyKey() != null) {
+                PaymentResult previous = idempotency.putIfAbsent(request.idempotencyKey(), PaymentResult.accepted(pid));
+                if (previous != null) {
+                    results[i] = previous;
+                    continue;
+                }
+            }
+            slots[fresh.size()] = i;
+            fresh.add(newPayment(pid, request));
+        }
+        repository.saveAll(fresh);
+
+        for (int j = 0; j < fresh.size(); j++) {
+            Payment payment = fresh.get(j);
+            String key = requests.get(slots[j]).idempotencyKey();
+            String refused;
+            try {
+                long acceptedAt = System.nanoTime();
+                PaymentPriority priority = requests.get(slots[j]).priority();
+                pool.execute(new PaymentTask(payment, key, acceptedAt, priority != null ? priority : PaymentPriority.PAYOUT));
+                metrics.recordEnqueueWait(System.nanoTime() - acceptedAt);
+                results[slots[j]] = PaymentResult.accepted(payment.id());
+                continue;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                refused = "QUEUE_INTERRUPTED";
+            } catch (IllegalStateException shutDown) {
+                refused = "SHUTTING_DOWN";
+            }
+            // this one and everything after it was never enqueued: fail them so a retry goes through
+            for (int k = j; k < fresh.size(); k++) {
+                Payment p = fresh.get(k);
+                String failedKey = requests.get(slots[k]).idempotencyKey();
+                repository.save(p.withFailure(refused));
+                if (failedKey != null) idempotency.remove(failedKey);
+                results[slots[k]] = PaymentResult.failed(p.id(), refused.equals("SHUTTING_DOWN")
+                        ? "Service shutting down" : "System interrupted");
+            }
+            break;
+        }
+        return Arrays.asList(results);
+    }
+
+    private static ServiceShuttingDownException shuttingDown() {
+        return new ServiceShuttingDownException(Duration.ofSeconds(1));
+    }
+
+    private static Payment newPayment(UUID pid, PaymentRequest request) {
+        return new Payment(
                 pid,
                 request.amount() != null ? request.amount() : BigDecimal.ZERO,
                 request.currency(),
                 request.method(),
                 PaymentStatus.PROCESSING,
                 Instant.now(),
-                null
+                null,
+                request.merchantId()
         );
-        repository.save(payment);
+    }
 
-        try {
-            pool.execute(() -> processAsync(payment));
-            return PaymentResult.accepted(payment.id());
+    /**
+     * Payments recovered in PROCESSING (e.g. replayed from the write-ahead log after a restart)
+     * were never settled: put them back on the processing queue. Only those from before this
+     * instance was created: the web server may already have accepted (and queued) new ones.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeRecoveredPayments() {
+        for (Payment payment : repository.findByStatus(PaymentStatus.PROCESSING, createdAt)) {
+            try {
+                pool.execute(new PaymentTask(payment, null, 0, PaymentPriority.RETRY));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IllegalStateException shutDown) {
+                return; // still PROCESSING: whoever starts next resumes them
+            }
+        }
+    }
 
-        } catch (InterruptedException ie) {
+    /**
+     * What sits on the processing queue; identifies the payment when the queue is handed over at shutdown,
+     * and tells the fair queue whose work it is.
+     */
+    private final class PaymentTask implements Runnable, FairPaymentQueue.Scheduled, ShardedPaymentExecutor.Keyed {
+        final Payment payment;
+        final String idempotencyKey;
+        final long acceptedAt;
+        final PaymentPriority priority;
+
+        PaymentTask(Payment payment, String idempotencyKey, long acceptedAt, PaymentPriority priority) {
+            this.payment = payment;
+            this.idempotencyKey = idempotencyKey;
+            this.acceptedAt = acceptedAt;
+            this.priority = priority;
+        }
+
+        @Override
+        public String tenant() {
+            return payment.merchantId();
+        }
+
+        @Override
+        public PaymentPriority priority() {
+            return priority;
+        }
+
+        @Override
+        public Object shardKey() {
+            return LearningPaymentService.this.shardKey(payment);
+        }
+
+        @Override
+        public void run() {
+            inFlight.incrementAndGet(); // back down in finish(), whichever thread settles the payment
+            processAsync(payment, idempotencyKey, acceptedAt);
+        }
+    }
+
+    private Object shardKey(Payment payment) {
+        return shardByMerchant && payment.merchantId() != null ? payment.merchantId() : payment.id();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Graceful shutdown, after the web server stopped taking requests:
+     * <ol>
+     *   <li>admission closes; queued payments are taken off the queue unrun. They were saved PROCESSING
+     *       when accepted, so with durable storage the next instance resumes them on startup;</li>
+     *   <li>payments already being charged get {@code drainTimeout} to settle;</li>
+     *   <li>past the deadline the workers are interrupted. A payment interrupted mid-charge or mid-retry
+     *       stays PROCESSING rather than being failed, and is resumed too: gateways de-duplicate charges
+     *       by payment id, so a charge that did go through is not taken twice;</li>
+     *   <li>the gateway batchers are closed. Whatever they still hold, queued or backing off, was not charged
+     *       and stays PROCESSING the same way;</li>
+     *   <li>the repository is flushed, so nothing of the above is lost in the write-ahead log's group commit.</li>
+     * </ol>
+     */
+    @Override
+    public void stop() {
+        draining = true;
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        List<Runnable> queued = pool.shutdown();
+        boolean drained = false;
+        try {
+            drained = pool.awaitTermination(drainTimeout.toMillis()) && awaitSettled(deadline);
+        } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            repository.save(payment.withFailure("QUEUE_INTERRUPTED"));
-            return PaymentResult.failed(payment.id(), "System interrupted");
         }
+        int unsettled = 0;
+        if (!drained) {
+            abandoned = true;
+            unsettled = inFlight.get();
+            pool.shutdownNow();
+        }
+        batchers.values().forEach(GatewayBatcher::close); // answers what they still hold, see the batched path
+        pool.shutdown().forEach(queued::add); // a put that was already blocked may have slipped in
+        repository.flush();
+        running = false;
+
+        if (queued.isEmpty() && drained) return;
+        if (repository.durable()) {
+            log.warn("Payment shutdown: {} queued payment(s) handed over, {} in flight past the {} drain deadline"
+                    + " (left PROCESSING for the next instance)", queued.size(), unsettled, drainTimeout);
+        } else {
+            log.error("Payment shutdown: {} queued payment(s) handed over, {} in flight past the {} drain deadline"
+                    + " -- LOST: storage is not durable, enable payment.wal", queued.size(), unsettled, drainTimeout);
+        }
+    }
+
+    // Waits (until the deadline) for async and batched charges that outlive the worker that started them
+    private boolean awaitSettled(long deadline) throws InterruptedException {
+        synchronized (inFlight) {
+            while (inFlight.get() > 0) {
+                long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (left <= 0) return false;
+                inFlight.wait(left);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop only once the web server has stopped, so no request thread is still handing us payments: lower phases
+    // stop later, and the server's graceful shutdown and its start/stop lifecycle take the two phases above this
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
     }
 
-    private void processAsync(Payment payment) {
+    // acceptedAt: System.nanoTime() when the request was accepted, 0 for recovered payments
+    private void processAsync(Payment payment, String idempotencyKey, long acceptedAt) {
+
+        // Best eligible gateway whose breaker lets us through; an open breaker means failover, not failure
+        PaymentGateway gw = null;
+        SlidingWindowCircuitBreaker breaker = null;
+        List<PaymentGateway> candidates = router.route(payment);
+        for (PaymentGateway candidate : candidates) {
+            SlidingWindowCircuitBreaker b = breakers.get(candidate);
+            if (b.allowRequest()) {
+                gw = candidate;
+                breaker = b;
+                break;
+            }
+        }
+        if (gw == null) {
+            finish(payment.withFailure("CIRCUIT_OPEN"), idempotencyKey);
+            return;
+        }
+        ConcurrencyLimiter limiter = limiters.get(gw);
+        long start = System.nanoTime(); // call duration feeds the breaker's slow-call rate
+        if (acceptedAt != 0) metrics.recordFirstAttempt(start - acceptedAt);
+
+        // Batched: hand off and free the worker; the batcher limits and retries per item
+        GatewayBatcher batcher = batchers.get(gw);
+        if (batcher != null) {
+            PaymentGateway chosen = gw;
+            SlidingWindowCircuitBreaker chosenBreaker = breaker;
+            batcher.submit(payment).whenComplete((result, error) -> {
+                if (error instanceof RejectedExecutionException && abandoned) {
+                    leave(); // closed at the shutdown deadline before it was charged: stays PROCESSING
+                    return;
+                }
+                pool.resume(shardKey(payment),
+                        () -> settle(payment, idempotencyKey, chosen, chosenBreaker, start, error));
+            });
+            return;
+        }
 
-        // Circuit breaker fast-fail
-        if (!breaker.allowRequest()) {
-            repository.save(payment.withFailure("CIRCUIT_OPEN"));
+        if (asyncGateways && gw instanceof AsyncPaymentGateway async) {
+            processNonBlocking(payment, idempotencyKey, gw, async, hedgeTarget(gw, async, candidates), limiter, breaker);
             return;
         }
+
         boolean acquired = false;
 
         try {
             //Rate limit (concurrency)
             acquired = limiter.acquire(200); //wait up to 200ms
-            if (acquired) {
-                repository.save(payment.withFailure("RATE_LIMIT"));
+            if (!acquired) {
+                finish(payment.withFailure("RATE_LIMIT"), idempotencyKey);
                 breaker.recordFailure(); // because we refused to call downstream
                 return;
             }
-            var gw = selectGateway(payment.method());
-            // Retry only for transient gateway exceptions
-            PaymentResult result = ManualRetry.execute(3, 100, () -> gw.charge(payment));
-            repository.save(payment.succeed());
-            breaker.recordSuccess();
+            // Retry only for transient gateway exceptions; every attempt is a latency sample for the limiter
+            PaymentGateway chosen = gw;
+            PaymentResult result = ManualRetry.execute(3, 100, metrics.retryListener(gw), () -> {
+                long attemptStart = System.nanoTime();
+                boolean ok = false;
+                try {
+                    PaymentResult r = chosen.charge(payment);
+                    ok = true;
+                    return r;
+                } finally {
+                    limiter.onSample(System.nanoTime() - attemptStart, ok);
+                }
+            });
+            finish(payment.succeed(), idempotencyKey);
+            recordOutcome(gw, breaker, start, true);
         } catch (PaymentGateway.GatewayException ge) {
-            breaker.recordFailure();
-            repository.save(payment.withFailure(ge.getMessage()));
+            recordOutcome(gw, breaker, start, false);
+            finish(payment.withFailure(ge.getMessage()), idempotencyKey);
         } catch (InterruptedException ie) {
             Thread.currentThread().interrupt();
             breaker.recordFailure();
-            repository.save(payment.withFailure("INTERRUPTED"));
+            if (abandoned) return; // shutdown deadline: stays PROCESSING, the next instance resumes it
+            finish(payment.withFailure("INTERRUPTED"), idempotencyKey);
         } catch (Exception e) {
-            breaker.recordFailure();
-            repository.save(payment.withFailure("UNEXPECTED: " + e.getClass().getSimpleName()));
+            recordOutcome(gw, breaker, start, false);
+            finish(payment.withFailure("UNEXPECTED: " + e.getClass().getSimpleName()), idempotencyKey);
         } finally {
             if (acquired) limiter.release();
         }
     }
 
+    // The permit is held until the future completes, so the limiter still bounds in-flight charges,
+    // but no thread is parked while they are on the wire
+    private void processNonBlocking(Payment payment, String idempotencyKey, PaymentGateway gateway,
+                                    AsyncPaymentGateway gw, AsyncPaymentGateway hedgeGw,
+                                    ConcurrencyLimiter limiter, SlidingWindowCircuitBreaker breaker) {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = limiter.acquire(200);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            breaker.recordFailure();
+            if (abandoned) return; // shutdown deadline: stays PROCESSING, the next instance resumes it
+            finish(payment.withFailure("INTERRUPTED"), idempotencyKey);
+            return;
+        }
+        if (!acquired) {
+            finish(payment.withFailure("RATE_LIMIT"), idempotencyKey);
+            breaker.recordFailure();
+            return;
+        }
+        // a hedge to the alternate may be the one that answered: its statistics get the outcome, not the primary's
+        var answered = new AtomicReference<PaymentGateway>(gateway);
+        ManualRetry.executeAsync(3, 100, scheduler, metrics.retryListener(gateway), () -> {
+                    long attemptStart = System.nanoTime();
+                    answered.set(gateway);
+                    var call = hedger != null
+                            ? hedger.charge(payment, gw, hedgeGw, g -> answered.set(g instanceof PaymentGateway p ? p : gateway))
+                            : gw.chargeAsync(payment);
+                    return call.whenComplete((r, e) ->
+                            limiter.onSample(System.nanoTime() - attemptStart, e == null));
+                })
+                .whenComplete((result, error) -> {
+                    limiter.release();
+                    PaymentGateway by = answered.get();
+                    SlidingWindowCircuitBreaker byBreaker = breakers.getOrDefault(by, breaker);
+                    pool.resume(shardKey(payment), () -> settle(payment, idempotencyKey, by, byBreaker, start, error));
+                });
+    }
+
+    // Same gateway (its idempotency de-duplicates), or the next healthy eligible one when configured
+    private AsyncPaymentGateway hedgeTarget(PaymentGateway primary, AsyncPaymentGateway primaryAsync,
+                                            List<PaymentGateway> candidates) {
+        if (!hedgeToAlternate) return primaryAsync;
+        for (PaymentGateway candidate : candidates) {
+            if (candidate != primary && candidate instanceof AsyncPaymentGateway async
+                    && breakers.get(candidate).getState() == SlidingWindowCircuitBreaker.State.CLOSED) {
+                return async;
+            }
+        }
+        return primaryAsync;
+    }
+
+    // Completion of a batched or async charge, back on the payment's own thread when sharded (see resume)
+    // error == null means the gateway accepted it
+    private void settle(Payment payment, String idempotencyKey, PaymentGateway gw,
+                        SlidingWindowCircuitBreaker breaker, long start, Throwable error) {
+        if (error == null) {
+            finish(payment.succeed(), idempotencyKey);
+            recordOutcome(gw, breaker, start, true);
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        recordOutcome(gw, breaker, start, false);
+        finish(payment.withFailure(cause instanceof PaymentGateway.GatewayException
+                ? cause.getMessage() : "UNEXPECTED: " + cause.getClass().getSimpleName()), idempotencyKey);
+    }
+
+    // A charge the gateway answered (retries included): feeds the breaker and the router's statistics
+    private void recordOutcome(PaymentGateway gw, SlidingWindowCircuitBreaker breaker, long start, boolean success) {
+        long elapsed = System.nanoTime() - start;
+        if (success) {
+            breaker.recordSuccess(elapsed);
+        } else {
+            breaker.recordFailure(elapsed);
+        }
+        router.record(gw, elapsed, success);
+    }
+
+    // Terminal write: the stored idempotent response becomes the final outcome
+    private void finish(Payment terminal, String idempotencyKey) {
+        Payment stored = repository.save(terminal);
+        PaymentResult result = PaymentResult.of(stored);
+        if (idempotencyKey != null) idempotency.update(idempotencyKey, result);
+        if (stored.status().isTerminal()) waiters.complete(result);
+        leave();
+    }
+
+    // A payment this instance stops working on, settled or left PROCESSING for the next one
+    private void leave() {
+        if (inFlight.decrementAndGet() == 0 && draining) {
+            synchronized (inFlight) {
+                inFlight.notifyAll();
+            }
+        }
+    }
+
     @Override
     public PaymentResult getStatus(UUID paymentId) {
         return repository.findById(paymentId)
-                .map(p -> new PaymentResult(p.id(), p.status(), p.failureReason()))
+                .map(PaymentResult::of)
                 .orElseGet(() -> new PaymentResult(paymentId, PaymentStatus.FAILED, "Not found"));
     }
-
-    private PaymentGateway selectGateway(String method) {
-        String m = method == null ? "" : method.toLowerCase();
-        return switch (m) {
-            case "stripe" -> stripeGateway;
-            case "paypal" -> payPalGateway;
-            default -> stripeGateway; // default for Sprint 1
-        };
-    }
 }
@@ -1,10 +1,11 @@
 package com.paymentflow.service.learning;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Queue;
 
 // Not for production use, it's for learning thread coordination.
-public class ManualPaymentQueue<T> {
+public class ManualPaymentQueue<T> implements PaymentQueue<T> {
 
     private final Queue<T> queue = new ArrayDeque<>();
     private final int capacity;
@@ -14,6 +15,7 @@ public class ManualPaymentQueue<T> {
         this.capacity = capacity;
     }
 
+    @Override
     public synchronized void put(T item) throws InterruptedException {
         while (queue.size() == capacity) {
             wait(); //wait until there's space
@@ -22,6 +24,20 @@ public class ManualPaymentQueue<T> {
         notifyAll();
     }
 
+    @Override
+    public synchronized boolean offer(T item, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + Math.max(0, timeoutMillis);
+        while (queue.size() == capacity) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) return false;
+            wait(left);
+        }
+        queue.add(item);
+        notifyAll();
+        return true;
+    }
+
+    @Override
     public synchronized T take() throws InterruptedException {
         while (queue.isEmpty()) {
             wait();
@@ -31,7 +47,17 @@ public class ManualPaymentQueue<T> {
         return result;
     }
 
+    @Override
     public synchronized int size() {
         return queue.size();
     }
+
+    @Override
+    public synchronized int drainTo(Collection<? super T> sink) {
+        int n = queue.size();
+        sink.addAll(queue);
+        queue.clear();
+        if (n > 0) notifyAll(); // producers waiting for space
+        return n;
+    }
 }
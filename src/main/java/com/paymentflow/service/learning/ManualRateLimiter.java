@@ -4,16 +4,19 @@ import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 // Simple concurrency limiter using Semaphore
-public class ManualRateLimiter {
+public class ManualRateLimiter implements ConcurrencyLimiter {
     private final Semaphore semaphore;
+    private final int maxConcurrent;
 
     public ManualRateLimiter(int maxConcurrent) {
         if (maxConcurrent <= 0) {
             throw new IllegalArgumentException("maxConcurrent must be greater than 0");
         }
         this.semaphore = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
     }
 
+    @Override
     public boolean acquire(long maxWaitMillis) throws InterruptedException {
         if (maxWaitMillis <= 0) {
             return semaphore.tryAcquire();
@@ -21,11 +24,18 @@ public class ManualRateLimiter {
         return semaphore.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
     }
 
+    @Override
     public void release() {
         semaphore.release();
     }
 
+    @Override
     public int availablePermits() {
         return semaphore.availablePermits();
     }
+
+    @Override
+    public int inUse() {
+        return maxConcurrent - semaphore.availablePermits();
+    }
 }
@@ -1,6 +1,10 @@
 package com.paymentflow.service.learning;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public class ManualRetry {
@@ -10,8 +14,21 @@ public class ManualRetry {
         T get() throws Exception;
     }
 
+    /** Told about every failed attempt that will be retried (not about the last one). */
+    @FunctionalInterface
+    public interface RetryListener {
+        RetryListener NONE = (attempt, error) -> { };
+
+        void onRetry(int failedAttempt, Throwable error);
+    }
+
     public static <T> T execute(int maxAttempts, long initialBackoffMs,
                                 SupplierWithException<T> action) throws Exception {
+        return execute(maxAttempts, initialBackoffMs, RetryListener.NONE, action);
+    }
+
+    public static <T> T execute(int maxAttempts, long initialBackoffMs, RetryListener listener,
+                                SupplierWithException<T> action) throws Exception {
         if (maxAttempts <= 0) throw new IllegalArgumentException("maxAttempts must be >= 1");
         long backoff = Math.max(1, initialBackoffMs);
         Exception last = null;
@@ -25,6 +42,7 @@ public class ManualRetry {
             } catch (Exception e) {
                 last = e;
                 if (attempt == maxAttempts) break;
+                listener.onRetry(attempt, e);
                 long jitter = ThreadLocalRandom.current().nextLong(Math.max(1, backoff / 2), backoff + 1);
                 try { Thread.sleep(jitter); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw ie; }
                 backoff = Math.min(backoff * 2, 2_000L);
@@ -33,4 +51,51 @@ public class ManualRetry {
         throw last;
     }
 
+    /**
+     * Same policy as {@link #execute}, but for async actions: the backoff is a scheduled task,
+     * so no thread sleeps between attempts.
+     */
+    public static <T> CompletableFuture<T> executeAsync(int maxAttempts, long initialBackoffMs,
+                                                        ScheduledExecutorService scheduler,
+                                                        Supplier<CompletableFuture<T>> action) {
+        return executeAsync(maxAttempts, initialBackoffMs, scheduler, RetryListener.NONE, action);
+    }
+
+    public static <T> CompletableFuture<T> executeAsync(int maxAttempts, long initialBackoffMs,
+                                                        ScheduledExecutorService scheduler, RetryListener listener,
+                                                        Supplier<CompletableFuture<T>> action) {
+        if (maxAttempts <= 0) throw new IllegalArgumentException("maxAttempts must be >= 1");
+        var result = new CompletableFuture<T>();
+        attemptAsync(1, maxAttempts, Math.max(1, initialBackoffMs), scheduler, listener, action, result);
+        return result;
+    }
+
+    private static <T> void attemptAsync(int attempt, int maxAttempts, long backoff, ScheduledExecutorService scheduler,
+                                         RetryListener listener, Supplier<CompletableFuture<T>> action,
+                                         CompletableFuture<T> result) {
+        if (result.isDone()) return; // cancelled by the caller
+        CompletableFuture<T> call;
+        try {
+            call = action.get();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        call.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (attempt >= maxAttempts) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            listener.onRetry(attempt, cause);
+            long jitter = ThreadLocalRandom.current().nextLong(Math.max(1, backoff / 2), backoff + 1);
+            scheduler.schedule(() -> attemptAsync(attempt + 1, maxAttempts, Math.min(backoff * 2, 2_000L),
+                    scheduler, listener, action, result), jitter, TimeUnit.MILLISECONDS);
+        });
+    }
+
 }
@@ -2,27 +2,82 @@ package com.paymentflow.service.learning;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-class ManualThreadPool {
-    private final ManualPaymentQueue<Runnable> queue;
+class ManualThreadPool implements PaymentExecutor {
+    // wakes an idle worker at shutdown so it notices and exits; never run
+    static final Runnable STOP = () -> {};
+
+    private final PaymentQueue<Runnable> queue;
     private final List<WorkerThread> workers = new ArrayList<>();
+    private volatile boolean shutdown = false;
 
     ManualThreadPool(int workerCount, int queueCapacity) {
-        this.queue = new ManualPaymentQueue<>(queueCapacity);
+        this(workerCount, new ManualPaymentQueue<>(queueCapacity));
+    }
+
+    ManualThreadPool(int workerCount, PaymentQueue<Runnable> queue) {
+        this.queue = queue;
         for (int i = 0; i < workerCount; i++) {
-            WorkerThread w = new WorkerThread(queue, "pay-worker-" + i);
+            WorkerThread w = new WorkerThread(queue, this, "pay-worker-" + i);
             w.start();
             workers.add(w);
         }
     }
 
+    @Override
     public void execute(Runnable task) throws InterruptedException {
+        if (shutdown) throw new IllegalStateException("Executor is shut down");
         queue.put(task);
     }
 
+    @Override
+    public boolean tryExecute(Runnable task, long timeoutMillis) throws InterruptedException {
+        if (shutdown) throw new IllegalStateException("Executor is shut down");
+        return queue.offer(task, timeoutMillis);
+    }
+
+    boolean isShutdown() {
+        return shutdown;
+    }
+
+    // A worker sees the flag after its current task; idle ones are blocked in take() and get a STOP each.
+    // A producer that was already blocked in put() may still slip a task in after the drain: some worker
+    // runs it on its way out, or it stays queued and the caller's next drain finds it.
+    @Override
+    public List<Runnable> shutdown() {
+        shutdown = true;
+        List<Runnable> queued = new ArrayList<>();
+        queue.drainTo(queued);
+        for (int i = 0; i < workers.size(); i++) {
+            try {
+                if (!queue.offer(STOP, 0)) break; // refilled: the queued tasks wake the workers instead
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        queued.removeIf(t -> t == STOP);
+        return queued;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (WorkerThread w : workers) {
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left > 0) w.join(left);
+            if (w.isAlive()) return false;
+        }
+        return true;
+    }
+
+    @Override
     public void shutdownNow() {
+        shutdown = true;
         workers.forEach(Thread::interrupt);
     }
 
+    @Override
     public int queueSize() {return queue.size();}
 }
@@ -0,0 +1,43 @@
+package com.paymentflow.service.learning;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Cache-line padding through inheritance (the JVM lays out superclass fields first),
+// so head and tail never share a line with each other or with neighbouring objects.
+abstract class SequenceLhsPadding {
+    protected long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SequenceValue extends SequenceLhsPadding {
+    protected volatile long value;
+}
+
+/**
+ * A volatile long counter padded on both sides to avoid false sharing.
+ */
+final class PaddedSequence extends SequenceValue {
+    protected long p11, p12, p13, p14, p15, p16, p17;
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    PaddedSequence(long initial) {
+        this.value = initial;
+    }
+
+    long get() {
+        return value;
+    }
+
+    boolean compareAndSet(long expected, long newValue) {
+        return VALUE.compareAndSet(this, expected, newValue);
+    }
+}
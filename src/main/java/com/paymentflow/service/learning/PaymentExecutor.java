@@ -0,0 +1,68 @@
+package com.paymentflow.service.learning;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Execution engine behind {@link LearningPaymentService}.
+ * Implementations decide how many payments can be in flight at once.
+ */
+interface PaymentExecutor {
+
+    void execute(Runnable task) throws InterruptedException;
+
+    /**
+     * Like {@link #execute} but waits at most {@code timeoutMillis} for room.
+     * Returns false when the executor is saturated; the task was not accepted.
+     */
+    boolean tryExecute(Runnable task, long timeoutMillis) throws InterruptedException;
+
+    int queueSize();
+
+    /**
+     * Stops admission ({@link #execute} and {@link #tryExecute} throw IllegalStateException from now on)
+     * and returns the tasks that were still queued, unrun. Tasks already running are left to finish.
+     */
+    List<Runnable> shutdown();
+
+    /**
+     * After {@link #shutdown}: waits at most {@code timeoutMillis} for running tasks to end.
+     * Returns false if some are still running.
+     */
+    boolean awaitTermination(long timeoutMillis) throws InterruptedException;
+
+    /** Interrupts whatever is still running. */
+    void shutdownNow();
+
+    /**
+     * Runs {@code continuation}, the rest of the work of a task with this shard key, which finished on some
+     * other thread (an async or batched charge). Never blocks and never refuses: the work was already admitted.
+     * Runs it right here by default; {@link ShardedPaymentExecutor} hands it to the key's own thread.
+     */
+    default void resume(Object key, Runnable continuation) {
+        continuation.run();
+    }
+
+    static PaymentExecutor create(String mode, int workerCount, int queueCapacity) {
+        return create(mode, workerCount, () -> new ManualPaymentQueue<>(queueCapacity));
+    }
+
+    static PaymentExecutor create(String mode, int workerCount, PaymentQueue<Runnable> queue) {
+        return create(mode, workerCount, () -> queue);
+    }
+
+    /**
+     * Builds the executor selected by {@code payment.learning.executor}.
+     * "platform" keeps the bounded worker pool, "virtual" starts one virtual thread per payment,
+     * "sharded" runs {@code workerCount} single-thread shards, each with a queue of its own from {@code queues}.
+     */
+    static PaymentExecutor create(String mode, int workerCount, Supplier<PaymentQueue<Runnable>> queues) {
+        String m = mode == null ? "" : mode.toLowerCase();
+        return switch (m) {
+            case "virtual" -> new VirtualThreadExecutor("pay-vt-");
+            case "sharded" -> new ShardedPaymentExecutor(workerCount, queues);
+            case "platform", "" -> new ManualThreadPool(workerCount, queues.get());
+            default -> throw new IllegalArgumentException("Unknown executor mode: " + mode);
+        };
+    }
+}
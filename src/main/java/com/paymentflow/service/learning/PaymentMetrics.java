@@ -0,0 +1,188 @@
+package com.paymentflow.service.learning;
+
+import com.paymentflow.gateway.PaymentGateway;
+import com.paymentflow.service.IdempotencyStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the learning pipeline, exported at {@code /actuator/prometheus}.
+ * <p>
+ * Everything is registered up front, per gateway where it matters, so the hot path only does a map lookup
+ * and {@code record}/{@code increment} on an existing meter: no builders, no tag arrays, no allocation.
+ * Depths, permits in use, breaker state and cache counters are gauges the registry pulls on scrape.
+ */
+class PaymentMetrics {
+
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(10_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    private final MeterRegistry registry;
+    private final Timer enqueueWait;
+    private final Timer firstAttempt;
+    private final Map<PaymentGateway, GatewayMeters> gateways = new IdentityHashMap<>();
+
+    PaymentMetrics(MeterRegistry registry, List<PaymentGateway> gateways) {
+        this.registry = registry;
+        this.enqueueWait = histogram("payment.queue.enqueue.wait", "time a request thread waited for a queue slot")
+                .register(registry);
+        this.firstAttempt = histogram("payment.first.attempt.delay", "accepted until a worker starts charging it")
+                .register(registry);
+        for (PaymentGateway gw : gateways) this.gateways.put(gw, new GatewayMeters(registry, gw.name()));
+    }
+
+    void bindQueue(PaymentExecutor pool) {
+        Gauge.builder("payment.queue.depth", pool, PaymentExecutor::queueSize)
+                .description("payments waiting for a worker").register(registry);
+    }
+
+    // Per shard, so one hot merchant or key shows up as one deep, busy shard among idle ones
+    void bindShards(ShardedPaymentExecutor pool) {
+        for (int i = 0; i < pool.shardCount(); i++) {
+            int shard = i;
+            String tag = Integer.toString(i);
+            Gauge.builder("payment.shard.queue.depth", pool, p -> p.queueSize(shard))
+                    .description("payments waiting for their shard").tag("shard", tag).register(registry);
+            FunctionCounter.builder("payment.shard.busy.time", pool, p -> p.busyNanos(shard) / 1e9)
+                    .description("time the shard thread spent running; its rate is the shard's utilization")
+                    .baseUnit("seconds").tag("shard", tag).register(registry);
+            FunctionCounter.builder("payment.shard.tasks", pool, p -> p.completed(shard))
+                    .description("tasks and continuations run by the shard").tag("shard", tag).register(registry);
+        }
+    }
+
+    void bindBreaker(PaymentGateway gw, SlidingWindowCircuitBreaker breaker) {
+        Gauge.builder("payment.breaker.state", breaker, b -> b.getState().ordinal())
+                .description("0 closed, 1 open, 2 half-open").tag("gateway", gw.name()).register(registry);
+        Gauge.builder("payment.breaker.failure.rate", breaker, SlidingWindowCircuitBreaker::failureRate)
+                .tag("gateway", gw.name()).register(registry);
+    }
+
+    void bindIdempotency(IdempotencyStore store) {
+        FunctionCounter.builder("payment.idempotency.requests", store, IdempotencyStore::hitCount)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("payment.idempotency.requests", store, IdempotencyStore::missCount)
+                .tag("result", "miss").register(registry);
+        Gauge.builder("payment.idempotency.hit.ratio", store, s -> {
+            long hits = s.hitCount(), total = hits + s.missCount();
+            return total == 0 ? 0 : (double) hits / total;
+        }).register(registry);
+        Gauge.builder("payment.idempotency.size", store, IdempotencyStore::size).register(registry);
+    }
+
+    /**
+     * Wraps the gateway's limiter so permit waits and every reported charge attempt are timed, whichever path
+     * (blocking, async, batch) holds the permit.
+     */
+    ConcurrencyLimiter instrument(PaymentGateway gw, ConcurrencyLimiter limiter) {
+        GatewayMeters meters = gateways.get(gw);
+        Gauge.builder("payment.limiter.in.use", limiter, ConcurrencyLimiter::inUse)
+                .tag("gateway", gw.name()).register(registry);
+        Gauge.builder("payment.limiter.available", limiter, ConcurrencyLimiter::availablePermits)
+                .tag("gateway", gw.name()).register(registry);
+        return new InstrumentedLimiter(limiter, meters);
+    }
+
+    SlidingWindowCircuitBreaker.StateListener breakerListener(PaymentGateway gw) {
+        return gateways.get(gw).breakerListener;
+    }
+
+    ManualRetry.RetryListener retryListener(PaymentGateway gw) {
+        return gateways.get(gw).retryListener;
+    }
+
+    void recordEnqueueWait(long nanos) {
+        enqueueWait.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordFirstAttempt(long nanos) {
+        firstAttempt.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer.Builder histogram(String name, String description) {
+        return Timer.builder(name).description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED);
+    }
+
+    private static final class GatewayMeters {
+        final Timer chargeSuccess;
+        final Timer chargeFailure;
+        final Timer limiterWait;
+        final Counter retries;
+        final Map<SlidingWindowCircuitBreaker.State, Counter> transitions =
+                new EnumMap<>(SlidingWindowCircuitBreaker.State.class);
+        // created once: handing them out must not allocate per payment
+        final ManualRetry.RetryListener retryListener;
+        final SlidingWindowCircuitBreaker.StateListener breakerListener;
+
+        GatewayMeters(MeterRegistry registry, String gateway) {
+            chargeSuccess = histogram("payment.gateway.charge", "one charge attempt")
+                    .tags("gateway", gateway, "outcome", "success").register(registry);
+            chargeFailure = histogram("payment.gateway.charge", "one charge attempt")
+                    .tags("gateway", gateway, "outcome", "failure").register(registry);
+            limiterWait = histogram("payment.limiter.wait", "time to get a concurrency permit")
+                    .tag("gateway", gateway).register(registry);
+            retries = Counter.builder("payment.gateway.retries").description("attempts retried after a failure")
+                    .tag("gateway", gateway).register(registry);
+            for (SlidingWindowCircuitBreaker.State to : SlidingWindowCircuitBreaker.State.values()) {
+                transitions.put(to, Counter.builder("payment.breaker.transitions")
+                        .tags("gateway", gateway, "to", to.name().toLowerCase()).register(registry));
+            }
+            retryListener = (attempt, error) -> retries.increment();
+            breakerListener = (from, to) -> transitions.get(to).increment();
+        }
+    }
+
+    private static final class InstrumentedLimiter implements ConcurrencyLimiter {
+        private final ConcurrencyLimiter delegate;
+        private final GatewayMeters meters;
+
+        InstrumentedLimiter(ConcurrencyLimiter delegate, GatewayMeters meters) {
+            this.delegate = delegate;
+            this.meters = meters;
+        }
+
+        @Override
+        public boolean acquire(long maxWaitMillis) throws InterruptedException {
+            long start = System.nanoTime();
+            try {
+                return delegate.acquire(maxWaitMillis);
+            } finally {
+                meters.limiterWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void release() {
+            delegate.release();
+        }
+
+        @Override
+        public void onSample(long latencyNanos, boolean success) {
+            (success ? meters.chargeSuccess : meters.chargeFailure).record(latencyNanos, TimeUnit.NANOSECONDS);
+            delegate.onSample(latencyNanos, success);
+        }
+
+        @Override
+        public int availablePermits() {
+            return delegate.availablePermits();
+        }
+
+        @Override
+        public int inUse() {
+            return delegate.inUse();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.paymentflow.service.learning;
+
+import java.util.Collection;
+
+/**
+ * Bounded hand-off between request threads (producers) and workers (consumers).
+ * put blocks while full, take blocks while empty; offer gives up after a timeout.
+ */
+public interface PaymentQueue<T> {
+
+    void put(T item) throws InterruptedException;
+
+    /**
+     * Waits at most {@code timeoutMillis} for space (0 = don't wait).
+     * Returns false if the queue is still full, so callers on request threads can shed load instead of hanging.
+     */
+    boolean offer(T item, long timeoutMillis) throws InterruptedException;
+
+    T take() throws InterruptedException;
+
+    int size();
+
+    /**
+     * Removes everything currently queued and adds it to {@code sink}, without waiting.
+     * Used at shutdown to hand queued work over instead of running it.
+     *
+     * @return how many items were moved
+     */
+    int drainTo(Collection<? super T> sink);
+
+    static <T> PaymentQueue<T> create(String type, int capacity, RingBufferPaymentQueue.WaitStrategy waitStrategy) {
+        return create(type, capacity, waitStrategy, FairQueueProperties.DEFAULTS);
+    }
+
+    /**
+     * Builds the queue selected by {@code payment.learning.queue}:
+     * "monitor" is the synchronized/wait/notifyAll queue, "ring" the lock-free ring buffer,
+     * "fair" the priority-class / per-merchant weighted fair queue.
+     */
+    static <T> PaymentQueue<T> create(String type, int capacity, RingBufferPaymentQueue.WaitStrategy waitStrategy,
+                                      FairQueueProperties fairWeights) {
+        String t = type == null ? "" : type.toLowerCase();
+        return switch (t) {
+            case "ring" -> new RingBufferPaymentQueue<>(capacity, waitStrategy);
+            case "fair" -> new FairPaymentQueue<>(capacity, fairWeights);
+            case "monitor", "" -> new ManualPaymentQueue<>(capacity);
+            default -> throw new IllegalArgumentException("Unknown queue type: " + type);
+        };
+    }
+}
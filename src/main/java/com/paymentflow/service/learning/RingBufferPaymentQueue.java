@@ -0,0 +1,169 @@
+package com.paymentflow.service.learning;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free bounded multi-producer/multi-consumer queue (Vyukov's array queue).
+ * <p>
+ * Every slot carries a sequence number that says whose turn it is:
+ * {@code seq == pos} means free for the producer claiming {@code pos},
+ * {@code seq == pos + 1} means filled for the consumer claiming {@code pos}.
+ * Producers and consumers only CAS their own padded cursor (tail / head), so they never
+ * take a monitor and nobody is woken up who doesn't need to be.
+ * <p>
+ * Capacity is rounded up to the next power of two.
+ */
+public class RingBufferPaymentQueue<T> implements PaymentQueue<T> {
+
+    /** What a blocked put/take does between retries. */
+    public enum WaitStrategy {
+        /** Busy spin: lowest latency, burns a core while waiting. */
+        SPIN,
+        /** Spin a little, then give the CPU away with Thread.yield(). */
+        YIELD,
+        /** Spin a little, then park for a short time: near-zero CPU when idle. */
+        PARK
+    }
+
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 50_000; // 50µs
+
+    private final int mask;
+    private final AtomicReferenceArray<T> buffer;
+    private final AtomicLongArray sequences;
+    private final PaddedSequence head = new PaddedSequence(0); // next position to take
+    private final PaddedSequence tail = new PaddedSequence(0); // next position to put
+    private final WaitStrategy waitStrategy;
+
+    public RingBufferPaymentQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be > 0");
+        if (capacity > (1 << 30)) throw new IllegalArgumentException("Capacity too large");
+        // at least 2 slots: with one, "published" (pos + 1) and "free for the next lap" (pos + size) collide
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+        this.waitStrategy = waitStrategy == null ? WaitStrategy.PARK : waitStrategy;
+    }
+
+    public RingBufferPaymentQueue(int capacity) {
+        this(capacity, WaitStrategy.PARK);
+    }
+
+    /** Non-blocking insert. Returns false when the queue is full. */
+    public boolean offer(T item) {
+        if (item == null) throw new NullPointerException("item");
+        long pos = tail.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long dif = sequences.get(idx) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(idx, item);
+                    sequences.set(idx, pos + 1); // publish to consumers
+                    return true;
+                }
+                pos = tail.get();
+            } else if (dif < 0) {
+                return false; // slot still holds an item from the previous lap: full
+            } else {
+                pos = tail.get(); // another producer claimed it, reload
+            }
+        }
+    }
+
+    /** Non-blocking remove. Returns null when the queue is empty. */
+    public T poll() {
+        long pos = head.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long dif = sequences.get(idx) - (pos + 1);
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    T item = buffer.get(idx);
+                    buffer.lazySet(idx, null);
+                    sequences.set(idx, pos + mask + 1); // free for the producer of the next lap
+                    return item;
+                }
+                pos = head.get();
+            } else if (dif < 0) {
+                return null; // not published yet: empty
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    @Override
+    public void put(T item) throws InterruptedException {
+        int tries = 0;
+        while (!offer(item)) {
+            tries = idle(tries);
+        }
+    }
+
+    @Override
+    public boolean offer(T item, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        int tries = 0;
+        while (!offer(item)) {
+            if (System.nanoTime() - deadline >= 0) return false;
+            tries = idle(tries);
+        }
+        return true;
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        int tries = 0;
+        T item;
+        while ((item = poll()) == null) {
+            tries = idle(tries);
+        }
+        return item;
+    }
+
+    @Override
+    public int size() {
+        // read head first so a concurrent take can only make the result smaller, never negative
+        long h = head.get();
+        long t = tail.get();
+        long size = t - h;
+        if (size < 0) return 0;
+        return (int) Math.min(size, mask + 1);
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> sink) {
+        int n = 0;
+        T item;
+        while ((item = poll()) != null) {
+            sink.add(item);
+            n++;
+        }
+        return n;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    private int idle(int tries) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        if (waitStrategy == WaitStrategy.SPIN || tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+            return tries + 1;
+        }
+        if (waitStrategy == WaitStrategy.YIELD) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        return tries;
+    }
+}
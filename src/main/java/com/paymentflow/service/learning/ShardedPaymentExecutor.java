@@ -0,0 +1,216 @@
+package com.paymentflow.service.learning;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Partitioned executor: a task's key (its payment id, or its merchant) picks one of N shards, and each shard
+ * is one thread over its own bounded queue. Everything submitted for a key runs on that thread, in order,
+ * so a payment's state changes never race each other and need no lock.
+ * <p>
+ * Work that completes elsewhere (an async or batched charge answered on a gateway thread) comes back through
+ * {@link #resume}: it goes to the shard's mailbox, which the shard empties before its next queued task. The
+ * mailbox is unbounded on purpose. Those continuations finish work that was already admitted, so they
+ * may neither block the completing thread nor be refused, and the in-flight limits already bound them.
+ * <p>
+ * One hot key makes one hot shard: {@code payment.shard.queue.depth} and {@code payment.shard.busy.time}
+ * are per shard so it shows.
+ */
+class ShardedPaymentExecutor implements PaymentExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedPaymentExecutor.class);
+
+    /** Tasks that say which key they belong to; anything else is spread round-robin. */
+    interface Keyed {
+        Object shardKey();
+    }
+
+    // offered to an idle shard so it wakes up for its mailbox or for shutdown; never run
+    private static final Runnable WAKE = () -> {};
+
+    private final Shard[] shards;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private volatile boolean shutdown = false;
+
+    ShardedPaymentExecutor(int shardCount, Supplier<PaymentQueue<Runnable>> queues) {
+        if (shardCount <= 0) throw new IllegalArgumentException("shardCount must be > 0");
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(queues.get(), "pay-shard-" + i);
+            shards[i].start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) throws InterruptedException {
+        if (shutdown) throw new IllegalStateException("Executor is shut down");
+        shardFor(task).queue.put(task);
+    }
+
+    @Override
+    public boolean tryExecute(Runnable task, long timeoutMillis) throws InterruptedException {
+        if (shutdown) throw new IllegalStateException("Executor is shut down");
+        return shardFor(task).queue.offer(task, timeoutMillis);
+    }
+
+    @Override
+    public void resume(Object key, Runnable continuation) {
+        shards[index(key)].post(continuation);
+    }
+
+    private Shard shardFor(Runnable task) {
+        if (task instanceof Keyed k && k.shardKey() != null) return shards[index(k.shardKey())];
+        return shards[Math.floorMod(roundRobin.getAndIncrement(), shards.length)];
+    }
+
+    // UUID and String hashes are well mixed in the high bits only; fold them down before the modulo
+    int index(Object key) {
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public int queueSize() {
+        int size = 0;
+        for (Shard s : shards) size += s.queue.size();
+        return size;
+    }
+
+    int queueSize(int shard) {
+        return shards[shard].queue.size();
+    }
+
+    /** Nanoseconds the shard's thread has spent running tasks and continuations; its rate is utilization. */
+    long busyNanos(int shard) {
+        return shards[shard].busyNanos();
+    }
+
+    long completed(int shard) {
+        return shards[shard].completed;
+    }
+
+    // Same contract as ManualThreadPool: queued tasks are handed back, running ones finish, and each shard
+    // exits after its current task. Continuations still arriving after that run on the caller's thread.
+    @Override
+    public List<Runnable> shutdown() {
+        shutdown = true;
+        List<Runnable> queued = new ArrayList<>();
+        for (Shard s : shards) {
+            s.queue.drainTo(queued);
+            s.wake();
+        }
+        queued.removeIf(t -> t == WAKE);
+        return queued;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Shard s : shards) {
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left > 0) s.join(left);
+            if (s.isAlive()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void shutdownNow() {
+        shutdown = true;
+        for (Shard s : shards) s.interrupt();
+    }
+
+    private final class Shard extends Thread {
+        final PaymentQueue<Runnable> queue;
+        final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+        // serialises mailbox runs once the thread is gone, so the key still has one writer at a time
+        private final Object exitLock = new Object();
+        private volatile boolean exited = false;
+        // written by this thread only
+        private volatile long busyTotal;
+        private volatile long busySince;
+        volatile long completed;
+
+        Shard(PaymentQueue<Runnable> queue, String name) {
+            super(name);
+            this.queue = queue;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isInterrupted() && !shutdown) {
+                    runMailbox();
+                    Runnable task = queue.take();
+                    if (task != WAKE) runTimed(task);
+                }
+            } catch (InterruptedException e) {
+                interrupt();
+            } finally {
+                exited = true;
+                synchronized (exitLock) {
+                    runMailbox();
+                }
+            }
+        }
+
+        // After the mailbox add: either this thread sees it before blocking in take(), or the WAKE gets it out.
+        // Once the thread has exited the poster runs it; exitLock keeps those runs one at a time.
+        void post(Runnable continuation) {
+            mailbox.add(continuation);
+            if (exited) {
+                synchronized (exitLock) {
+                    runMailbox();
+                }
+                return;
+            }
+            if (queue.size() == 0) wake(); // non-empty: take() returns anyway, and the mailbox runs next
+        }
+
+        void wake() {
+            try {
+                queue.offer(WAKE, 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void runMailbox() {
+            Runnable continuation;
+            while ((continuation = mailbox.poll()) != null) runTimed(continuation);
+        }
+
+        private void runTimed(Runnable task) {
+            long start = System.nanoTime();
+            busySince = start;
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("Task failed on {}", getName(), t); // the shard keeps running its queue
+            } finally {
+                busySince = 0;
+                busyTotal += System.nanoTime() - start;
+                completed++;
+            }
+        }
+
+        // Includes the task running right now; read without a lock, so one task may be counted twice or not
+        // at all for an instant, which a rate over scrapes smooths out
+        long busyNanos() {
+            long since = busySince;
+            return busyTotal + (since != 0 ? System.nanoTime() - since : 0);
+        }
+    }
+}
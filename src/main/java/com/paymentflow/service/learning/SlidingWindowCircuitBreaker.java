@@ -0,0 +1,278 @@
+package com.paymentflow.service.learning;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free circuit breaker that trips on failure rate and slow-call rate over the last N calls.
+ * <p>
+ * The whole state machine is one {@code long}: state, HALF_OPEN probe counters and the time of the last
+ * transition. Every transition is a single CAS, so concurrent callers never block each other and exactly
+ * one of them wins each transition. Call outcomes go into a ring buffer of the last {@code windowSize}
+ * calls; its totals (calls, failures, slow calls) are packed into a second {@code long} and kept up to date
+ * with one atomic add per call, so deciding whether to open never walks the window.
+ * <p>
+ * Unlike {@link ManualCircuitBreaker} (N consecutive failures), one success no longer hides a gateway
+ * that fails every other call, and a gateway that answers but takes seconds counts against it too.
+ */
+public class SlidingWindowCircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    /** Called by the thread whose CAS made the transition, exactly once per transition. */
+    @FunctionalInterface
+    public interface StateListener {
+        StateListener NONE = (from, to) -> { };
+
+        void onStateChange(State from, State to);
+    }
+
+    /**
+     * @param windowSize          outcomes remembered (count-based window)
+     * @param minimumCalls        no decision before this many calls are in the window
+     * @param failureRatePercent  open when at least this share of the window failed
+     * @param slowCallRatePercent open when at least this share of the window took longer than {@code slowCall}
+     * @param slowCall            duration from which a call counts as slow
+     * @param openDuration        how long to fast-fail before letting probes through
+     * @param halfOpenProbes      calls let through in HALF_OPEN; all must succeed to close again
+     */
+    public record Options(int windowSize, int minimumCalls, int failureRatePercent, int slowCallRatePercent,
+                          Duration slowCall, Duration openDuration, int halfOpenProbes) {
+        public Options {
+            if (windowSize <= 0 || windowSize > COUNT_MASK) throw new IllegalArgumentException("windowSize out of range");
+            if (minimumCalls <= 0 || minimumCalls > windowSize) throw new IllegalArgumentException("need 0 < minimumCalls <= windowSize");
+            if (halfOpenProbes <= 0 || halfOpenProbes > PROBE_MASK) throw new IllegalArgumentException("halfOpenProbes out of range");
+        }
+    }
+
+    // state word: [state:2][probes issued:10][probes succeeded:10][millis since start:42]
+    private static final int TIME_BITS = 42;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final int PROBE_BITS = 10;
+    private static final long PROBE_MASK = (1L << PROBE_BITS) - 1;
+    private static final int SUCCEEDED_SHIFT = TIME_BITS;
+    private static final int ISSUED_SHIFT = TIME_BITS + PROBE_BITS;
+    private static final int STATE_SHIFT = 62;
+    private static final State[] STATES = State.values();
+
+    // window totals word: [calls:21][failures:21][slow:21]
+    private static final int COUNT_BITS = 21;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long ONE_CALL = 1L << (2 * COUNT_BITS);
+    private static final long ONE_FAILURE = 1L << COUNT_BITS;
+    private static final long ONE_SLOW = 1L;
+
+    // ring slot codes: 0 = empty
+    private static final int RECORDED = 1;
+    private static final int FAILED = 2;
+    private static final int SLOW = 4;
+
+    private final Options options;
+    private final long slowCallNanos;
+    private final long openMillis;
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+    private final StateListener listener;
+
+    private final AtomicLong state;
+    private final AtomicIntegerArray window;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong totals = new AtomicLong();
+
+    public SlidingWindowCircuitBreaker(Options options) {
+        this(options, System::nanoTime);
+    }
+
+    public SlidingWindowCircuitBreaker(Options options, LongSupplier nanoClock) {
+        this(options, nanoClock, StateListener.NONE);
+    }
+
+    public SlidingWindowCircuitBreaker(Options options, LongSupplier nanoClock, StateListener listener) {
+        this.listener = listener;
+        this.options = options;
+        this.slowCallNanos = options.slowCall().toNanos();
+        this.openMillis = options.openDuration().toMillis();
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+        this.window = new AtomicIntegerArray(options.windowSize());
+        this.state = new AtomicLong(pack(State.CLOSED, 0, 0, 0));
+    }
+
+    // Check if a call is allowed at this moment; in HALF_OPEN only the first halfOpenProbes callers get through
+    public boolean allowRequest() {
+        while (true) {
+            long w = state.get();
+            switch (stateOf(w)) {
+                case CLOSED:
+                    return true;
+                case OPEN: {
+                    long now = nowMillis();
+                    if (now - since(w) < openMillis) return false;
+                    // the caller that wins the CAS becomes the first probe
+                    if (state.compareAndSet(w, pack(State.HALF_OPEN, 1, 0, now))) {
+                        listener.onStateChange(State.OPEN, State.HALF_OPEN);
+                        return true;
+                    }
+                    break;
+                }
+                case HALF_OPEN: {
+                    int issued = issued(w);
+                    if (issued < options.halfOpenProbes()) {
+                        if (state.compareAndSet(w, pack(State.HALF_OPEN, issued + 1, succeeded(w), since(w)))) return true;
+                        break;
+                    }
+                    // every probe is out; if they never reported back (caller gave up), hand out a new round
+                    long now = nowMillis();
+                    if (now - since(w) < openMillis) return false;
+                    if (state.compareAndSet(w, pack(State.HALF_OPEN, 1, 0, now))) return true;
+                    break;
+                }
+            }
+        }
+    }
+
+    public void recordSuccess() {
+        recordSuccess(0);
+    }
+
+    public void recordFailure() {
+        recordFailure(0);
+    }
+
+    public void recordSuccess(long durationNanos) {
+        record(false, durationNanos >= slowCallNanos && durationNanos > 0);
+    }
+
+    public void recordFailure(long durationNanos) {
+        record(true, durationNanos >= slowCallNanos && durationNanos > 0);
+    }
+
+    public State getState() {
+        return stateOf(state.get());
+    }
+
+    /** Failure share of the current window in percent, or -1 before {@code minimumCalls} calls. */
+    public float failureRate() {
+        long t = totals.get();
+        int calls = calls(t);
+        return calls < options.minimumCalls() ? -1f : failures(t) * 100f / calls;
+    }
+
+    /** Slow-call share of the current window in percent, or -1 before {@code minimumCalls} calls. */
+    public float slowCallRate() {
+        long t = totals.get();
+        int calls = calls(t);
+        return calls < options.minimumCalls() ? -1f : slow(t) * 100f / calls;
+    }
+
+    private void record(boolean failed, boolean slow) {
+        long w = state.get();
+        switch (stateOf(w)) {
+            case CLOSED -> {
+                long t = addToWindow(RECORDED | (failed ? FAILED : 0) | (slow ? SLOW : 0));
+                if (tripped(t)) {
+                    // only CLOSED -> OPEN here; if someone else already moved the state, their transition stands
+                    long current = state.get();
+                    if (stateOf(current) == State.CLOSED
+                            && state.compareAndSet(current, pack(State.OPEN, 0, 0, nowMillis()))) {
+                        listener.onStateChange(State.CLOSED, State.OPEN);
+                    }
+                }
+            }
+            case HALF_OPEN -> recordProbe(w, !failed && !slow);
+            case OPEN -> { } // a call that started before the breaker opened: the decision is already made
+        }
+    }
+
+    private void recordProbe(long w, boolean ok) {
+        while (stateOf(w) == State.HALF_OPEN) {
+            if (!ok) {
+                if (state.compareAndSet(w, pack(State.OPEN, 0, 0, nowMillis()))) {
+                    listener.onStateChange(State.HALF_OPEN, State.OPEN);
+                    return;
+                }
+            } else {
+                int succeeded = succeeded(w) + 1;
+                if (succeeded >= options.halfOpenProbes()) {
+                    if (state.compareAndSet(w, pack(State.CLOSED, 0, 0, nowMillis()))) {
+                        clearWindow(); // start fresh, the failures that opened it are history
+                        listener.onStateChange(State.HALF_OPEN, State.CLOSED);
+                        return;
+                    }
+                } else if (state.compareAndSet(w, pack(State.HALF_OPEN, issued(w), succeeded, since(w)))) {
+                    return;
+                }
+            }
+            w = state.get();
+        }
+    }
+
+    // Overwrites the oldest slot and moves the totals by (new - old) in one atomic add
+    private long addToWindow(int code) {
+        int slot = (int) Math.floorMod(cursor.getAndIncrement(), (long) options.windowSize());
+        int old = window.getAndSet(slot, code);
+        long delta = weight(code) - weight(old);
+        return delta == 0 ? totals.get() : totals.addAndGet(delta);
+    }
+
+    private void clearWindow() {
+        for (int i = 0; i < window.length(); i++) {
+            int old = window.getAndSet(i, 0);
+            if (old != 0) totals.addAndGet(-weight(old));
+        }
+    }
+
+    private boolean tripped(long t) {
+        int calls = calls(t);
+        if (calls < options.minimumCalls()) return false;
+        return failures(t) * 100L >= (long) options.failureRatePercent() * calls
+                || slow(t) * 100L >= (long) options.slowCallRatePercent() * calls;
+    }
+
+    private static long weight(int code) {
+        if (code == 0) return 0;
+        return ONE_CALL + ((code & FAILED) != 0 ? ONE_FAILURE : 0) + ((code & SLOW) != 0 ? ONE_SLOW : 0);
+    }
+
+    private long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - startNanos) & TIME_MASK;
+    }
+
+    private static long pack(State s, int issued, int succeeded, long millis) {
+        return ((long) s.ordinal() << STATE_SHIFT)
+                | ((long) issued << ISSUED_SHIFT)
+                | ((long) succeeded << SUCCEEDED_SHIFT)
+                | (millis & TIME_MASK);
+    }
+
+    private static State stateOf(long w) {
+        return STATES[(int) (w >>> STATE_SHIFT)];
+    }
+
+    private static int issued(long w) {
+        return (int) ((w >>> ISSUED_SHIFT) & PROBE_MASK);
+    }
+
+    private static int succeeded(long w) {
+        return (int) ((w >>> SUCCEEDED_SHIFT) & PROBE_MASK);
+    }
+
+    private static long since(long w) {
+        return w & TIME_MASK;
+    }
+
+    private static int calls(long t) {
+        return (int) (t >>> (2 * COUNT_BITS));
+    }
+
+    private static int failures(long t) {
+        return (int) ((t >>> COUNT_BITS) & COUNT_MASK);
+    }
+
+    private static int slow(long t) {
+        return (int) (t & COUNT_MASK);
+    }
+}
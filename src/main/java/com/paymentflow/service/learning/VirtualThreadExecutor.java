@@ -0,0 +1,85 @@
+package com.paymentflow.service.learning;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One virtual thread per payment (Java 21).
+ * There is no queue and no worker limit: blocking in the gateway only parks the virtual thread,
+ * so the only bound on concurrent gateway calls is the rate limiter inside the task.
+ */
+class VirtualThreadExecutor implements PaymentExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+    private final ThreadFactory factory;
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean shutdown = false;
+
+    VirtualThreadExecutor(String namePrefix) {
+        this.factory = Thread.ofVirtual().name(namePrefix, 0).factory();
+    }
+
+    @Override
+    public void execute(Runnable task) throws InterruptedException {
+        if (shutdown) throw new IllegalStateException("Executor is shut down");
+        Thread t = factory.newThread(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Payment task failed", e);
+            } finally {
+                running.remove(Thread.currentThread());
+            }
+        });
+        running.add(t);
+        t.start();
+    }
+
+    // Never saturated: admission is left to the limiters
+    @Override
+    public boolean tryExecute(Runnable task, long timeoutMillis) throws InterruptedException {
+        execute(task);
+        return true;
+    }
+
+    // Nothing waits in a queue: every accepted payment already has its own thread
+    @Override
+    public int queueSize() {
+        return 0;
+    }
+
+    public int inFlight() {
+        return running.size();
+    }
+
+    // Nothing is queued, so nothing is handed back
+    @Override
+    public List<Runnable> shutdown() {
+        shutdown = true;
+        return List.of();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Thread t : running) {
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left > 0) t.join(left);
+            if (t.isAlive()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void shutdownNow() {
+        shutdown = true;
+        running.forEach(Thread::interrupt);
+    }
+}
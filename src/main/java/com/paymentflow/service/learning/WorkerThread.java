@@ -1,18 +1,21 @@
 package com.paymentflow.service.learning;
 
 class WorkerThread extends Thread {
-    private final ManualPaymentQueue<Runnable> queue;
+    private final PaymentQueue<Runnable> queue;
+    private final ManualThreadPool pool;
 
-    WorkerThread(ManualPaymentQueue<Runnable> queue, String name) {
+    WorkerThread(PaymentQueue<Runnable> queue, ManualThreadPool pool, String name) {
         super(name);
         this.queue = queue;
+        this.pool = pool;
         setDaemon(true);
     }
 
     public void run() {
         try {
-            while (!isInterrupted()) {
+            while (!isInterrupted() && !pool.isShutdown()) {
                 Runnable task = queue.take();
+                if (task == ManualThreadPool.STOP) break;
                 try {
                     task.run();
                 } catch (Throwable t) {
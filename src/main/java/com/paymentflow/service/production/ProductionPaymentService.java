@@ -1,37 +1,313 @@
 package com.paymentflow.service.production;
 
+import com.paymentflow.gateway.GatewayRouter;
+import com.paymentflow.gateway.PaymentGateway;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentPriority;
 import com.paymentflow.model.PaymentRequest;
 import com.paymentflow.model.PaymentResult;
 import com.paymentflow.model.PaymentStatus;
 import com.paymentflow.repository.PaymentRepository;
+import com.paymentflow.service.IdempotencyStore;
 import com.paymentflow.service.PaymentService;
+import com.paymentflow.service.PaymentStatusWaiters;
+import com.paymentflow.service.PaymentValidation;
+import com.paymentflow.service.ServiceOverloadedException;
+import com.paymentflow.service.ServiceShuttingDownException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Production mode: every payment goes through five {@link Stage}s, each with its own bounded queue, thread
+ * pool and meters, so a bottleneck shows up as one stage's queue time and can be sized on its own
+ * ({@code payment.production.stages.<name>}):
+ * <pre>
+ *  validate -> persist -> route -> charge -> settle
+ * </pre>
+ * <ul>
+ *   <li>validate: domain checks and idempotency. Admission is a bounded wait for room here, 429 after it;</li>
+ *   <li>persist: the PROCESSING write. The request thread is answered 202 only after it, so an accepted
+ *       payment is always findable (and durable, with the WAL);</li>
+ *   <li>route: eligible gateways, best first;</li>
+ *   <li>charge: one attempt per pass. A failed attempt comes back after a backoff, on the next gateway,
+ *       rather than holding a charge thread while it waits;</li>
+ *   <li>settle: the terminal write, idempotent result and waiting clients.</li>
+ * </ul>
+ * Hand-offs between stages block while the next one is full, so a slow gateway fills the charge queue,
+ * then route's, and so on back to admission, instead of growing memory.
+ * <p>
+ * Built on {@code java.util.concurrent} only; nothing here depends on the learning-mode classes. Only
+ * created with {@code payment.mode: production}.
+ */
 @Service("productionPaymentService")
-public class ProductionPaymentService implements PaymentService {
+@ConditionalOnProperty(name = "payment.mode", havingValue = "production")
+public class ProductionPaymentService implements PaymentService, AutoCloseable {
+
+    // A payment's state while it moves through the stages; each queue hand-off publishes it to the next thread
+    private static final class Job {
+        final PaymentRequest request;
+        final CompletableFuture<PaymentResult> accepted = new CompletableFuture<>();
+        Payment payment;
+        List<PaymentGateway> candidates;
+        int attempt;
+        Payment terminal;
+
+        Job(PaymentRequest request) {
+            this.request = request;
+        }
+    }
 
     private final PaymentRepository paymentRepository;
+    private final GatewayRouter router;
+    private final PaymentStatusWaiters waiters;
+    private final IdempotencyStore idempotency;
+    private final ProductionPipelineProperties properties;
+    // recovery cut-off: PROCESSING payments created before this were accepted by an earlier instance
+    private final Instant createdAt = Instant.now();
+
+    private final Stage<Job> validate;
+    private final Stage<Job> persist;
+    private final Stage<Job> route;
+    private final Stage<Job> charge;
+    private final Stage<Job> settle;
+    // puts a retried attempt back into the charge stage once its backoff is over; may block, so virtual
+    private final ExecutorService retryHandOff = Executors.newVirtualThreadPerTaskExecutor();
 
-    public ProductionPaymentService(PaymentRepository paymentRepository) {
+    public ProductionPaymentService(PaymentRepository paymentRepository,
+                                    GatewayRouter router,
+                                    PaymentStatusWaiters waiters,
+                                    ProductionPipelineProperties properties,
+                                    MeterRegistry meterRegistry) {
         this.paymentRepository = paymentRepository;
+        this.router = router;
+        this.waiters = waiters;
+        this.properties = properties;
+        this.idempotency = new IdempotencyStore(properties.idempotencyMaxEntries(), properties.idempotencyTtl());
+        this.validate = stage("validate", this::validate, meterRegistry);
+        this.persist = stage("persist", this::persist, meterRegistry);
+        this.route = stage("route", this::route, meterRegistry);
+        this.charge = stage("charge", this::charge, meterRegistry);
+        this.settle = stage("settle", this::settle, meterRegistry);
     }
 
+    private Stage<Job> stage(String name, Stage.Handler<Job> handler, MeterRegistry registry) {
+        var size = properties.stage(name);
+        return new Stage<>(name, size.threads(), size.queue(), handler, this::failed, registry);
+    }
 
     @Override
     public PaymentResult createPayment(PaymentRequest request) {
-        return new PaymentResult(
-                UUID.randomUUID(),
-                PaymentStatus.PROCESSING,
-                "Production mode placeholder. Will be implemented in Sprint 4."
-        );
+        var job = new Job(request);
+        try {
+            if (!validate.offer(job, properties.admissionTimeout().toMillis())) {
+                throw new ServiceOverloadedException("Payment pipeline is full", Duration.ofSeconds(1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return PaymentResult.failed(UUID.randomUUID(), "System interrupted");
+        } catch (RejectedExecutionException e) {
+            throw new ServiceShuttingDownException(Duration.ofSeconds(1));
+        }
+        try {
+            return job.accepted.orTimeout(properties.acceptTimeout().toMillis(), TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new ServiceOverloadedException("Payment pipeline is too slow", Duration.ofSeconds(1));
+            }
+            throw new ServiceShuttingDownException(Duration.ofSeconds(1)); // dropped by a stage that closed
+        }
+    }
+
+    // Bulk: blocking puts, so a full pipeline slows the upload down instead of refusing items
+    @Override
+    public List<PaymentResult> createPayments(List<PaymentRequest> requests) {
+        List<Job> jobs = new ArrayList<>(requests.size());
+        for (PaymentRequest request : requests) {
+            var job = new Job(request);
+            try {
+                validate.put(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.accepted.complete(PaymentResult.failed(UUID.randomUUID(), "System interrupted"));
+            } catch (RejectedExecutionException e) {
+                job.accepted.complete(PaymentResult.failed(UUID.randomUUID(), "Service shutting down"));
+            }
+            jobs.add(job);
+        }
+        List<PaymentResult> results = new ArrayList<>(jobs.size());
+        long deadline = System.nanoTime() + properties.acceptTimeout().toNanos();
+        for (Job job : jobs) results.add(awaitAccepted(job, deadline));
+        return results;
+    }
+
+    // The whole list shares one deadline: its items went in together
+    private PaymentResult awaitAccepted(Job job, long deadline) {
+        long remaining = Math.max(0, deadline - System.nanoTime());
+        try {
+            return job.accepted.orTimeout(remaining, TimeUnit.NANOSECONDS).join();
+        } catch (CompletionException e) {
+            return PaymentResult.failed(job.payment != null ? job.payment.id() : UUID.randomUUID(),
+                    e.getCause() instanceof TimeoutException ? "Not accepted in time" : "Service shutting down");
+        }
+    }
+
+    /**
+     * Payments recovered in PROCESSING (replayed from the write-ahead log, or left so by the last shutdown)
+     * were accepted but never settled: they go back in at the route stage. Only those created before this
+     * service was, since the web server is already taking new payments when this runs.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeRecoveredPayments() {
+        for (Payment payment : paymentRepository.findByStatus(PaymentStatus.PROCESSING, createdAt)) {
+            var job = new Job(new PaymentRequest(payment.amount(), payment.currency(), payment.method(), null,
+                    payment.merchantId(), PaymentPriority.RETRY));
+            job.payment = payment;
+            job.accepted.complete(PaymentResult.accepted(payment.id()));
+            try {
+                route.put(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RejectedExecutionException e) {
+                return; // shutting down: still PROCESSING, whoever starts next resumes them
+            }
+        }
     }
 
     @Override
     public PaymentResult getStatus(UUID paymentId) {
         return paymentRepository.findById(paymentId)
-                .map(p -> new PaymentResult(p.id(), p.status(), p.failureReason()))
+                .map(PaymentResult::of)
                 .orElse(new PaymentResult(paymentId, PaymentStatus.FAILED, "Not Found"));
     }
+
+    // ---- stages ----
+
+    private void validate(Job job) throws InterruptedException {
+        if (job.accepted.isDone()) return; // the caller timed out while this waited in the queue
+        PaymentRequest request = job.request;
+        UUID id = UUID.randomUUID();
+        String invalid = PaymentValidation.invalidReason(request, router);
+        if (invalid != null) {
+            job.accepted.complete(PaymentResult.failed(id, "INVALID: " + invalid));
+            return;
+        }
+        if (request.idempotencyKey() != null) {
+            PaymentResult previous = idempotency.putIfAbsent(request.idempotencyKey(), PaymentResult.accepted(id));
+            if (previous != null) {
+                job.accepted.complete(previous);
+                return;
+            }
+        }
+        job.payment = new Payment(id, request.amount(), request.currency(), request.method(),
+                PaymentStatus.PROCESSING, Instant.now(), null, request.merchantId());
+        persist.put(job);
+    }
+
+    private void persist(Job job) throws InterruptedException {
+        String key = job.request.idempotencyKey();
+        if (job.accepted.isDone()) { // the caller timed out: nobody was told about this payment
+            if (key != null) idempotency.remove(key);
+            return;
+        }
+        Payment stored = paymentRepository.save(job.payment);
+        if (!job.accepted.complete(PaymentResult.accepted(job.payment.id()))) {
+            // timed out during the write: the caller was refused, so the payment must not go ahead
+            if (key != null) idempotency.remove(key);
+            paymentRepository.save(stored.withFailure("ACCEPT_TIMEOUT"));
+            return;
+        }
+        route.put(job);
+    }
+
+    private void route(Job job) throws InterruptedException {
+        job.candidates = router.route(job.payment);
+        charge.put(job);
+    }
+
+    private void charge(Job job) throws InterruptedException {
+        PaymentGateway gateway = job.candidates.get(job.attempt % job.candidates.size());
+        long start = System.nanoTime();
+        try {
+            gateway.charge(job.payment);
+            router.record(gateway, System.nanoTime() - start, true);
+            job.terminal = job.payment.succeed();
+        } catch (PaymentGateway.GatewayException e) {
+            router.record(gateway, System.nanoTime() - start, false);
+            if (++job.attempt < properties.maxAttempts()) {
+                retryLater(job);
+                return;
+            }
+            job.terminal = job.payment.withFailure(e.getMessage());
+        }
+        settle.put(job);
+    }
+
+    private void retryLater(Job job) {
+        long backoff = properties.retryBackoff().toNanos() << Math.min(job.attempt - 1, 5);
+        var delayed = CompletableFuture.delayedExecutor(backoff, TimeUnit.NANOSECONDS, retryHandOff);
+        CompletableFuture.runAsync(() -> {
+            try {
+                charge.put(job);
+            } catch (InterruptedException | RejectedExecutionException e) {
+                // shutting down: the payment stays PROCESSING in the repository
+            }
+        }, delayed);
+    }
+
+    private void settle(Job job) {
+        Payment stored = paymentRepository.save(job.terminal);
+        var result = new PaymentResult(stored.id(), stored.status(), stored.failureReason());
+        if (job.request.idempotencyKey() != null) idempotency.update(job.request.idempotencyKey(), result);
+        if (stored.status().isTerminal()) waiters.complete(result);
+    }
+
+    // A stage handler threw, or a stage dropped the job on shutdown: before persist nothing was accepted
+    // (the caller is answered now), after it the payment is failed and settled
+    private void failed(Job job, Throwable error) {
+        String reason = "UNEXPECTED: " + error.getClass().getSimpleName();
+        boolean shuttingDown = error instanceof InterruptedException || error instanceof RejectedExecutionException;
+        if (!job.accepted.isDone() || job.accepted.isCompletedExceptionally()) { // not accepted, or given up on
+            if (job.request.idempotencyKey() != null && job.payment != null) idempotency.remove(job.request.idempotencyKey());
+            if (shuttingDown) job.accepted.completeExceptionally(error);
+            else job.accepted.complete(PaymentResult.failed(job.payment != null ? job.payment.id() : UUID.randomUUID(), reason));
+            return;
+        }
+        if (shuttingDown) {
+            return; // between stages: stays PROCESSING
+        }
+        job.terminal = job.payment.withFailure(reason);
+        settle(job);
+    }
+
+    /** Stops the stages front to back, letting each finish what it holds before the next one stops. */
+    @Override
+    public void close() {
+        try {
+            for (Stage<Job> stage : List.of(validate, persist, route, charge, settle)) {
+                if (!stage.shutdown(5_000)) stage.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            retryHandOff.shutdownNow();
+            List.of(validate, persist, route, charge, settle).forEach(Stage::close);
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package com.paymentflow.service.production;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * {@code payment.production.*}: sizing of the staged pipeline behind {@link ProductionPaymentService}.
+ *
+ * @param stages               threads / queue capacity by stage name; stages not listed use {@link #DEFAULT_SIZES}
+ * @param admissionTimeout     how long a request waits for room in the validate stage before a 429
+ * @param maxAttempts          charge attempts per payment, rotating over the eligible gateways
+ * @param retryBackoff         delay before the second attempt, doubled for each one after it
+ * @param idempotencyMaxEntries idempotency keys remembered (segmented LRU, as in learning mode)
+ * @param idempotencyTtl       how long a key is remembered after its last write
+ * @param acceptTimeout        longest a request waits for validate and persist; past it the request is refused
+ *                             and the payment, if it gets that far, is not charged
+ */
+@ConfigurationProperties("payment.production")
+public record ProductionPipelineProperties(Map<String, StageSize> stages,
+                                           @DefaultValue("50ms") Duration admissionTimeout,
+                                           @DefaultValue("3") int maxAttempts,
+                                           @DefaultValue("100ms") Duration retryBackoff,
+                                           @DefaultValue("100000") int idempotencyMaxEntries,
+                                           @DefaultValue("24h") Duration idempotencyTtl,
+                                           @DefaultValue("5s") Duration acceptTimeout) {
+
+    /** Charge threads mostly wait on the gateway, so that stage gets many; the others are CPU-short. */
+    public static final Map<String, StageSize> DEFAULT_SIZES = Map.of(
+            "validate", new StageSize(2, 1024),
+            "persist", new StageSize(2, 1024),
+            "route", new StageSize(2, 1024),
+            "charge", new StageSize(32, 1024),
+            "settle", new StageSize(2, 1024));
+
+    public static final ProductionPipelineProperties DEFAULTS =
+            new ProductionPipelineProperties(Map.of(), Duration.ofMillis(50), 3, Duration.ofMillis(100), 100_000,
+                    Duration.ofHours(24), Duration.ofSeconds(5));
+
+    public record StageSize(@DefaultValue("2") int threads, @DefaultValue("1024") int queue) {
+        public StageSize {
+            if (threads <= 0 || queue <= 0) throw new IllegalArgumentException("Stage threads and queue must be > 0");
+        }
+    }
+
+    public ProductionPipelineProperties {
+        stages = stages == null ? Map.of() : Map.copyOf(stages);
+        if (maxAttempts <= 0) throw new IllegalArgumentException("maxAttempts must be >= 1");
+    }
+
+    public StageSize stage(String name) {
+        StageSize size = stages.get(name);
+        return size != null ? size : DEFAULT_SIZES.getOrDefault(name, new StageSize(2, 1024));
+    }
+}
@@ -0,0 +1,168 @@
+package com.paymentflow.service.production;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One step of the production pipeline: a fixed pool of {@code threads} fed by a bounded queue of
+ * {@code queueCapacity} items, and its own meters, tagged {@code stage=<name>}:
+ * <pre>
+ *  payment.stage.queue.time     submitted until a thread picks it up (histogram)
+ *  payment.stage.service.time   time in the handler (histogram)
+ *  payment.stage.queue.depth    items waiting
+ *  payment.stage.utilization    busy threads / threads
+ * </pre>
+ * A stage whose queue time grows while its utilization sits at 1 is the bottleneck: give it threads.
+ * High queue time at low utilization means its own downstream hand-off is what is blocking.
+ * <p>
+ * The pool's threads are started up front so items can be put straight into its queue: {@link #put}
+ * blocks while the queue is full (backpressure towards the previous stage), {@link #offer} waits a
+ * bounded time (admission). An item the stage won't run, because it was handed over as the stage shut
+ * down or was still queued when {@link #close} stopped it, goes to the error handler with a
+ * {@link RejectedExecutionException} instead of being dropped.
+ */
+final class Stage<T> implements AutoCloseable {
+
+    @FunctionalInterface
+    interface Handler<T> {
+        void handle(T item) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface ErrorHandler<T> {
+        void onError(T item, Throwable error);
+    }
+
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(1_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    private final String name;
+    private final Handler<T> handler;
+    private final ErrorHandler<T> onError;
+    private final ThreadPoolExecutor executor;
+    private final BlockingQueue<Runnable> queue;
+    private final Timer queueTime;
+    private final Timer serviceTime;
+
+    Stage(String name, int threads, int queueCapacity, Handler<T> handler, ErrorHandler<T> onError,
+          MeterRegistry registry) {
+        this.name = name;
+        this.handler = handler;
+        this.onError = onError;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        var counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, r -> {
+            Thread t = new Thread(r, "stage-" + name + "-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.prestartAllCoreThreads();
+
+        this.queueTime = histogram("payment.stage.queue.time", "submitted until a stage thread picks it up", name)
+                .register(registry);
+        this.serviceTime = histogram("payment.stage.service.time", "time in the stage handler", name)
+                .register(registry);
+        Gauge.builder("payment.stage.queue.depth", queue, BlockingQueue::size)
+                .description("items waiting for a stage thread").tag("stage", name).register(registry);
+        Gauge.builder("payment.stage.utilization", executor, e -> (double) e.getActiveCount() / e.getMaximumPoolSize())
+                .description("busy threads / threads").tag("stage", name).register(registry);
+    }
+
+    /** Blocks while the stage is full. */
+    void put(T item) throws InterruptedException {
+        checkOpen();
+        var job = new Job(item, System.nanoTime());
+        queue.put(job);
+        recheckOpen(job);
+    }
+
+    /** Waits at most {@code timeoutMillis} for room; false = the stage stayed full and the item was not taken. */
+    boolean offer(T item, long timeoutMillis) throws InterruptedException {
+        checkOpen();
+        var job = new Job(item, System.nanoTime());
+        if (!queue.offer(job, timeoutMillis, TimeUnit.MILLISECONDS)) return false;
+        recheckOpen(job);
+        return true;
+    }
+
+    String name() {
+        return name;
+    }
+
+    int queueSize() {
+        return queue.size();
+    }
+
+    /** Stops taking items; what is queued still runs. Returns false if that didn't finish within the timeout. */
+    boolean shutdown(long timeoutMillis) throws InterruptedException {
+        executor.shutdown();
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops at once: running handlers are interrupted, queued items go to the error handler. */
+    @Override
+    public void close() {
+        for (Runnable dropped : executor.shutdownNow()) {
+            if (dropped instanceof Stage<?>.Job job) job.reject();
+        }
+    }
+
+    private void checkOpen() {
+        if (executor.isShutdown()) throw rejected();
+    }
+
+    // the queue is written directly, so a shutdown can land between checkOpen and the write; once the
+    // workers have drained and exited nobody would run the item. Take it back (unless a worker or
+    // close() already has it) and refuse it like checkOpen would have.
+    private void recheckOpen(Job job) {
+        if (executor.isShutdown() && queue.remove(job)) throw rejected();
+    }
+
+    private RejectedExecutionException rejected() {
+        return new RejectedExecutionException("Stage " + name + " is shut down");
+    }
+
+    private static Timer.Builder histogram(String metric, String description, String stage) {
+        return Timer.builder(metric).description(description).tag("stage", stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED);
+    }
+
+    private final class Job implements Runnable {
+        final T item;
+        final long submittedAt;
+
+        Job(T item, long submittedAt) {
+            this.item = item;
+            this.submittedAt = submittedAt;
+        }
+
+        void reject() {
+            onError.onError(item, rejected());
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            queueTime.record(start - submittedAt, TimeUnit.NANOSECONDS);
+            try {
+                handler.handle(item);
+            } catch (Throwable t) {
+                if (t instanceof InterruptedException) Thread.currentThread().interrupt();
+                onError.onError(item, t);
+            } finally {
+                serviceTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.paymentflow.concurrency;
+
+import com.paymentflow.service.learning.AdaptiveConcurrencyLimiter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Simulation harness: 200 virtual-thread clients hammer a fake gateway that serves {@code capacity}
+ * calls at {@code baseMillis} and queues the rest (latency grows with in-flight / capacity).
+ * Midway the gateway degrades: it gets 4x slower and its capacity halves.
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final class SimulatedGateway {
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile int capacity = 20;
+        volatile long baseMillis = 5;
+
+        void call() throws InterruptedException {
+            int n = inFlight.incrementAndGet();
+            try {
+                Thread.sleep(baseMillis * Math.max(1, (n + capacity - 1) / capacity));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    @Tag("load")
+    void limitTracksCapacityAndBacksOffWhenTheGatewayDegrades() throws Exception {
+        var gateway = new SimulatedGateway();
+        var limiter = new AdaptiveConcurrencyLimiter(10, 1, 200);
+        var running = new AtomicBoolean(true);
+
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            clients.add(Thread.ofVirtual().start(() -> {
+                while (running.get()) {
+                    try {
+                        if (!limiter.acquire(50)) continue;
+                        long start = System.nanoTime();
+                        try {
+                            gateway.call();
+                        } finally {
+                            limiter.onSample(System.nanoTime() - start, true);
+                            limiter.release();
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }));
+        }
+
+        Thread.sleep(500);
+        double healthyLimit = averageLimit(limiter, 1_000);
+
+        gateway.baseMillis = 20;
+        gateway.capacity = 10;
+        Thread.sleep(1_000);
+        double degradedLimit = averageLimit(limiter, 1_000);
+
+        running.set(false);
+        for (Thread t : clients) t.join();
+
+        // 200 clients would push it to the max of 200: it must hover around the gateway's real capacity
+        assertTrue(healthyLimit >= 10 && healthyLimit <= 60, "healthy limit " + healthyLimit);
+        assertTrue(degradedLimit < healthyLimit, "degraded " + degradedLimit + " vs healthy " + healthyLimit);
+    }
+
+    // the limit probes above capacity and backs off again, so compare phases by their average
+    private static double averageLimit(AdaptiveConcurrencyLimiter limiter, long millis) throws InterruptedException {
+        long sum = 0;
+        int samples = 0;
+        for (long end = System.currentTimeMillis() + millis; System.currentTimeMillis() < end; samples++) {
+            sum += limiter.limit();
+            Thread.sleep(10);
+        }
+        return (double) sum / samples;
+    }
+
+    @Test
+    void growsWhileLatencyHoldsAndShrinksWhenItInflates() throws Exception {
+        var limiter = new AdaptiveConcurrencyLimiter(10, 1, 200);
+        for (int i = 0; i < 10; i++) assertTrue(limiter.acquire(0)); // busy enough to count as a signal
+
+        for (int i = 0; i < 20; i++) limiter.onSample(5_000_000, true);
+        int grown = limiter.limit();
+        assertTrue(grown > 10, "limit " + grown);
+
+        while (limiter.acquire(0)) { } // fill the grown limit too
+        for (int i = 0; i < 50; i++) limiter.onSample(20_000_000, true); // calls now queue at the gateway
+        assertTrue(limiter.limit() < grown, "limit " + limiter.limit() + " vs " + grown);
+    }
+
+    @Test
+    void errorsShrinkTheLimit() throws Exception {
+        var limiter = new AdaptiveConcurrencyLimiter(50, 1, 100);
+        for (int i = 0; i < 10; i++) limiter.onSample(1_000_000, false);
+        assertTrue(limiter.limit() < 20);
+        assertTrue(limiter.acquire(0));
+        limiter.release();
+    }
+}
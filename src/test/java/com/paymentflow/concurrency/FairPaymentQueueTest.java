@@ -0,0 +1,140 @@
+package com.paymentflow.concurrency;
+
+import com.paymentflow.model.PaymentPriority;
+import com.paymentflow.service.learning.FairPaymentQueue;
+import com.paymentflow.service.learning.FairQueueProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FairPaymentQueueTest {
+
+    private record Item(String tenant, PaymentPriority priority, int seq) implements FairPaymentQueue.Scheduled {
+    }
+
+    private static FairPaymentQueue<Item> queue(int capacity, Map<String, Integer> tenantWeights) {
+        return new FairPaymentQueue<>(capacity, new FairQueueProperties(8, 2, 1, 100, tenantWeights));
+    }
+
+    private static List<Item> take(FairPaymentQueue<Item> q, int n) throws InterruptedException {
+        List<Item> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) out.add(q.take());
+        return out;
+    }
+
+    private static long count(List<Item> items, String tenant) {
+        return items.stream().filter(i -> i.tenant().equals(tenant)).count();
+    }
+
+    // shares are exact over a full round; allow one take of rounding at the window's edge
+    private static void assertNear(long expected, long actual) {
+        assertTrue(Math.abs(expected - actual) <= 1, "expected " + expected + " +-1 but was " + actual);
+    }
+
+    @Test
+    void smallTenantIsNotStuckBehindAFlood() throws InterruptedException {
+        var q = queue(1_000, Map.of());
+        for (int i = 0; i < 500; i++) q.put(new Item("bulk", PaymentPriority.CHECKOUT, i));
+        for (int i = 0; i < 5; i++) q.put(new Item("shop", PaymentPriority.CHECKOUT, i));
+
+        List<Item> first = take(q, 10);
+        assertEquals(5, count(first, "shop")); // alternates with the flood instead of waiting for 500
+        for (int i = 0; i < 5; i++) assertEquals(i, first.stream().filter(x -> x.tenant().equals("shop")).toList().get(i).seq());
+    }
+
+    @Test
+    void backloggedTenantsShareByWeight() throws InterruptedException {
+        var q = queue(1_000, Map.of("big", 3));
+        for (int i = 0; i < 200; i++) {
+            q.put(new Item("big", PaymentPriority.CHECKOUT, i));
+            q.put(new Item("small", PaymentPriority.CHECKOUT, i));
+        }
+        List<Item> first = take(q, 100);
+        assertNear(75, count(first, "big"));
+        assertNear(25, count(first, "small"));
+    }
+
+    @Test
+    void lowerClassesAreSlowedDownNotStarved() throws InterruptedException {
+        var q = queue(1_000, Map.of());
+        for (int i = 0; i < 300; i++) {
+            q.put(new Item("a", PaymentPriority.RETRY, i));
+            q.put(new Item("a", PaymentPriority.PAYOUT, i));
+        }
+        q.put(new Item("a", PaymentPriority.CHECKOUT, 0));
+        assertEquals(PaymentPriority.CHECKOUT, q.take().priority()); // jumps 600 queued items
+
+        for (int i = 0; i < 300; i++) q.put(new Item("b", PaymentPriority.CHECKOUT, i));
+        List<Item> next = take(q, 110);
+        long retries = next.stream().filter(x -> x.priority() == PaymentPriority.RETRY).count();
+        long payouts = next.stream().filter(x -> x.priority() == PaymentPriority.PAYOUT).count();
+        assertNear(10, retries); // 8:2:1
+        assertNear(20, payouts);
+    }
+
+    @Test
+    void oneTenantCannotFillTheQueue() throws InterruptedException {
+        var q = new FairPaymentQueue<Item>(10, new FairQueueProperties(8, 2, 1, 50, Map.of()));
+        for (int i = 0; i < 5; i++) assertTrue(q.offer(new Item("bulk", PaymentPriority.PAYOUT, i), 0));
+        assertFalse(q.offer(new Item("bulk", PaymentPriority.CHECKOUT, 5), 10));
+        assertTrue(q.offer(new Item("shop", PaymentPriority.CHECKOUT, 0), 0));
+        assertEquals(5, q.size("bulk"));
+        assertEquals(6, q.size());
+
+        while (!q.take().tenant().equals("bulk")) {
+            assertFalse(q.offer(new Item("bulk", PaymentPriority.PAYOUT, 6), 0));
+        }
+        assertTrue(q.offer(new Item("bulk", PaymentPriority.PAYOUT, 6), 0)); // room in its share again
+    }
+
+    @Test
+    void drainReturnsEverythingAndLeavesTheQueueEmpty() throws InterruptedException {
+        var q = queue(100, Map.of());
+        for (int i = 0; i < 30; i++) q.put(new Item("t" + (i % 3), PaymentPriority.values()[i % 3], i));
+        List<Item> sink = new ArrayList<>();
+        assertEquals(30, q.drainTo(sink));
+        assertEquals(30, sink.size());
+        assertEquals(0, q.size());
+        assertEquals(0, q.size("t1"));
+    }
+
+    @Test
+    void everyItemIsTakenExactlyOnceWithManyProducersAndConsumers() throws InterruptedException {
+        var q = queue(64, Map.of("t0", 4));
+        int producers = 8, perProducer = 20_000;
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        q.put(new Item("t" + (i % 5), PaymentPriority.values()[i % 3], id * perProducer + i));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int c = 0; c < 4; c++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    for (int i = 0; i < producers * perProducer / 4; i++) {
+                        assertTrue(seen.add((long) q.take().seq()));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(producers * perProducer, seen.size());
+        assertEquals(0, q.size());
+    }
+}
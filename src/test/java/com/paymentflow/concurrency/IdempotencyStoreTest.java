@@ -0,0 +1,48 @@
+package com.paymentflow.concurrency;
+
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.service.IdempotencyStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyStoreTest {
+
+    @Test
+    void duplicateGetsStoredResultUntilTtlExpires() {
+        var now = new AtomicLong();
+        var store = new IdempotencyStore(1_000, Duration.ofSeconds(10), now::get);
+        var first = PaymentResult.accepted(UUID.randomUUID());
+
+        assertNull(store.putIfAbsent("key-1", first));
+        assertEquals(first, store.putIfAbsent("key-1", PaymentResult.accepted(UUID.randomUUID())));
+
+        var terminal = PaymentResult.success(first.paymentId());
+        store.update("key-1", terminal);
+        assertEquals(terminal, store.get("key-1"));
+
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertNull(store.get("key-1"));
+        assertEquals(1, store.expirationCount());
+    }
+
+    @Test
+    void boundedSizeAndRepeatedKeysSurviveAScanOfNewOnes() {
+        var store = new IdempotencyStore(160, Duration.ofHours(1));
+        for (int i = 0; i < 16; i++) {
+            store.putIfAbsent("hot-" + i, PaymentResult.accepted(UUID.randomUUID()));
+            store.get("hot-" + i); // second touch promotes it to the protected segment
+        }
+        for (int i = 0; i < 1_000; i++) {
+            store.putIfAbsent("once-" + i, PaymentResult.accepted(UUID.randomUUID()));
+        }
+
+        assertTrue(store.size() <= 160);
+        assertTrue(store.evictionCount() >= 856);
+        for (int i = 0; i < 16; i++) assertNotNull(store.get("hot-" + i));
+    }
+}
@@ -3,6 +3,10 @@ package com.paymentflow.concurrency;
 import com.paymentflow.service.learning.ManualRetry;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class ManualRetryTest {
@@ -16,4 +20,17 @@ public class ManualRetryTest {
         });
         assertEquals("OK", out);
     }
+
+    @Test
+    void asyncRetriesOnSchedulerAndEventuallySucceeds() throws Exception {
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        final int[] counter = {0};
+        String out = ManualRetry.executeAsync(3, 50, scheduler, () -> ++counter[0] < 3
+                ? CompletableFuture.<String>failedFuture(new RuntimeException("transient"))
+                : CompletableFuture.completedFuture("OK")
+        ).get(2, TimeUnit.SECONDS);
+        scheduler.shutdownNow();
+        assertEquals("OK", out);
+        assertEquals(3, counter[0]);
+    }
 }
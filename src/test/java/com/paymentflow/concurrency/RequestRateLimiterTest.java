@@ -0,0 +1,29 @@
+package com.paymentflow.concurrency;
+
+import com.paymentflow.ratelimit.RequestRateLimiter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestRateLimiterTest {
+
+    @Test
+    void newKeysPastTheLimitEvictOldOnesInsteadOfGrowingTheMap() {
+        var limiter = new RequestRateLimiter(true, 1_000_000, 1_000_000, 1, 5, 100);
+        for (int i = 0; i < 10_000; i++) assertEquals(0L, limiter.tryAcquire("tenant-" + i));
+        assertEquals(100, limiter.trackedKeys());
+    }
+
+    @Test
+    void aRequestTheGlobalBucketRefusesCostsTheTenantNothing() {
+        // global: one token, the next in 100s; tenant: two tokens, the next in 1000s
+        var limiter = new RequestRateLimiter(true, 0.01, 1, 0.001, 2, 100);
+        assertEquals(0L, limiter.tryAcquire(null)); // an anonymous caller takes the only global token
+
+        for (int i = 0; i < 10; i++) {
+            long wait = limiter.tryAcquire("tenant");
+            // still refused by the global bucket: the tenant kept its burst, so it never hits its own 1000s wait
+            assertTrue(wait > 0 && wait <= 100_000_000_000L, "wait " + wait);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.paymentflow.concurrency;
+
+import com.paymentflow.service.learning.RingBufferPaymentQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferPaymentQueueTest {
+
+    @Test
+    void offerFailsWhenFullAndPollWhenEmpty() {
+        var q = new RingBufferPaymentQueue<Integer>(2, RingBufferPaymentQueue.WaitStrategy.SPIN);
+        assertTrue(q.offer(1));
+        assertTrue(q.offer(2));
+        assertFalse(q.offer(3));
+        assertEquals(2, q.size());
+
+        assertEquals(1, q.poll());
+        assertEquals(2, q.poll());
+        assertNull(q.poll());
+        assertEquals(0, q.size());
+    }
+
+    @Test
+    void timedOfferGivesUpWhenFullAndSucceedsOnceSpaceFrees() throws InterruptedException {
+        var q = new RingBufferPaymentQueue<Integer>(2, RingBufferPaymentQueue.WaitStrategy.PARK);
+        assertTrue(q.offer(1, 0));
+        assertTrue(q.offer(2, 0));
+        long start = System.nanoTime();
+        assertFalse(q.offer(3, 20));
+        assertTrue(System.nanoTime() - start >= 20_000_000L);
+
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(10);
+                q.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        assertTrue(q.offer(3, 1_000));
+        consumer.join();
+    }
+
+    @Test
+    void everyItemIsTakenExactlyOnceWithManyProducersAndConsumers() throws InterruptedException {
+        var q = new RingBufferPaymentQueue<Long>(16, RingBufferPaymentQueue.WaitStrategy.YIELD);
+        int producers = 4, consumers = 4, perProducer = 10_000;
+        var sum = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (long i = 1; i <= perProducer; i++) q.put(i);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < producers * perProducer / consumers; i++) sum.addAndGet(q.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) t.join(10_000);
+
+        long expected = producers * ((long) perProducer * (perProducer + 1) / 2);
+        assertEquals(expected, sum.get());
+        assertEquals(0, q.size());
+    }
+}
@@ -0,0 +1,99 @@
+package com.paymentflow.concurrency;
+
+import com.paymentflow.service.learning.SlidingWindowCircuitBreaker;
+import com.paymentflow.service.learning.SlidingWindowCircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlidingWindowCircuitBreakerTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static SlidingWindowCircuitBreaker breaker(AtomicLong clock) {
+        var options = new SlidingWindowCircuitBreaker.Options(10, 4, 50, 80,
+                Duration.ofMillis(100), Duration.ofMillis(200), 2);
+        return new SlidingWindowCircuitBreaker(options, clock::get);
+    }
+
+    @Test
+    void opensOnFailureRateNotOnConsecutiveFailures() {
+        var clock = new AtomicLong();
+        var cb = breaker(clock);
+
+        // alternating outcomes never give 3 in a row, but half of the window failed
+        cb.recordFailure();
+        cb.recordSuccess();
+        cb.recordFailure();
+        assertEquals(State.CLOSED, cb.getState()); // below minimumCalls
+        cb.recordSuccess();
+        assertEquals(State.OPEN, cb.getState());
+        assertFalse(cb.allowRequest());
+    }
+
+    @Test
+    void opensOnSlowCallsEvenWhenTheyAllSucceed() {
+        var clock = new AtomicLong();
+        var cb = breaker(clock);
+        for (int i = 0; i < 4; i++) cb.recordSuccess(150 * MS);
+        assertEquals(State.OPEN, cb.getState());
+    }
+
+    @Test
+    void halfOpenLetsOnlyTheProbesThroughAndClosesWhenTheyAllSucceed() {
+        var clock = new AtomicLong();
+        var cb = breaker(clock);
+        for (int i = 0; i < 4; i++) cb.recordFailure();
+        assertEquals(State.OPEN, cb.getState());
+
+        clock.addAndGet(200 * MS);
+        assertTrue(cb.allowRequest());
+        assertTrue(cb.allowRequest());
+        assertFalse(cb.allowRequest()); // only 2 probes
+        assertEquals(State.HALF_OPEN, cb.getState());
+
+        cb.recordSuccess();
+        assertEquals(State.HALF_OPEN, cb.getState());
+        cb.recordSuccess();
+        assertEquals(State.CLOSED, cb.getState());
+        assertEquals(-1f, cb.failureRate()); // window starts over
+    }
+
+    @Test
+    void failedProbeReopens() {
+        var clock = new AtomicLong();
+        var cb = breaker(clock);
+        for (int i = 0; i < 4; i++) cb.recordFailure();
+        clock.addAndGet(200 * MS);
+        assertTrue(cb.allowRequest());
+        cb.recordFailure();
+        assertEquals(State.OPEN, cb.getState());
+        assertFalse(cb.allowRequest()); // a fresh open period started with the failed probe
+    }
+
+    @Test
+    void exactlyOneThreadWinsTheOpenToHalfOpenTransition() throws InterruptedException {
+        var clock = new AtomicLong();
+        var cb = breaker(clock);
+        for (int i = 0; i < 4; i++) cb.recordFailure();
+        clock.addAndGet(200 * MS);
+
+        var admitted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 100; i++) {
+                    if (cb.allowRequest()) admitted.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(2, admitted.get());
+    }
+}
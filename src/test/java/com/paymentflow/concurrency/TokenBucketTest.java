@@ -0,0 +1,71 @@
+package com.paymentflow.concurrency;
+
+import com.paymentflow.ratelimit.TokenBucket;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        var clock = new AtomicLong();
+        var bucket = new TokenBucket(10, 3, clock::get); // one token per 100ms
+
+        assertEquals(0L, bucket.tryAcquire());
+        assertEquals(0L, bucket.tryAcquire());
+        assertEquals(0L, bucket.tryAcquire());
+        assertEquals(100 * MS, bucket.tryAcquire()); // empty: next token in 100ms
+
+        clock.addAndGet(100 * MS);
+        assertEquals(0L, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+
+        // a long pause refills to the burst, never beyond it
+        clock.addAndGet(10_000 * MS);
+        assertTrue(bucket.isIdle());
+        for (int i = 0; i < 3; i++) assertEquals(0L, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanTheBurst() throws InterruptedException {
+        var clock = new AtomicLong();
+        var bucket = new TokenBucket(1, 50, clock::get); // frozen clock: only the burst is available
+        var admitted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    if (bucket.tryAcquire() == 0) admitted.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(50, admitted.get());
+    }
+
+    @Test
+    void refundGivesBackOneToken() {
+        var clock = new AtomicLong();
+        var bucket = new TokenBucket(10, 2, clock::get);
+
+        assertEquals(0L, bucket.tryAcquire());
+        assertEquals(0L, bucket.tryAcquire());
+        bucket.refund();
+        assertEquals(0L, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+
+        clock.addAndGet(10_000 * MS);
+        bucket.refund(); // on a full bucket: still capped at the burst
+        for (int i = 0; i < 2; i++) assertEquals(0L, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+    }
+}
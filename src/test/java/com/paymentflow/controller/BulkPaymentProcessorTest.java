@@ -0,0 +1,125 @@
+package com.paymentflow.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymentflow.model.BulkItemResult;
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+import com.paymentflow.ratelimit.RequestRateLimiter;
+import com.paymentflow.service.PaymentOrchestrator;
+import com.paymentflow.service.PaymentService;
+import com.paymentflow.service.PaymentStatusWaiters;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkPaymentProcessorTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    private final PaymentService service = new PaymentService() {
+        @Override
+        public PaymentResult createPayment(PaymentRequest request) {
+            return PaymentResult.accepted(UUID.randomUUID());
+        }
+
+        @Override
+        public List<PaymentResult> createPayments(List<PaymentRequest> requests) {
+            batchSizes.add(requests.size());
+            return PaymentService.super.createPayments(requests);
+        }
+
+        @Override
+        public PaymentResult getStatus(UUID paymentId) {
+            return PaymentResult.accepted(paymentId);
+        }
+    };
+
+    private List<BulkItemResult> run(String body) throws Exception {
+        return run(body, new RequestRateLimiter(false, 1, 1, 1, 1, 1), 10_000);
+    }
+
+    private List<BulkItemResult> run(String body, RequestRateLimiter limiter, int maxItems) throws Exception {
+        var orchestrator = new PaymentOrchestrator(service, new PaymentStatusWaiters());
+        var processor = new BulkPaymentProcessor(orchestrator,
+                Validation.buildDefaultValidatorFactory().getValidator(), mapper, limiter, 2, maxItems);
+        var out = new ByteArrayOutputStream();
+        processor.process(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out, "tenant-1");
+        List<BulkItemResult> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(mapper.readValue(line.getBytes(StandardCharsets.UTF_8), BulkItemResult.class));
+        }
+        lines.sort(Comparator.comparingInt(BulkItemResult::index));
+        return lines;
+    }
+
+    private static String item(int amount) {
+        return "{\"amount\":" + amount + ",\"currency\":\"USD\",\"method\":\"card\"}";
+    }
+
+    @Test
+    void ndjsonIsCreatedInBatchesAndBadItemsDoNotStopTheRest() throws Exception {
+        String body = String.join("\n", item(10), item(0), "{\"amount\":\"abc\"}", item(20), item(30), item(40), "");
+        List<BulkItemResult> lines = run(body);
+
+        assertEquals(6, lines.size());
+        assertEquals(PaymentStatus.PROCESSING, lines.get(0).status());
+        assertEquals(PaymentStatus.FAILED, lines.get(1).status()); // amount below @Min(1)
+        assertNull(lines.get(1).paymentId());
+        assertEquals(PaymentStatus.FAILED, lines.get(2).status()); // not a number
+        for (int i = 3; i < 6; i++) assertEquals(PaymentStatus.PROCESSING, lines.get(i).status());
+        assertEquals(List.of(2, 2), batchSizes);
+    }
+
+    @Test
+    void jsonArrayIsStreamedTheSameWay() throws Exception {
+        List<BulkItemResult> lines = run("[" + item(10) + "," + item(20) + "," + item(30) + "]");
+        assertEquals(List.of(0, 1, 2), lines.stream().map(BulkItemResult::index).toList());
+        assertTrue(lines.stream().allMatch(l -> l.status() == PaymentStatus.PROCESSING));
+        assertEquals(List.of(2, 1), batchSizes);
+    }
+
+    @Test
+    void malformedJsonEndsTheStreamAfterWhatWasAlreadyAccepted() throws Exception {
+        List<BulkItemResult> lines = run(item(10) + "\n{\"amount\": 5, \"currency\n");
+        assertEquals(2, lines.size());
+        assertEquals(PaymentStatus.PROCESSING, lines.get(0).status());
+        assertTrue(lines.get(1).message().startsWith("Malformed JSON"));
+    }
+
+    @Test
+    void everyItemTakesARateLimitTokenAndRefusedOnesGetA429Line() throws Exception {
+        // tenant burst of 2, refilling once every 1000 s: the third item is over quota
+        var limiter = new RequestRateLimiter(true, 1_000_000, 1_000_000, 0.001, 2, 100);
+        List<BulkItemResult> lines = run(String.join("\n", item(10), item(20), item(30)), limiter, 10_000);
+
+        assertEquals(3, lines.size());
+        assertEquals(PaymentStatus.PROCESSING, lines.get(0).status());
+        assertEquals(PaymentStatus.PROCESSING, lines.get(1).status());
+        assertEquals(PaymentStatus.FAILED, lines.get(2).status());
+        assertTrue(lines.get(2).message().startsWith("429"), lines.get(2).message());
+        assertEquals(List.of(2), batchSizes);
+        assertTrue(limiter.tryAcquire("tenant-1") > 0); // the upload used this tenant's bucket
+    }
+
+    @Test
+    void uploadIsCutOffAfterMaxItems() throws Exception {
+        List<BulkItemResult> lines = run(String.join("\n", item(10), item(20), item(30), item(40), item(50)),
+                new RequestRateLimiter(false, 1, 1, 1, 1, 1), 3);
+
+        assertEquals(4, lines.size());
+        for (int i = 0; i < 3; i++) assertEquals(PaymentStatus.PROCESSING, lines.get(i).status());
+        assertEquals(3, lines.get(3).index());
+        assertTrue(lines.get(3).message().startsWith("Too many items"));
+    }
+}
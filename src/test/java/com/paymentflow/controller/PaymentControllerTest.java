@@ -0,0 +1,57 @@
+package com.paymentflow.controller;
+
+import com.paymentflow.events.PaymentEventLog;
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.ratelimit.RequestRateLimiter;
+import com.paymentflow.service.PaymentOrchestrator;
+import com.paymentflow.service.PaymentService;
+import com.paymentflow.service.PaymentStatusWaiters;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+public class PaymentControllerTest {
+
+    private final PaymentService service = new PaymentService() {
+        @Override
+        public PaymentResult createPayment(PaymentRequest request) {
+            return PaymentResult.accepted(UUID.randomUUID());
+        }
+
+        @Override
+        public PaymentResult getStatus(UUID paymentId) {
+            return PaymentResult.accepted(paymentId);
+        }
+    };
+
+    @Test
+    void longPollTimeoutStaysWithinOneMillisecondAndTheMaxWait() throws Exception {
+        try (var terminal = new TerminalStatusCache(new PaymentEventLog(8), 10)) {
+            var controller = new PaymentController(new PaymentOrchestrator(service, new PaymentStatusWaiters()),
+                    new RequestRateLimiter(false, 1, 1, 1, 1, 1), null, terminal, Duration.ofSeconds(30));
+            MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+            // 0 or less would be no servlet timeout at all: the poll would never end
+            assertEquals(1L, asyncTimeout(mvc, "0"));
+            assertEquals(1L, asyncTimeout(mvc, "-5"));
+            assertEquals(250L, asyncTimeout(mvc, "250"));
+            assertEquals(30_000L, asyncTimeout(mvc, Long.toString(Long.MAX_VALUE)));
+        }
+    }
+
+    private static long asyncTimeout(MockMvc mvc, String timeoutMs) throws Exception {
+        MvcResult result = mvc.perform(get("/api/payments/{id}/result", UUID.randomUUID())
+                        .param("timeoutMs", timeoutMs))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return result.getRequest().getAsyncContext().getTimeout();
+    }
+}
@@ -0,0 +1,107 @@
+package com.paymentflow.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymentflow.model.PaymentPriority;
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentJsonCodecTest {
+
+    private static PaymentRequest parse(String json) throws Exception {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return PaymentJsonCodec.parseRequest(bytes, 0, bytes.length);
+    }
+
+    private static String encode(PaymentResult result) {
+        return new String(PaymentJsonCodec.encode(result), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void parsesEveryFieldAndSkipsUnknownOnes() throws Exception {
+        PaymentRequest request = parse("""
+                 { "extra": {"nested": [1, 2.5e3, "x", true, null, {}]},
+                   "amount" : 100, "currency":"USD", "method": "stripe",
+                   "idempotencyKey": "k\\"1\\u00e9\\n", "merchantId": "shop-é",
+                   "priority": "PAYOUT", "\\u0061mount": 12.5 }
+                """);
+        assertEquals(new PaymentRequest(new BigDecimal("12.5"), "USD", "stripe", "k\"1é\n", "shop-é",
+                PaymentPriority.PAYOUT), request); // the escaped "amount" is the same field, last one wins
+        assertSame("USD", request.currency());
+
+        assertEquals(new PaymentRequest(null, null, null, null, null, null), parse("{}"));
+        assertEquals(new PaymentRequest(null, "EUR", null, null), parse("{\"amount\":null,\"currency\":\"EUR\",\"priority\":null}"));
+    }
+
+    @Test
+    void amountsKeepTheirValueAndScale() throws Exception {
+        for (String amount : List.of("10.50", "-3.25", "0", "0.001", "1e3", "2.5E-2",
+                "12345678901234567890.123", "999999999999999999")) {
+            BigDecimal parsed = parse("{\"amount\":" + amount + "}").amount();
+            assertEquals(new BigDecimal(amount), parsed, amount);
+        }
+        assertEquals(new BigDecimal("42.10"), parse("{\"amount\":\"42.10\"}").amount()); // a string, as Jackson takes it
+    }
+
+    @Test
+    void malformedBodiesAreRejected() {
+        for (String body : List.of("", "   ", "[]", "{", "{\"amount\"}", "{\"amount\":}", "{\"amount\":01}",
+                "{\"amount\":1.}", "{\"amount\":-}", "{\"amount\":\"ten\"}", "{\"currency\":5}",
+                "{\"priority\":\"URGENT\"}", "{\"method\":\"stri", "{\"a\":1 \"b\":2}", "{} {}",
+                "{\"a\":tru}", "{\"a\":\"\\x\"}", "{\"a\":\"tab\there\"}")) {
+            assertThrows(PaymentJsonCodec.MalformedJsonException.class, () -> parse(body), body);
+        }
+    }
+
+    @Test
+    void readsTheWholeBodyWithOrWithoutALength() throws Exception {
+        byte[] body = ("{\"amount\":5,\"currency\":\"GBP\",\"method\":\"paypal\",\"merchantId\":\""
+                + "m".repeat(2_000) + "\"}").getBytes(StandardCharsets.UTF_8);
+        PaymentRequest sized = PaymentJsonCodec.readRequest(new ByteArrayInputStream(body), body.length);
+        PaymentRequest unsized = PaymentJsonCodec.readRequest(new ByteArrayInputStream(body), -1);
+        assertEquals(sized, unsized);
+        assertEquals(2_000, unsized.merchantId().length());
+
+        byte[] huge = new byte[PaymentJsonCodec.MAX_REQUEST_BYTES + 1];
+        assertThrows(PaymentJsonCodec.MalformedJsonException.class,
+                () -> PaymentJsonCodec.readRequest(new ByteArrayInputStream(huge), -1));
+        assertThrows(PaymentJsonCodec.MalformedJsonException.class,
+                () -> PaymentJsonCodec.readRequest(new ByteArrayInputStream(huge), huge.length));
+    }
+
+    @Test
+    void encodesResultsAsJacksonDoes() {
+        UUID id = UUID.fromString("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+        assertEquals("{\"paymentId\":\"0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0\",\"status\":\"SUCCESS\",\"message\":null}",
+                encode(new PaymentResult(id, PaymentStatus.SUCCESS, null)));
+        assertEquals("{\"paymentId\":\"0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0\",\"status\":\"FAILED\","
+                        + "\"message\":\"say \\\"no\\\" \\\\ a/b\\n\\t\\u001F café €1 \uD83D\uDE00\"}",
+                encode(new PaymentResult(id, PaymentStatus.FAILED, "say \"no\" \\ a/b\n\t\u001f café €1 \uD83D\uDE00")));
+
+        for (int i = 0; i < 1_000; i++) {
+            UUID random = UUID.randomUUID();
+            assertTrue(encode(PaymentResult.accepted(random)).startsWith("{\"paymentId\":\"" + random + "\","));
+        }
+    }
+
+    @Test
+    void nullFieldsAreWrittenAsNullLikeJacksonDoes() throws Exception {
+        var mapper = new ObjectMapper();
+        UUID id = UUID.randomUUID();
+        for (PaymentResult result : List.of(new PaymentResult(null, null, null),
+                new PaymentResult(null, PaymentStatus.FAILED, "no id"), new PaymentResult(id, null, null))) {
+            assertEquals(mapper.writeValueAsString(result), encode(result));
+        }
+        assertEquals("{\"paymentId\":null,\"status\":null,\"message\":null}",
+                encode(new PaymentResult(null, null, null)));
+    }
+}
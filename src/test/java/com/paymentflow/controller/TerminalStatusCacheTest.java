@@ -0,0 +1,60 @@
+package com.paymentflow.controller;
+
+import com.paymentflow.events.PaymentEventLog;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TerminalStatusCacheTest {
+
+    private static Payment processing() {
+        return new Payment(UUID.randomUUID(), BigDecimal.TEN, "USD", "stripe", PaymentStatus.PROCESSING,
+                Instant.now(), null);
+    }
+
+    @Test
+    void cachesTheEncodedResponseOfSettledPaymentsPublishedToTheLog() throws Exception {
+        var events = new PaymentEventLog(64);
+        try (var cache = new TerminalStatusCache(events, 100)) {
+            Payment paid = processing(), declined = processing();
+            events.publish(paid);
+            events.publish(declined);
+            events.publish(paid.succeed());
+            events.publish(declined.withFailure("card declined"));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (cache.size() < 2 && System.nanoTime() < deadline) Thread.sleep(1);
+            assertArrayEquals(PaymentJsonCodec.encode(PaymentResult.of(paid.succeed())), cache.get(paid.id()));
+            assertArrayEquals(PaymentJsonCodec.encode(new PaymentResult(declined.id(), PaymentStatus.FAILED,
+                    "card declined")), cache.get(declined.id()));
+            assertNull(cache.get(processing().id()));
+        }
+    }
+
+    @Test
+    void keepsOnlyTerminalStatusesAndEvictsTheOldestFirst() {
+        try (var cache = new TerminalStatusCache(new PaymentEventLog(8), 2)) {
+            Payment first = processing(), second = processing(), third = processing();
+            cache.remember(first);
+            assertEquals(0, cache.size());
+
+            cache.remember(first.succeed());
+            cache.remember(first.withFailure("late")); // already settled: the first terminal response stays
+            assertArrayEquals(PaymentJsonCodec.encode(PaymentResult.of(first.succeed())), cache.get(first.id()));
+
+            cache.remember(second.succeed());
+            cache.remember(third.succeed());
+            assertEquals(2, cache.size());
+            assertNull(cache.get(first.id()));
+            assertNotNull(cache.get(third.id()));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.paymentflow.events;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import com.paymentflow.repository.InMemoryPaymentRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventPublishingPaymentRepositoryTest {
+
+    @Test
+    void onlyAcceptedWritesArePublished() throws Exception {
+        var log = new PaymentEventLog(64);
+        var subscription = log.subscribe("test", 0, false);
+        var repository = new EventPublishingPaymentRepository(new InMemoryPaymentRepository(), log);
+
+        Payment created = new Payment(UUID.randomUUID(), BigDecimal.TEN, "USD", "stripe",
+                PaymentStatus.PROCESSING, Instant.now(), null);
+        Payment other = new Payment(UUID.randomUUID(), BigDecimal.ONE, "USD", "stripe",
+                PaymentStatus.PROCESSING, Instant.now(), null);
+        repository.save(created);
+        repository.saveAll(List.of(other));
+        assertTrue(repository.compareAndSetStatus(created.id(), PaymentStatus.PROCESSING, created.succeed()));
+        assertFalse(repository.compareAndSetStatus(created.id(), PaymentStatus.PROCESSING, created.withFailure("late")));
+        repository.save(created); // late PROCESSING after SUCCESS: kept terminal, not an event
+        repository.save(other.withFailure("declined"));
+
+        List<Payment> events = new ArrayList<>();
+        subscription.poll((seq, p, end) -> events.add(p), 100);
+        assertEquals(List.of(PaymentStatus.PROCESSING, PaymentStatus.PROCESSING, PaymentStatus.SUCCESS,
+                PaymentStatus.FAILED), events.stream().map(Payment::status).toList());
+        assertEquals(List.of(created.id(), other.id(), created.id(), other.id()),
+                events.stream().map(Payment::id).toList());
+    }
+}
@@ -0,0 +1,162 @@
+package com.paymentflow.events;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentEventLogTest {
+
+    private static Payment payment(String merchant) {
+        return new Payment(UUID.randomUUID(), BigDecimal.ONE, "USD", "stripe", PaymentStatus.PROCESSING,
+                Instant.now(), null, merchant);
+    }
+
+    private static List<Long> drain(PaymentEventLog.Subscription subscription, int maxBatch) throws Exception {
+        List<Long> read = new ArrayList<>();
+        while (subscription.poll((seq, p, end) -> read.add(seq), maxBatch) > 0) {
+            // keep reading
+        }
+        return read;
+    }
+
+    @Test
+    void subscriptionsReadInOrderInBatchesFromTheirOwnOffsets() throws Exception {
+        var log = new PaymentEventLog(16);
+        var early = log.subscribe("early", 0, false);
+        for (int i = 0; i < 5; i++) assertEquals(i, log.publish(payment("m")));
+        var late = log.subscribe("late", log.nextSequence(), false);
+
+        List<Boolean> batchEnds = new ArrayList<>();
+        assertEquals(3, early.poll((seq, p, end) -> batchEnds.add(end), 3));
+        assertEquals(List.of(false, false, true), batchEnds);
+        assertEquals(3, early.position());
+        assertEquals(2, early.lag());
+
+        assertEquals(0, late.poll((seq, p, end) -> {
+            throw new AssertionError("nothing new yet");
+        }, 10));
+        log.publish(payment("m"));
+        assertEquals(List.of(3L, 4L, 5L), drain(early, 10));
+        assertEquals(List.of(5L), drain(late, 10));
+    }
+
+    @Test
+    void aFailingHandlerLeavesItsEventForTheNextPoll() throws Exception {
+        var log = new PaymentEventLog(8);
+        var subscription = log.subscribe("retry", 0, false);
+        log.publish(payment("m"));
+        log.publish(payment("m"));
+        assertThrows(IllegalStateException.class, () -> subscription.poll((seq, p, end) -> {
+            if (seq == 1) throw new IllegalStateException("down");
+        }, 10));
+        assertEquals(1, subscription.position());
+        assertEquals(List.of(1L), drain(subscription, 10));
+    }
+
+    @Test
+    void aRunningSubscriptionSkipsTheEventItsHandlerFailsOn() throws Exception {
+        var log = new PaymentEventLog(8);
+        var subscription = log.subscribe("runner", 0, true);
+        List<Long> handled = new CopyOnWriteArrayList<>();
+        subscription.start((seq, p, end) -> {
+            if (seq == 1) throw new IllegalStateException("bad event");
+            handled.add(seq);
+        }, 4);
+        try {
+            for (int i = 0; i < 3; i++) log.publish(payment("m"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (subscription.lag() > 0 && System.nanoTime() < deadline) Thread.sleep(1);
+            assertEquals(List.of(0L, 2L), handled);
+        } finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    void seekReplaysWhatTheRingStillHolds() throws Exception {
+        var log = new PaymentEventLog(8);
+        var subscription = log.subscribe("replay", 0, false);
+        List<Payment> published = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Payment p = payment("m" + i);
+            published.add(p);
+            log.publish(p);
+        }
+        assertEquals(12, log.oldestRetained());
+
+        subscription.seek(14);
+        List<Payment> replayed = new ArrayList<>();
+        subscription.poll((seq, p, end) -> replayed.add(p), 100);
+        assertEquals(published.subList(14, 20), replayed);
+
+        subscription.seek(0); // clamped: 0..11 are overwritten
+        assertEquals(12, subscription.position());
+        assertEquals(8, drain(subscription, 100).size());
+    }
+
+    @Test
+    void nonGatingSubscriptionSkipsWhatWasOverwrittenAndCountsIt() throws Exception {
+        var log = new PaymentEventLog(8);
+        var slow = log.subscribe("webhooks", 0, false);
+        for (int i = 0; i < 20; i++) log.publish(payment("m")); // never waits for "webhooks"
+
+        List<Long> read = drain(slow, 100);
+        assertEquals(12, slow.missed());
+        assertEquals(12L, read.get(0));
+        assertEquals(8, read.size());
+    }
+
+    @Test
+    void gatingSubscriptionSeesEveryEventWhileProducersLapTheRing() throws Exception {
+        var log = new PaymentEventLog(16);
+        int producers = 4, perProducer = 20_000, total = producers * perProducer;
+        var ledger = log.subscribe("ledger", 0, true);
+        long[] seen = new long[producers];
+        List<String> errors = new ArrayList<>();
+        long[] expectedSeq = {0};
+        Thread reader = ledger.start((seq, p, end) -> {
+            if (seq != expectedSeq[0]++) errors.add("gap at " + seq);
+            int producer = Integer.parseInt(p.merchantId());
+            seen[producer]++;
+        }, 32);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < producers; t++) {
+            Payment p = payment(String.valueOf(t));
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perProducer; i++) log.publish(p);
+            }));
+        }
+        for (Thread t : threads) t.join();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ledger.position() < total && System.nanoTime() < deadline) Thread.sleep(1);
+        ledger.close();
+        reader.join(1_000);
+
+        assertEquals(total, ledger.position());
+        assertEquals(0, ledger.missed());
+        assertTrue(errors.isEmpty(), errors.toString());
+        for (long count : seen) assertEquals(perProducer, count);
+    }
+
+    @Test
+    void closedGatingSubscriptionNoLongerHoldsPublishersBack() {
+        var log = new PaymentEventLog(4);
+        var stalled = log.subscribe("stalled", 0, true);
+        for (int i = 0; i < 4; i++) log.publish(payment("m"));
+        stalled.close();
+        for (int i = 0; i < 100; i++) log.publish(payment("m")); // would wait forever while it gated
+        assertEquals(104, log.nextSequence());
+    }
+}
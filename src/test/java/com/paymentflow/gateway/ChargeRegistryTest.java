@@ -0,0 +1,40 @@
+package com.paymentflow.gateway;
+
+import com.paymentflow.model.PaymentResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChargeRegistryTest {
+
+    @Test
+    void forgetsChargesOnceTheirMinuteIsPastRetention() {
+        var clock = new AtomicLong();
+        var registry = new ChargeRegistry(clock::get);
+        UUID old = UUID.randomUUID(), recent = UUID.randomUUID(), recharged = UUID.randomUUID();
+
+        PaymentResult first = registry.commit(PaymentResult.success(old));
+        assertSame(first, registry.commit(PaymentResult.success(old))); // a duplicate gets the first charge back
+        registry.commit(PaymentResult.success(recharged));
+        assertTrue(registry.release(recharged));
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        registry.commit(PaymentResult.success(recent));
+        registry.commit(PaymentResult.success(recharged)); // released and charged again: kept from now on
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        registry.sweep();
+        assertFalse(registry.isCharged(old));
+        assertTrue(registry.isCharged(recent));
+        assertTrue(registry.isCharged(recharged));
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        registry.sweep();
+        assertFalse(registry.isCharged(recent));
+        assertFalse(registry.isCharged(recharged));
+    }
+}
@@ -0,0 +1,78 @@
+package com.paymentflow.gateway;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GatewayRouterTest {
+
+    private record NamedGateway(String name) implements PaymentGateway {
+        @Override
+        public PaymentResult charge(Payment payment) {
+            return PaymentResult.accepted(payment.id());
+        }
+    }
+
+    private final PaymentGateway stripe = new NamedGateway("stripe");
+    private final PaymentGateway paypal = new NamedGateway("paypal");
+
+    private GatewayRouter router(int explorePercent) {
+        var props = new GatewayRoutingProperties("stripe", 0.5, explorePercent, Map.of(
+                "stripe", new GatewayRoutingProperties.Rule(1.0, Set.of("USD", "EUR"), Set.of("stripe", "card")),
+                "paypal", new GatewayRoutingProperties.Rule(1.0, Set.of(), Set.of("paypal", "card"))));
+        return new GatewayRouter(List.of(stripe, paypal), props);
+    }
+
+    private static Payment payment(String currency, String method) {
+        return new Payment(UUID.randomUUID(), BigDecimal.TEN, currency, method, PaymentStatus.PROCESSING, Instant.now(), null);
+    }
+
+    @Test
+    void eligibilityFollowsCurrencyAndMethodRules() {
+        var router = router(0);
+        assertEquals(List.of(paypal), router.route(payment("USD", "paypal")));
+        assertEquals(List.of(paypal), router.route(payment("JPY", "card"))); // stripe doesn't take JPY
+        assertEquals(List.of(stripe), router.route(payment("USD", "bank-transfer"))); // nobody: default gateway
+        assertEquals(2, router.route(payment("USD", "card")).size());
+    }
+
+    @Test
+    void routesOnlyMethodsSomeRuleTakes() {
+        var router = router(0);
+        assertTrue(router.routes("card"));
+        assertTrue(router.routes("PayPal"));
+        assertFalse(router.routes("bank-transfer"));
+        assertFalse(router.routes(null));
+    }
+
+    @Test
+    void prefersTheGatewayWithTheLowestExpectedTimeToSuccess() {
+        var router = router(0);
+        for (int i = 0; i < 10; i++) {
+            router.record(stripe, 200_000_000L, true);
+            router.record(paypal, 80_000_000L, true);
+        }
+        assertEquals(paypal, router.route(payment("USD", "card")).get(0));
+
+        // paypal stays fast but starts failing most calls: stripe is the better bet now
+        for (int i = 0; i < 10; i++) router.record(paypal, 80_000_000L, false);
+        assertEquals(List.of(stripe, paypal), router.route(payment("USD", "card")));
+    }
+
+    @Test
+    void unusedGatewayIsTriedFirst() {
+        var router = router(0);
+        router.record(stripe, 50_000_000L, true);
+        assertEquals(paypal, router.route(payment("USD", "card")).get(0));
+    }
+}
@@ -0,0 +1,52 @@
+package com.paymentflow.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyProfileTest {
+
+    private static long[] sorted(LatencyProfile profile, int n) {
+        var random = new SplittableRandom(7);
+        long[] samples = new long[n];
+        for (int i = 0; i < n; i++) samples[i] = profile.sampleNanos(random, 1);
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    @Test
+    void uniformStaysWithinBounds() {
+        long[] s = sorted(LatencyProfile.uniform(50, 200, 0), 10_000);
+        assertTrue(s[0] >= Duration.ofMillis(50).toNanos());
+        assertTrue(s[s.length - 1] <= Duration.ofMillis(200).toNanos());
+    }
+
+    @Test
+    void lognormalHitsMedianAndP99() {
+        var profile = new LatencyProfile("lognormal", Duration.ZERO, Duration.ZERO,
+                Duration.ofMillis(40), Duration.ofMillis(400), 0);
+        long[] s = sorted(profile, 100_000);
+        double median = s[s.length / 2] / 1e6, p99 = s[(int) (s.length * 0.99)] / 1e6;
+        assertEquals(40, median, 2);
+        assertEquals(400, p99, 40);
+    }
+
+    @Test
+    void failureRateIsHonoured() {
+        var profile = LatencyProfile.uniform(0, 0, 0.25);
+        var random = new SplittableRandom(7);
+        int failed = 0;
+        for (int i = 0; i < 100_000; i++) if (profile.fails(random)) failed++;
+        assertEquals(25_000, failed, 1_000);
+    }
+
+    @Test
+    void lognormalNeedsMedianBelowP99() {
+        assertThrows(IllegalArgumentException.class, () -> new LatencyProfile("lognormal", Duration.ZERO,
+                Duration.ZERO, Duration.ofMillis(100), Duration.ofMillis(10), 0));
+    }
+}
@@ -0,0 +1,91 @@
+package com.paymentflow.ledger;
+
+import com.paymentflow.config.AppConfig;
+import com.paymentflow.events.PaymentEventLog;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import com.paymentflow.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LedgerEventFeedTest {
+
+    private static Payment processing(String merchant, String amount) {
+        return new Payment(UUID.randomUUID(), new BigDecimal(amount), "USD", "stripe", PaymentStatus.PROCESSING,
+                Instant.now(), null, merchant);
+    }
+
+    private static PaymentRepository walRepository(PaymentEventLog events, SettlementLedger ledger, Path dir)
+            throws IOException {
+        return new AppConfig().paymentRepository(events, ledger, "heap", true, dir.toString(), 1, 1, 64, false, 0);
+    }
+
+    private static void awaitCaughtUp(LedgerEventFeed feed) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (feed.lag() > 0 && System.nanoTime() < deadline) Thread.sleep(1);
+        assertEquals(0, feed.lag());
+    }
+
+    @Test
+    void feedAddsEachPublishedSettlementOnce() throws Exception {
+        var events = new PaymentEventLog(8);
+        var ledger = new SettlementLedger();
+        try (var feed = new LedgerEventFeed(events, ledger, 4)) {
+            Payment payment = processing("shop", "2.5");
+            for (int i = 0; i < 40; i++) { // five times round the ring: the feed holds publishers back, never skips
+                events.publish(payment);
+                events.publish(payment.succeed());
+            }
+            awaitCaughtUp(feed);
+        }
+        assertEquals(List.of(new LedgerSnapshot.Balance("shop", "USD", new BigDecimal("100"), 40)),
+                ledger.balances("shop"));
+    }
+
+    @Test
+    void aRestartRebuildsTheLedgerFromRecoveredPaymentsAndTheFeedAddsOnlyNewOnes() throws Exception {
+        Path dir = Files.createTempDirectory("wal");
+        var events = new PaymentEventLog(64);
+        var ledger = new SettlementLedger();
+        var repository = walRepository(events, ledger, dir);
+        try (var feed = new LedgerEventFeed(events, ledger, 16)) {
+            for (int i = 0; i < 3; i++) {
+                Payment payment = repository.save(processing("shop", "5"));
+                repository.save(payment.succeed());
+            }
+            repository.save(processing("shop", "7").withFailure("card declined"));
+            repository.flush();
+            awaitCaughtUp(feed);
+        } finally {
+            ((AutoCloseable) repository).close();
+        }
+        assertEquals(List.of(new LedgerSnapshot.Balance("shop", "USD", new BigDecimal("15"), 3)),
+                ledger.balances("shop"));
+
+        var restartedEvents = new PaymentEventLog(64);
+        var restartedLedger = new SettlementLedger();
+        var restarted = walRepository(restartedEvents, restartedLedger, dir);
+        try (var feed = new LedgerEventFeed(restartedEvents, restartedLedger, 16)) {
+            assertEquals(List.of(new LedgerSnapshot.Balance("shop", "USD", new BigDecimal("15"), 3)),
+                    restartedLedger.balances("shop"));
+
+            Payment payment = restarted.save(processing("shop", "5"));
+            restarted.save(payment.succeed());
+            awaitCaughtUp(feed);
+        } finally {
+            ((AutoCloseable) restarted).close();
+        }
+        assertEquals(List.of(new LedgerSnapshot.Balance("shop", "USD", new BigDecimal("20"), 4)),
+                restartedLedger.balances("shop"));
+    }
+}
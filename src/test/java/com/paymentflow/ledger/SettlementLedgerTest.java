@@ -0,0 +1,125 @@
+package com.paymentflow.ledger;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SettlementLedgerTest {
+
+    private static Payment payment(String merchant, String currency, String amount, PaymentStatus status) {
+        return new Payment(UUID.randomUUID(), new BigDecimal(amount), currency, "stripe", status, Instant.now(),
+                null, merchant);
+    }
+
+    private static LedgerSnapshot.Balance find(LedgerSnapshot snapshot, String merchant, String currency) {
+        return snapshot.balances().stream()
+                .filter(b -> b.merchantId().equals(merchant) && b.currency().equals(currency))
+                .findFirst().orElse(null);
+    }
+
+    @Test
+    void totalsSuccessfulPaymentsPerMerchantAndCurrency() {
+        var ledger = new SettlementLedger();
+        assertTrue(ledger.record(payment("shop", "USD", "10.25", PaymentStatus.SUCCESS)));
+        assertTrue(ledger.record(payment("shop", "USD", "0.75", PaymentStatus.SUCCESS)));
+        assertTrue(ledger.record(payment("shop", "EUR", "3", PaymentStatus.SUCCESS)));
+        assertTrue(ledger.record(payment(null, "USD", "1", PaymentStatus.SUCCESS)));
+        assertFalse(ledger.record(payment("shop", "USD", "99", PaymentStatus.FAILED)));
+        assertFalse(ledger.record(payment("shop", "USD", "99", PaymentStatus.PROCESSING)));
+
+        LedgerSnapshot snapshot = ledger.snapshot();
+        assertEquals(List.of(
+                new LedgerSnapshot.Balance(SettlementLedger.NO_MERCHANT, "USD", new BigDecimal("1"), 1),
+                new LedgerSnapshot.Balance("shop", "EUR", new BigDecimal("3"), 1),
+                new LedgerSnapshot.Balance("shop", "USD", new BigDecimal("11"), 2)), snapshot.balances());
+        assertEquals(ledger.balances("shop"), snapshot.balances().subList(1, 3));
+        assertTrue(ledger.balances("nobody").isEmpty());
+    }
+
+    @Test
+    void amountsBeyondTheFixedScaleAreCountedAsRefused() {
+        var ledger = new SettlementLedger();
+        assertFalse(ledger.record(payment("shop", "USD", "0.00001", PaymentStatus.SUCCESS)));
+        assertTrue(ledger.record(payment("shop", "USD", "1.50000", PaymentStatus.SUCCESS))); // trailing zeros fit
+        LedgerSnapshot snapshot = ledger.snapshot();
+        assertEquals(1, snapshot.refused());
+        assertEquals(new BigDecimal("1.5"), find(snapshot, "shop", "USD").amount());
+    }
+
+    @Test
+    void snapshotsAreConsistentCutsWhileWritersRun() throws Exception {
+        var ledger = new SettlementLedger();
+        int writers = 6, perWriter = 50_000;
+        var stop = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                Payment first = payment("a", "USD", "1", PaymentStatus.SUCCESS);
+                Payment second = payment("b", "USD", "1", PaymentStatus.SUCCESS);
+                for (int i = 0; i < perWriter; i++) {
+                    ledger.record(first);
+                    ledger.record(second); // always after "a": no cut may show more "b" than "a"
+                }
+            }));
+        }
+        List<String> violations = new ArrayList<>();
+        var reader = Thread.ofPlatform().start(() -> {
+            long lastSequence = 0;
+            while (!stop.get()) {
+                LedgerSnapshot s = ledger.snapshot();
+                var a = find(s, "a", "USD");
+                var b = find(s, "b", "USD");
+                long countA = a == null ? 0 : a.count(), countB = b == null ? 0 : b.count();
+                if (countB > countA || countA - countB > writers || s.sequence() <= lastSequence) {
+                    violations.add("seq " + s.sequence() + ": a=" + countA + " b=" + countB);
+                }
+                lastSequence = s.sequence();
+            }
+        });
+        for (Thread t : threads) t.join();
+        stop.set(true);
+        reader.join();
+
+        assertTrue(violations.isEmpty(), violations.toString());
+        LedgerSnapshot last = ledger.snapshot();
+        assertEquals(writers * perWriter, find(last, "a", "USD").count());
+        assertEquals(new BigDecimal(writers * perWriter), find(last, "b", "USD").amount());
+    }
+
+    @Test
+    void merchantBalancesNeverGoBackwardsWhileSnapshotsFold() throws Exception {
+        var ledger = new SettlementLedger();
+        int perWriter = 100_000;
+        var stop = new AtomicBoolean();
+        var writer = Thread.ofPlatform().start(() -> {
+            Payment p = payment("a", "USD", "1", PaymentStatus.SUCCESS);
+            for (int i = 0; i < perWriter; i++) ledger.record(p);
+        });
+        var snapshots = Thread.ofPlatform().start(() -> {
+            while (!stop.get()) ledger.snapshot();
+        });
+        long last = 0;
+        List<String> violations = new ArrayList<>();
+        while (writer.isAlive()) {
+            List<LedgerSnapshot.Balance> balances = ledger.balances("a");
+            long count = balances.isEmpty() ? 0 : balances.get(0).count();
+            if (count < last) violations.add(last + " -> " + count);
+            last = count;
+        }
+        stop.set(true);
+        snapshots.join();
+
+        assertTrue(violations.isEmpty(), violations.toString());
+        assertEquals(perWriter, ledger.balances("a").get(0).count());
+    }
+
+}
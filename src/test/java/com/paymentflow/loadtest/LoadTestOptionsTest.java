@@ -0,0 +1,31 @@
+package com.paymentflow.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadTestOptionsTest {
+
+    @Test
+    void parsesOwnOptionsAndForwardsDottedOnesToTheApplication() {
+        var o = LoadTestOptions.parse("--mode", "closed", "--concurrency=32", "--duration", "2m",
+                "--poll-interval=5ms", "--methods=card", "--payment.learning.queue=ring", "--payment.rate-limit.enabled=false");
+        assertFalse(o.openLoop());
+        assertEquals(32, o.concurrency());
+        assertEquals(Duration.ofMinutes(2), o.duration());
+        assertEquals(Duration.ofMillis(5), o.pollInterval());
+        assertEquals(List.of("card"), o.methods());
+        assertNull(o.url());
+        assertEquals(List.of("--payment.learning.queue=ring", "--payment.rate-limit.enabled=false"), o.appArgs());
+    }
+
+    @Test
+    void rejectsUnknownOptionsAndOpenLoopWithoutRate() {
+        assertThrows(IllegalArgumentException.class, () -> LoadTestOptions.parse("--rps", "10"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTestOptions.parse("--rate", "0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTestOptions.parse("--duration", "30"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.paymentflow.repository;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentStatus;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactPaymentRepositoryTest {
+
+    private static Payment processing(Instant createdAt) {
+        return new Payment(UUID.randomUUID(), new BigDecimal("12.34"), "EUR", "paypal",
+                PaymentStatus.PROCESSING, createdAt.truncatedTo(ChronoUnit.MICROS), null, "merchant-7");
+    }
+
+    @Test
+    void roundTripsEveryField() {
+        var repo = new CompactPaymentRepository();
+        var p = processing(Instant.now());
+        repo.save(p);
+        repo.save(p.withFailure("Stripe temporary failure"));
+
+        var stored = repo.findById(p.id()).orElseThrow();
+
+        assertEquals(p.withFailure("Stripe temporary failure"), stored);
+        assertTrue(repo.findById(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void terminalStateIsFinal() {
+        var repo = new CompactPaymentRepository();
+        var p = processing(Instant.now());
+        repo.save(p);
+        repo.save(p.succeed());
+
+        assertEquals(PaymentStatus.SUCCESS, repo.save(p).status());
+        assertFalse(repo.compareAndSetStatus(p.id(), PaymentStatus.PROCESSING, p.withFailure("late")));
+    }
+
+    @Test
+    void growsAcrossChunksAndKeepsEveryRecordReachable() {
+        var repo = new CompactPaymentRepository();
+        var now = Instant.now();
+        List<Payment> saved = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) saved.add(repo.save(processing(now.minusSeconds(i % 120))));
+
+        assertEquals(200_000, repo.size());
+        for (Payment p : saved) assertEquals(p, repo.findById(p.id()).orElseThrow());
+        long stuck = saved.stream().filter(p -> p.createdAt().isBefore(now.minusSeconds(30))).count();
+        assertEquals(stuck, repo.findByStatus(PaymentStatus.PROCESSING, now.minusSeconds(30)).size());
+    }
+
+    @Test
+    void valuesPastAFullDictionaryAreKeptAsPlainStrings() {
+        var repo = new CompactPaymentRepository();
+        List<Payment> saved = new ArrayList<>();
+        for (int i = 0; i < Short.MAX_VALUE + 100; i++) {
+            saved.add(repo.save(new Payment(UUID.randomUUID(), BigDecimal.ONE, "C" + i, "m" + i,
+                    PaymentStatus.PROCESSING, null, null)));
+        }
+        for (Payment p : saved) assertEquals(p, repo.findById(p.id()).orElseThrow());
+
+        // an update back to an interned value replaces the overflowed one
+        Payment last = saved.get(saved.size() - 1);
+        Payment moved = new Payment(last.id(), last.amount(), "C0", "m0", PaymentStatus.SUCCESS, null, null);
+        repo.save(moved);
+        assertEquals(moved, repo.findById(last.id()).orElseThrow());
+    }
+
+    @Test
+    void everyAmountTheApiAcceptsFitsTheEncoding() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        for (String amount : List.of("99999999999999.9999", "1", "1E+3")) {
+            var request = new PaymentRequest(new BigDecimal(amount), "USD", "card", null);
+            assertTrue(validator.validate(request).isEmpty(), amount);
+            var repo = new CompactPaymentRepository();
+            var p = new Payment(UUID.randomUUID(), request.amount(), "USD", "card", PaymentStatus.PROCESSING,
+                    null, null);
+            repo.save(p);
+            assertEquals(0, p.amount().compareTo(repo.findById(p.id()).orElseThrow().amount()), amount);
+        }
+        for (String amount : List.of("123456789012345678901", "1.00001", "1E+20")) {
+            var request = new PaymentRequest(new BigDecimal(amount), "USD", "card", null);
+            assertFalse(validator.validate(request).isEmpty(), amount); // 400, not a 500 from the store
+        }
+    }
+}
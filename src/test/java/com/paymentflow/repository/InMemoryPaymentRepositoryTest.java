@@ -0,0 +1,70 @@
+package com.paymentflow.repository;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryPaymentRepositoryTest {
+
+    private static Payment processing(Instant createdAt) {
+        return new Payment(UUID.randomUUID(), BigDecimal.TEN, "USD", "stripe",
+                PaymentStatus.PROCESSING, createdAt, null);
+    }
+
+    @Test
+    void savesAndFindsById() {
+        var repo = new InMemoryPaymentRepository();
+        var p = processing(Instant.now());
+
+        assertEquals(p, repo.save(p));
+        assertEquals(p, repo.findById(p.id()).orElseThrow());
+        assertTrue(repo.findById(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void lateProcessingWriteNeverOverwritesTerminalState() {
+        var repo = new InMemoryPaymentRepository();
+        var p = processing(Instant.now());
+        repo.save(p);
+        repo.save(p.succeed());
+
+        var stored = repo.save(p);
+
+        assertEquals(PaymentStatus.SUCCESS, stored.status());
+        assertEquals(PaymentStatus.SUCCESS, repo.findById(p.id()).orElseThrow().status());
+    }
+
+    @Test
+    void compareAndSetOnlySwapsFromExpectedStatus() {
+        var repo = new InMemoryPaymentRepository();
+        var p = processing(Instant.now());
+        repo.save(p);
+
+        assertTrue(repo.compareAndSetStatus(p.id(), PaymentStatus.PROCESSING, p.withFailure("DECLINED")));
+        assertFalse(repo.compareAndSetStatus(p.id(), PaymentStatus.PROCESSING, p.succeed()));
+        assertEquals(PaymentStatus.FAILED, repo.findById(p.id()).orElseThrow().status());
+    }
+
+    @Test
+    void findsStuckProcessingOlderThanCutoff() {
+        var repo = new InMemoryPaymentRepository();
+        var now = Instant.now();
+        var old = repo.save(processing(now.minusSeconds(60)));
+        repo.save(processing(now.minusSeconds(5)));
+        var oldButDone = processing(now.minusSeconds(90));
+        repo.save(oldButDone);
+        repo.save(oldButDone.succeed());
+
+        var stuck = repo.findByStatus(PaymentStatus.PROCESSING, now.minusSeconds(30));
+
+        assertEquals(1, stuck.size());
+        assertEquals(old.id(), stuck.get(0).id());
+        assertEquals(1, repo.findByStatus(PaymentStatus.SUCCESS, now).size());
+    }
+}
@@ -0,0 +1,142 @@
+package com.paymentflow.repository;
+
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentWriteAheadLogTest {
+
+    private static PaymentWriteAheadLog.Options options(Path dir) {
+        return new PaymentWriteAheadLog.Options(dir, 64 * 1024, 1, 64, false);
+    }
+
+    private static Payment processing() {
+        return new Payment(UUID.randomUUID(), new BigDecimal("99.95"), "USD", "stripe",
+                PaymentStatus.PROCESSING, Instant.now(), null, "merchant-1");
+    }
+
+    @Test
+    void replaysEveryTransitionAfterRestart() throws Exception {
+        Path dir = Files.createTempDirectory("wal");
+        List<Payment> written = new ArrayList<>();
+
+        try (var repo = DurablePaymentRepository.open(new InMemoryPaymentRepository(), options(dir), 0)) {
+            // enough records to roll over several 64KB segments
+            for (int i = 0; i < 3_000; i++) {
+                var p = repo.save(processing());
+                written.add(i % 3 == 0 ? p : repo.save(i % 3 == 1 ? p.succeed() : p.withFailure("DECLINED")));
+            }
+        }
+
+        try (var recovered = DurablePaymentRepository.open(new InMemoryPaymentRepository(), options(dir), 0)) {
+            for (Payment p : written) assertEquals(p, recovered.findById(p.id()).orElseThrow());
+            assertEquals(1_000, recovered.findByStatus(PaymentStatus.PROCESSING, Instant.now()).size());
+        }
+    }
+
+    @Test
+    void snapshotCompactsTheLogAndStillRecoversEverything() throws Exception {
+        Path dir = Files.createTempDirectory("wal");
+        List<Payment> written = new ArrayList<>();
+
+        try (var repo = DurablePaymentRepository.open(new InMemoryPaymentRepository(), options(dir), 0)) {
+            for (int i = 0; i < 2_000; i++) written.add(repo.save(repo.save(processing()).succeed()));
+            repo.compact();
+            var late = repo.save(processing()); // lands in the segment after the snapshot
+            written.add(late);
+        }
+
+        long segments;
+        try (var files = Files.list(dir)) {
+            segments = files.filter(f -> f.toString().endsWith(".wal")).count();
+        }
+        assertEquals(1, segments);
+
+        try (var recovered = DurablePaymentRepository.open(new InMemoryPaymentRepository(), options(dir), 0)) {
+            for (Payment p : written) assertEquals(p, recovered.findById(p.id()).orElseThrow());
+        }
+    }
+
+    @Test
+    void syncCommitWaitsForGroupFsync() throws Exception {
+        Path dir = Files.createTempDirectory("wal");
+        var opts = new PaymentWriteAheadLog.Options(dir, 64 * 1024, 2, 8, true);
+
+        try (var wal = PaymentWriteAheadLog.open(opts, p -> { })) {
+            wal.append(processing());
+            assertEquals(wal.writtenOffset(), wal.durableOffset());
+        }
+    }
+
+    @Test
+    void interruptedSyncCommitIsNotAcknowledged() throws Exception {
+        Path dir = Files.createTempDirectory("wal");
+        var opts = new PaymentWriteAheadLog.Options(dir, 64 * 1024, 60_000, 1_000, true); // no fsync soon
+
+        try (var wal = PaymentWriteAheadLog.open(opts, p -> { })) {
+            Thread.currentThread().interrupt();
+            var e = assertThrows(UncheckedIOException.class, () -> wal.append(processing()));
+            assertInstanceOf(InterruptedIOException.class, e.getCause());
+            assertTrue(Thread.interrupted()); // still set for the caller, cleared here so close() can sync
+        }
+    }
+
+    @Test
+    void aWriteTheLogRefusedIsNotAppliedInMemory() throws Exception {
+        Path dir = Files.createTempDirectory("wal");
+        var opts = new PaymentWriteAheadLog.Options(dir, 64 * 1024, 60_000, 1_000, true);
+        var memory = new InMemoryPaymentRepository();
+        Payment p = processing();
+        memory.save(p);
+
+        try (var repo = DurablePaymentRepository.open(memory, opts, 0)) {
+            Thread.currentThread().interrupt(); // the settle's fsync wait gives up
+            assertThrows(UncheckedIOException.class, () -> repo.save(p.succeed()));
+            assertThrows(UncheckedIOException.class, () -> repo.saveAll(List.of(processing())));
+            assertTrue(Thread.interrupted());
+            assertEquals(PaymentStatus.PROCESSING, repo.findById(p.id()).orElseThrow().status());
+            assertEquals(1, memory.findByStatus(PaymentStatus.PROCESSING, Instant.now().plusSeconds(1)).size());
+        }
+        try (var closed = DurablePaymentRepository.open(new InMemoryPaymentRepository(), options(dir), 0)) {
+            closed.close();
+            Payment late = processing();
+            assertThrows(IllegalStateException.class, () -> closed.save(late));
+            assertTrue(closed.findById(late.id()).isEmpty());
+        }
+    }
+
+    @Test
+    void readsVersionOneRecordsWrittenBeforeMerchants() {
+        // version 1 layout: no merchantId after failureReason
+        ByteBuffer frame = ByteBuffer.allocate(PaymentRecordCodec.HEADER_BYTES + 64);
+        frame.position(PaymentRecordCodec.HEADER_BYTES);
+        UUID id = UUID.randomUUID();
+        frame.put((byte) 1).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                .putLong(1999).put((byte) 2).putLong(1_700_000_000L).putInt(0)
+                .put((byte) PaymentStatus.SUCCESS.ordinal());
+        for (String s : new String[]{"EUR", "card"}) frame.putShort((short) s.length()).put(s.getBytes(StandardCharsets.UTF_8));
+        frame.putShort((short) -1);
+        int length = frame.position() - PaymentRecordCodec.HEADER_BYTES;
+        var crc = new CRC32C();
+        crc.update(frame.array(), PaymentRecordCodec.HEADER_BYTES, length);
+        frame.putInt(0, length).putInt(4, (int) crc.getValue()).flip();
+
+        assertEquals(new Payment(id, new BigDecimal("19.99"), "EUR", "card", PaymentStatus.SUCCESS,
+                Instant.ofEpochSecond(1_700_000_000L), null), PaymentRecordCodec.decode(frame));
+    }
+}
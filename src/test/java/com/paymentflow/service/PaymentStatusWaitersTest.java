@@ -0,0 +1,87 @@
+package com.paymentflow.service;
+
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentStatusWaitersTest {
+
+    @Test
+    void waiterIsCompletedByTheTerminalWriteAndEntryIsDropped() throws Exception {
+        try (var waiters = new PaymentStatusWaiters()) {
+            UUID id = UUID.randomUUID();
+            CompletableFuture<PaymentResult> first = waiters.await(id, () -> PaymentResult.accepted(id));
+            CompletableFuture<PaymentResult> second = waiters.await(id, () -> PaymentResult.accepted(id));
+            assertFalse(first.isDone());
+            assertEquals(1, waiters.size());
+
+            second.cancel(false); // one client leaving must not affect the other
+            waiters.complete(PaymentResult.success(id));
+            assertEquals(PaymentStatus.SUCCESS, first.get(1, TimeUnit.SECONDS).status());
+            assertEquals(0, waiters.size());
+        }
+    }
+
+    @Test
+    void waitersThatGiveUpDetachAndTheLastOneDropsTheEntry() throws Exception {
+        try (var waiters = new PaymentStatusWaiters()) {
+            UUID id = UUID.randomUUID();
+            CompletableFuture<PaymentResult> first = waiters.await(id, () -> PaymentResult.accepted(id));
+            CompletableFuture<PaymentResult> second = waiters.await(id, () -> PaymentResult.accepted(id));
+
+            second.completeExceptionally(new TimeoutException()); // what orTimeout does to a long poll
+            assertEquals(1, waiters.size()); // the first one is still waiting
+
+            first.cancel(false); // a payment that never settles: nobody left, nothing kept
+            assertEquals(0, waiters.size());
+
+            CompletableFuture<PaymentResult> late = waiters.await(id, () -> PaymentResult.accepted(id));
+            waiters.complete(PaymentResult.success(id));
+            assertEquals(PaymentStatus.SUCCESS, late.get(1, TimeUnit.SECONDS).status());
+        }
+    }
+
+    @Test
+    void alreadySettledPaymentAnswersAtOnce() {
+        try (var waiters = new PaymentStatusWaiters()) {
+            UUID id = UUID.randomUUID();
+            var result = waiters.await(id, () -> PaymentResult.failed(id, "declined"));
+            assertTrue(result.isDone());
+            assertEquals(0, waiters.size());
+        }
+    }
+
+    @Test
+    void noWakeUpIsLostWhenTheWriteRacesTheRegistration() throws Exception {
+        try (var waiters = new PaymentStatusWaiters()) {
+            Map<UUID, PaymentResult> store = new ConcurrentHashMap<>();
+            List<CompletableFuture<PaymentResult>> awaited = new ArrayList<>();
+            List<Thread> writers = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                UUID id = UUID.randomUUID();
+                store.put(id, PaymentResult.accepted(id));
+                // settle exactly like the service: store first, then notify
+                writers.add(Thread.ofVirtual().start(() -> {
+                    PaymentResult done = PaymentResult.success(id);
+                    store.put(id, done);
+                    waiters.complete(done);
+                }));
+                awaited.add(waiters.await(id, () -> store.get(id)));
+            }
+            for (Thread t : writers) t.join();
+            CompletableFuture.allOf(awaited.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            assertEquals(0, waiters.size());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.paymentflow.service.learning;
+
+import com.paymentflow.gateway.PaymentGateway;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GatewayBatcherTest {
+
+    /** Fails every payment in {@code flaky} on its first attempt only; records the size of every call. */
+    private static final class RecordingGateway implements PaymentGateway {
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final Set<UUID> flaky = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public PaymentResult charge(Payment payment) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ChargeOutcome> chargeBatch(List<Payment> payments) {
+            batchSizes.add(payments.size());
+            List<ChargeOutcome> out = new ArrayList<>();
+            for (Payment p : payments) {
+                out.add(flaky.remove(p.id())
+                        ? ChargeOutcome.failure(p, new GatewayException("glitch"))
+                        : ChargeOutcome.success(p, PaymentResult.success(p.id())));
+            }
+            return out;
+        }
+    }
+
+    private static Payment payment() {
+        return new Payment(UUID.randomUUID(), BigDecimal.ONE, "USD", "stripe", PaymentStatus.PROCESSING, Instant.now(), null);
+    }
+
+    @Test
+    void groupsBySizeAndRetriesOnlyFailedItems() throws Exception {
+        var gateway = new RecordingGateway();
+        var batcher = new GatewayBatcher(gateway, 8, 50, 3, 1, null);
+
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 16; i++) payments.add(payment());
+        gateway.flaky.add(payments.get(3).id());
+
+        List<CompletableFuture<PaymentResult>> futures = new ArrayList<>();
+        for (Payment p : payments) futures.add(batcher.submit(p));
+        for (int i = 0; i < payments.size(); i++) {
+            assertEquals(payments.get(i).id(), futures.get(i).get(2, TimeUnit.SECONDS).paymentId());
+        }
+        batcher.close();
+
+        assertEquals(List.of(8, 8, 1), gateway.batchSizes); // two full batches, then the lone retry
+    }
+
+    @Test
+    void failsItemAfterMaxAttempts() {
+        var gateway = new PaymentGateway() {
+            @Override
+            public PaymentResult charge(Payment payment) throws GatewayException {
+                throw new GatewayException("down");
+            }
+        };
+        var batcher = new GatewayBatcher(gateway, 4, 1, 2, 1, null);
+
+        var future = batcher.submit(payment());
+
+        var error = assertThrows(Exception.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof PaymentGateway.GatewayException);
+        batcher.close();
+    }
+
+    @Test
+    void closeAnswersWhatItStillHolds() throws Exception {
+        var gateway = new RecordingGateway();
+        var batcher = new GatewayBatcher(gateway, 2, 60_000, 3, 60_000, null);
+        Payment flaky = payment();
+        gateway.flaky.add(flaky.id());
+
+        var backingOff = batcher.submit(flaky);
+        batcher.submit(payment()).get(2, TimeUnit.SECONDS); // the full batch went out; flaky now waits 30s+
+        var lingering = batcher.submit(payment()); // the collector waits a minute for a second item
+        batcher.close();
+
+        for (var future : List.of(backingOff, lingering, batcher.submit(payment()))) {
+            var error = assertThrows(Exception.class, () -> future.get(2, TimeUnit.SECONDS));
+            assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        }
+        assertEquals(List.of(2), gateway.batchSizes);
+    }
+}
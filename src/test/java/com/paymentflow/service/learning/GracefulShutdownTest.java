@@ -0,0 +1,196 @@
+package com.paymentflow.service.learning;
+
+import com.paymentflow.gateway.GatewayRouter;
+import com.paymentflow.gateway.GatewayRoutingProperties;
+import com.paymentflow.gateway.PaymentGateway;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+import com.paymentflow.repository.InMemoryPaymentRepository;
+import com.paymentflow.service.PaymentStatusWaiters;
+import com.paymentflow.service.ServiceShuttingDownException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GracefulShutdownTest {
+
+    @Test
+    void poolHandsBackQueuedTasksAndLetsRunningOnesFinish() throws Exception {
+        for (String type : List.of("monitor", "ring")) {
+            var pool = new ManualThreadPool(2, PaymentQueue.<Runnable>create(type, 16, RingBufferPaymentQueue.WaitStrategy.PARK));
+            var release = new CountDownLatch(1);
+            var started = new CountDownLatch(2);
+            var ran = new AtomicInteger();
+            for (int i = 0; i < 2; i++) {
+                pool.execute(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    ran.incrementAndGet();
+                });
+            }
+            assertTrue(started.await(1, TimeUnit.SECONDS), type);
+            for (int i = 0; i < 5; i++) pool.execute(ran::incrementAndGet);
+
+            assertEquals(5, pool.shutdown().size(), type);
+            assertThrows(IllegalStateException.class, () -> pool.execute(ran::incrementAndGet), type);
+            assertFalse(pool.awaitTermination(50), type);
+
+            release.countDown();
+            assertTrue(pool.awaitTermination(1_000), type);
+            assertEquals(2, ran.get(), type); // the handed-back ones never ran
+        }
+    }
+
+    @Test
+    void idleWorkersExitOnShutdown() throws Exception {
+        var pool = new ManualThreadPool(3, 8);
+        assertTrue(pool.shutdown().isEmpty());
+        assertTrue(pool.awaitTermination(1_000));
+    }
+
+    @Test
+    void serviceDrainsInFlightPaymentsAndLeavesQueuedOnesProcessing() throws Exception {
+        var gateway = new SlowGateway("stripe", 300);
+        var repository = new InMemoryPaymentRepository();
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var service = service(repository, gateway, scheduler, Duration.ofSeconds(5));
+            service.start();
+            List<UUID> ids = submit(service, 10);
+            assertTrue(gateway.started.await(1, TimeUnit.SECONDS)); // all 4 workers are charging
+
+            service.stop();
+            assertFalse(service.isRunning());
+            assertEquals(4, count(repository, ids, PaymentStatus.SUCCESS));
+            assertEquals(6, count(repository, ids, PaymentStatus.PROCESSING));
+            assertThrows(ServiceShuttingDownException.class,
+                    () -> service.createPayment(new PaymentRequest(BigDecimal.ONE, "USD", "stripe", null)));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void paymentsStillChargingAtTheDeadlineAreLeftProcessingNotFailed() throws Exception {
+        var gateway = new SlowGateway("stripe", 10_000);
+        var repository = new InMemoryPaymentRepository();
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var service = service(repository, gateway, scheduler, Duration.ofMillis(100));
+            service.start();
+            List<UUID> ids = submit(service, 4);
+            assertTrue(gateway.started.await(1, TimeUnit.SECONDS));
+
+            long start = System.nanoTime();
+            service.stop();
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            Thread.sleep(200); // let the interrupted workers unwind
+            assertEquals(4, count(repository, ids, PaymentStatus.PROCESSING));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void onlyPaymentsFromBeforeStartupAreResumed() throws Exception {
+        var gateway = new SlowGateway("stripe", 200);
+        var repository = new InMemoryPaymentRepository();
+        Payment recovered = repository.save(new Payment(UUID.randomUUID(), BigDecimal.TEN, "USD", "stripe",
+                PaymentStatus.PROCESSING, Instant.now().minusSeconds(60), null, null));
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var service = service(repository, gateway, scheduler, Duration.ofSeconds(5));
+            service.start();
+            List<UUID> ids = submit(service, 1); // accepted before the ready event, still charging during it
+            service.resumeRecoveredPayments();
+            ids.add(recovered.id());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (count(repository, ids, PaymentStatus.SUCCESS) < 2 && System.nanoTime() < deadline) Thread.sleep(5);
+
+            service.stop();
+            assertEquals(2, count(repository, ids, PaymentStatus.SUCCESS));
+            assertEquals(2, gateway.started.getCount()); // two charges of the four the latch counts
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /** Blocking charge of {@code callMs}; an interrupt fails the attempt like a dropped connection would. */
+    private static final class SlowGateway implements PaymentGateway {
+        final CountDownLatch started = new CountDownLatch(4);
+        final String name;
+        final long callMs;
+
+        SlowGateway(String name, long callMs) {
+            this.name = name;
+            this.callMs = callMs;
+        }
+
+        @Override
+        public PaymentResult charge(Payment payment) throws GatewayException {
+            started.countDown();
+            try {
+                Thread.sleep(callMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GatewayException("interrupted");
+            }
+            return PaymentResult.success(payment.id());
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+
+    private static LearningPaymentService service(InMemoryPaymentRepository repository, SlowGateway stripe,
+                                                  ScheduledExecutorService scheduler, Duration drainTimeout) {
+        PaymentGateway payPal = new SlowGateway("paypal", 0);
+        var routing = new GatewayRoutingProperties("stripe", 0.2, 0, Map.of(
+                "stripe", new GatewayRoutingProperties.Rule(1.0, Set.of(), Set.of("stripe")),
+                "paypal", new GatewayRoutingProperties.Rule(1.0, Set.of(), Set.of("paypal"))));
+        List<PaymentGateway> gateways = List.of(stripe, payPal);
+        return new LearningPaymentService(repository, gateways, new GatewayRouter(gateways, routing),
+                new PaymentStatusWaiters(), FairQueueProperties.DEFAULTS,
+                "platform", "monitor", "park", 0, 128, "payment", 20, "fixed", 200,
+                false, 32, 5, "blocking", scheduler,
+                1_000, Duration.ofHours(24), 1_000, drainTimeout,
+                50, 10, 50, 80, Duration.ofSeconds(30), Duration.ofSeconds(1), 3,
+                false, 95, 100, "same",
+                new SimpleMeterRegistry());
+    }
+
+    private static List<UUID> submit(LearningPaymentService service, int n) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            ids.add(service.createPayment(new PaymentRequest(BigDecimal.TEN, "USD", "stripe", null)).paymentId());
+        }
+        return ids;
+    }
+
+    private static long count(InMemoryPaymentRepository repository, List<UUID> ids, PaymentStatus status) {
+        return ids.stream().filter(id -> repository.findById(id).orElseThrow().status() == status).count();
+    }
+}
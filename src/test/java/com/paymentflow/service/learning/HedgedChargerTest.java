@@ -0,0 +1,139 @@
+package com.paymentflow.service.learning;
+
+import com.paymentflow.gateway.AsyncPaymentGateway;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HedgedChargerTest {
+
+    // 10ms normally, 300ms for one call in ten; charges only if the caller hasn't abandoned the call
+    private static final class TailGateway implements AsyncPaymentGateway {
+        final Set<UUID> charged = ConcurrentHashMap.newKeySet();
+        final ScheduledExecutorService scheduler;
+
+        TailGateway(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public CompletableFuture<PaymentResult> chargeAsync(Payment payment) {
+            var result = new CompletableFuture<PaymentResult>();
+            long latency = ThreadLocalRandom.current().nextInt(10) == 0 ? 300 : 10;
+            scheduler.schedule(() -> {
+                boolean first = charged.add(payment.id());
+                if (!result.complete(PaymentResult.success(payment.id())) && first) charged.remove(payment.id());
+            }, latency, TimeUnit.MILLISECONDS);
+            return result;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> voidCharge(Payment payment) {
+            return CompletableFuture.completedFuture(charged.remove(payment.id()));
+        }
+    }
+
+    private static Payment payment() {
+        return new Payment(UUID.randomUUID(), BigDecimal.ONE, "USD", "card", PaymentStatus.PROCESSING, Instant.now(), null);
+    }
+
+    // answers at once, or never while hanging
+    private static final class SwitchableGateway implements AsyncPaymentGateway {
+        volatile boolean hanging;
+
+        @Override
+        public CompletableFuture<PaymentResult> chargeAsync(Payment payment) {
+            return hanging ? new CompletableFuture<>() : CompletableFuture.completedFuture(PaymentResult.success(payment.id()));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> voidCharge(Payment payment) {
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+
+    @Test
+    void reportsTheGatewayWhoseAnswerDecidedTheCharge() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var hedger = new HedgedCharger(scheduler, 50, 5, new SimpleMeterRegistry());
+            var primary = new SwitchableGateway();
+            var alternate = new SwitchableGateway();
+            var answeredBy = new AtomicReference<AsyncPaymentGateway>();
+
+            for (int i = 0; i < 5; i++) {
+                hedger.charge(payment(), primary, alternate, answeredBy::set).get(1, TimeUnit.SECONDS);
+                assertSame(primary, answeredBy.get());
+            }
+
+            primary.hanging = true; // the hedge goes out after the (tiny) learned p50 and wins
+            assertEquals(PaymentStatus.SUCCESS,
+                    hedger.charge(payment(), primary, alternate, answeredBy::set).get(1, TimeUnit.SECONDS).status());
+            assertSame(alternate, answeredBy.get());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    @Tag("load")
+    void slowChargesAreHedgedAndEveryPaymentIsChargedExactlyOnce() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+        try {
+            var registry = new SimpleMeterRegistry();
+            var hedger = new HedgedCharger(scheduler, 80, 50, registry);
+            var primary = new TailGateway(scheduler);
+            var alternate = new TailGateway(scheduler);
+
+            // warm-up: the tracker learns that p80 is ~10ms
+            for (int i = 0; i < 60; i++) hedger.charge(payment(), primary, alternate).get(1, TimeUnit.SECONDS);
+
+            List<Payment> payments = new ArrayList<>();
+            List<CompletableFuture<PaymentResult>> calls = new ArrayList<>();
+            var slowCalls = new AtomicInteger();
+            for (int i = 0; i < 200; i++) {
+                Payment p = payment();
+                payments.add(p);
+                long start = System.nanoTime();
+                calls.add(hedger.charge(p, primary, alternate).whenComplete((r, e) -> {
+                    if (System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(150)) slowCalls.incrementAndGet();
+                }));
+            }
+            for (var call : calls) assertEquals(PaymentStatus.SUCCESS, call.get(2, TimeUnit.SECONDS).status());
+            Thread.sleep(400); // let the losers finish (and be voided)
+
+            for (Payment p : payments) {
+                int charges = (primary.charged.contains(p.id()) ? 1 : 0) + (alternate.charged.contains(p.id()) ? 1 : 0);
+                assertEquals(1, charges, "payment " + p.id());
+            }
+            double issued = registry.get("payment.hedge.issued").counter().count();
+            double wins = registry.get("payment.hedge.wins").counter().count();
+            assertTrue(issued > 0 && issued < 130, "hedges issued " + issued);
+            assertTrue(wins > 0, "hedges won " + wins);
+            // unhedged, one call in ten takes 300ms; hedged, only the ~1% where both attempts are slow do
+            assertTrue(slowCalls.get() < 10, "calls over 150ms " + slowCalls.get());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.paymentflow.service.learning;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Same blocking workload on both engines. The platform engine runs at most its worker count at once; the
+ * virtual engine starts every payment, so it is bounded only by the gateway limiter.
+ */
+public class PaymentExecutorLoadTest {
+
+    private static final int PAYMENTS = 400;
+    private static final long CALL_MS = 20;
+
+    @Test
+    void virtualThreadsRunEveryBlockedPaymentAtOncePlatformOnlyItsWorkers() throws Exception {
+        assertEquals(4, concurrentlyBlocked(PaymentExecutor.create("platform", 4, 100), 50, 4));
+        assertEquals(50, concurrentlyBlocked(PaymentExecutor.create("virtual", 4, 100), 50, 50));
+    }
+
+    // submits tasks that all block until released; returns how many got to block at the same time,
+    // waiting for up to `expected` of them and then a little longer in case more would start
+    private static int concurrentlyBlocked(PaymentExecutor executor, int tasks, int expected) throws Exception {
+        var release = new CountDownLatch(1);
+        var blocked = new AtomicInteger();
+        var done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(() -> {
+                blocked.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (blocked.get() < expected && System.nanoTime() < deadline) Thread.sleep(10);
+        Thread.sleep(100);
+        int atOnce = blocked.get();
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdownNow();
+        return atOnce;
+    }
+
+    @Test
+    @Tag("load")
+    void virtualThreadsRaiseThroughputAtSameP99() throws Exception {
+        Result platform = run(PaymentExecutor.create("platform", 4, 100));
+        Result virtual = run(PaymentExecutor.create("virtual", 4, 100));
+
+        assertTrue(virtual.throughput > platform.throughput * 3, () -> "virtual " + virtual + ", platform " + platform);
+        assertTrue(virtual.p99Millis <= platform.p99Millis, () -> "virtual " + virtual + ", platform " + platform);
+    }
+
+    private static Result run(PaymentExecutor executor) throws Exception {
+        var limiter = new ManualRateLimiter(20);
+        long[] latencies = new long[PAYMENTS];
+        var done = new CountDownLatch(PAYMENTS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < PAYMENTS; i++) {
+            final int idx = i;
+            final long submitted = System.nanoTime();
+            executor.execute(() -> {
+                boolean acquired = false;
+                try {
+                    acquired = limiter.acquire(5_000);
+                    Thread.sleep(CALL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (acquired) limiter.release();
+                    latencies[idx] = System.nanoTime() - submitted;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        executor.shutdownNow();
+
+        Arrays.sort(latencies);
+        long p99 = latencies[(int) Math.ceil(PAYMENTS * 0.99) - 1] / 1_000_000;
+        return new Result(PAYMENTS / (elapsed / 1e9), p99);
+    }
+
+    private record Result(double throughput, long p99Millis) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.paymentflow.service.learning;
+
+import com.paymentflow.gateway.PaymentGateway;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentMetricsTest {
+
+    private static final PaymentGateway GATEWAY = new PaymentGateway() {
+        @Override
+        public PaymentResult charge(Payment payment) {
+            return PaymentResult.success(payment.id());
+        }
+
+        @Override
+        public String name() {
+            return "stripe";
+        }
+    };
+
+    @Test
+    void instrumentedLimiterTimesWaitsAndChargesPerOutcome() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var metrics = new PaymentMetrics(registry, List.of(GATEWAY));
+        ConcurrencyLimiter limiter = metrics.instrument(GATEWAY, new ManualRateLimiter(2));
+
+        assertTrue(limiter.acquire(10));
+        assertEquals(1.0, registry.get("payment.limiter.in.use").tag("gateway", "stripe").gauge().value());
+        limiter.onSample(TimeUnit.MILLISECONDS.toNanos(5), true);
+        limiter.onSample(TimeUnit.MILLISECONDS.toNanos(7), false);
+        limiter.release();
+
+        assertEquals(1, registry.get("payment.limiter.wait").tag("gateway", "stripe").timer().count());
+        assertEquals(1, registry.get("payment.gateway.charge").tags("gateway", "stripe", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("payment.gateway.charge").tags("gateway", "stripe", "outcome", "failure").timer().count());
+        assertEquals(0.0, registry.get("payment.limiter.in.use").tag("gateway", "stripe").gauge().value());
+    }
+
+    @Test
+    void countsRetriesAndBreakerTransitions() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var metrics = new PaymentMetrics(registry, List.of(GATEWAY));
+
+        int[] calls = {0};
+        ManualRetry.execute(3, 1, metrics.retryListener(GATEWAY), () -> {
+            if (++calls[0] < 3) throw new RuntimeException("transient");
+            return "OK";
+        });
+        assertEquals(2.0, registry.get("payment.gateway.retries").tag("gateway", "stripe").counter().count());
+
+        var clock = new AtomicLong();
+        var options = new SlidingWindowCircuitBreaker.Options(4, 2, 50, 100,
+                Duration.ofSeconds(1), Duration.ofMillis(100), 1);
+        var breaker = new SlidingWindowCircuitBreaker(options, clock::get, metrics.breakerListener(GATEWAY));
+        metrics.bindBreaker(GATEWAY, breaker);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+
+        assertEquals(1.0, registry.get("payment.breaker.transitions").tags("gateway", "stripe", "to", "open").counter().count());
+        assertEquals(1.0, registry.get("payment.breaker.transitions").tags("gateway", "stripe", "to", "half_open").counter().count());
+        assertEquals(1.0, registry.get("payment.breaker.transitions").tags("gateway", "stripe", "to", "closed").counter().count());
+        assertEquals(0.0, registry.get("payment.breaker.state").tag("gateway", "stripe").gauge().value());
+    }
+}
@@ -0,0 +1,148 @@
+package com.paymentflow.service.learning;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedPaymentExecutorTest {
+
+    private record Task(Object shardKey, Runnable body) implements Runnable, ShardedPaymentExecutor.Keyed {
+        @Override
+        public void run() {
+            body.run();
+        }
+    }
+
+    private static ShardedPaymentExecutor executor(int shards, int capacity) {
+        return new ShardedPaymentExecutor(shards, () -> new ManualPaymentQueue<>(capacity));
+    }
+
+    @Test
+    void everyTaskOfAKeyRunsOnOneThreadInSubmissionOrder() throws Exception {
+        var pool = executor(4, 64);
+        int keys = 16, producers = 4, perProducer = 5_000;
+        Map<String, Set<String>> threadsByKey = new ConcurrentHashMap<>();
+        // per (key, producer): the last sequence seen, to check order is kept
+        Map<String, Integer> lastSeq = new ConcurrentHashMap<>();
+        List<String> outOfOrder = new ArrayList<>();
+        var done = new CountDownLatch(producers * perProducer);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        String key = "k" + (i % keys);
+                        int seq = i;
+                        pool.execute(new Task(key, () -> {
+                            threadsByKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet())
+                                    .add(Thread.currentThread().getName());
+                            Integer last = lastSeq.put(key + "/" + producer, seq);
+                            if (last != null && last > seq) {
+                                synchronized (outOfOrder) {
+                                    outOfOrder.add(key);
+                                }
+                            }
+                            done.countDown();
+                        }));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread t : threads) t.join();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(keys, threadsByKey.size());
+        threadsByKey.forEach((key, names) -> assertEquals(1, names.size(), key + " ran on " + names));
+        assertTrue(outOfOrder.isEmpty(), "out of order: " + outOfOrder);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1_000));
+    }
+
+    @Test
+    void continuationRunsOnTheKeysShardEvenWhenItIsIdle() throws Exception {
+        var pool = executor(4, 16);
+        var owner = new AtomicReference<String>();
+        var ran = new CountDownLatch(1);
+        pool.execute(new Task("payment-1", () -> owner.set(Thread.currentThread().getName())));
+
+        var resumedOn = new AtomicReference<String>();
+        Thread.sleep(50); // the shard is idle, blocked in take()
+        Thread.ofPlatform().start(() -> pool.resume("payment-1", () -> {
+            resumedOn.set(Thread.currentThread().getName());
+            ran.countDown();
+        })).join();
+
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+        assertEquals(owner.get(), resumedOn.get());
+        pool.shutdown();
+    }
+
+    @Test
+    void shutdownHandsBackQueuedTasksAndLaterContinuationsRunOnTheCaller() throws Exception {
+        var pool = executor(1, 16);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        pool.execute(new Task("a", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) pool.execute(new Task("a", () -> {}));
+
+        assertEquals(3, pool.shutdown().size());
+        assertThrows(IllegalStateException.class, () -> pool.execute(new Task("a", () -> {})));
+        release.countDown();
+        assertTrue(pool.awaitTermination(1_000));
+
+        var ranOn = new AtomicReference<Thread>();
+        pool.resume("a", () -> ranOn.set(Thread.currentThread()));
+        assertSame(Thread.currentThread(), ranOn.get()); // the shard is gone; nothing is dropped
+    }
+
+    @Test
+    void perShardDepthAndBusyTimeAreExported() throws Exception {
+        var pool = executor(2, 16);
+        var registry = new SimpleMeterRegistry();
+        new PaymentMetrics(registry, List.of()).bindShards(pool);
+
+        var release = new CountDownLatch(1);
+        Object key = "hot";
+        int hot = pool.index(key);
+        pool.execute(new Task(key, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        for (int i = 0; i < 5; i++) pool.execute(new Task(key, () -> {}));
+        Thread.sleep(50);
+
+        String hotTag = Integer.toString(hot), coldTag = Integer.toString(1 - hot);
+        assertEquals(5.0, registry.get("payment.shard.queue.depth").tag("shard", hotTag).gauge().value());
+        assertEquals(0.0, registry.get("payment.shard.queue.depth").tag("shard", coldTag).gauge().value());
+        assertTrue(registry.get("payment.shard.busy.time").tag("shard", hotTag).functionCounter().count() >= 0.04);
+        assertEquals(0.0, registry.get("payment.shard.busy.time").tag("shard", coldTag).functionCounter().count());
+
+        assertEquals(5, pool.shutdown().size());
+        release.countDown();
+        assertTrue(pool.awaitTermination(1_000));
+        assertEquals(1.0, registry.get("payment.shard.tasks").tag("shard", hotTag).functionCounter().count());
+    }
+}
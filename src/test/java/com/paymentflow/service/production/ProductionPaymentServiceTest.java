@@ -0,0 +1,274 @@
+package com.paymentflow.service.production;
+
+import com.paymentflow.events.EventPublishingPaymentRepository;
+import com.paymentflow.events.PaymentEventLog;
+import com.paymentflow.gateway.GatewayRouter;
+import com.paymentflow.gateway.GatewayRoutingProperties;
+import com.paymentflow.gateway.PaymentGateway;
+import com.paymentflow.ledger.LedgerEventFeed;
+import com.paymentflow.ledger.LedgerSnapshot;
+import com.paymentflow.ledger.SettlementLedger;
+import com.paymentflow.model.Payment;
+import com.paymentflow.model.PaymentRequest;
+import com.paymentflow.model.PaymentResult;
+import com.paymentflow.model.PaymentStatus;
+import com.paymentflow.repository.InMemoryPaymentRepository;
+import com.paymentflow.service.PaymentStatusWaiters;
+import com.paymentflow.service.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductionPaymentServiceTest {
+
+    private volatile CountDownLatch saveGate = new CountDownLatch(0);
+    private final InMemoryPaymentRepository repository = new InMemoryPaymentRepository() {
+        @Override
+        public Payment save(Payment payment) {
+            try {
+                saveGate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.save(payment);
+        }
+    };
+    private final PaymentEventLog events = new PaymentEventLog(64);
+    private final PaymentStatusWaiters waiters = new PaymentStatusWaiters();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void paymentIsStoredBeforeAcceptedAndSettledByTheLastStage() throws Exception {
+        var stripe = new ScriptedGateway("stripe", 0);
+        var ledger = new SettlementLedger();
+        try (var feed = new LedgerEventFeed(events, ledger, 16);
+             var service = service(ProductionPipelineProperties.DEFAULTS, stripe)) {
+            PaymentResult accepted = service.createPayment(request("stripe", null));
+            assertEquals(PaymentStatus.PROCESSING, accepted.status());
+            assertTrue(repository.findById(accepted.paymentId()).isPresent()); // 202 only after persist
+
+            PaymentResult terminal = awaitTerminal(accepted);
+            assertEquals(PaymentStatus.SUCCESS, terminal.status());
+            assertEquals(PaymentStatus.SUCCESS, service.getStatus(accepted.paymentId()).status());
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (feed.lag() > 0 && System.nanoTime() < deadline) Thread.sleep(1);
+            assertEquals(List.of(new LedgerSnapshot.Balance(SettlementLedger.NO_MERCHANT, "USD", BigDecimal.TEN, 1)),
+                    ledger.balances(SettlementLedger.NO_MERCHANT));
+        }
+        // after close(): every stage thread has finished recording
+        for (String stage : List.of("validate", "persist", "route", "charge", "settle")) {
+            assertEquals(1, registry.get("payment.stage.service.time").tag("stage", stage).timer().count(), stage);
+            assertEquals(1, registry.get("payment.stage.queue.time").tag("stage", stage).timer().count(), stage);
+        }
+    }
+
+    @Test
+    void failedChargeIsRetriedOnTheNextGateway() throws Exception {
+        var stripe = new ScriptedGateway("stripe", Integer.MAX_VALUE);
+        var payPal = new ScriptedGateway("paypal", 0);
+        var properties = new ProductionPipelineProperties(Map.of(), Duration.ofMillis(50), 3, Duration.ofMillis(1), 1_000,
+                Duration.ofHours(1), Duration.ofSeconds(5));
+        try (var service = service(properties, stripe, payPal)) {
+            PaymentResult terminal = awaitTerminal(service.createPayment(request("card", null)));
+            assertEquals(PaymentStatus.SUCCESS, terminal.status());
+            assertEquals(1, payPal.calls.get());
+        }
+    }
+
+    @Test
+    void lastAttemptFailureFailsThePayment() throws Exception {
+        var stripe = new ScriptedGateway("stripe", Integer.MAX_VALUE);
+        var properties = new ProductionPipelineProperties(Map.of(), Duration.ofMillis(50), 2, Duration.ofMillis(1), 1_000,
+                Duration.ofHours(1), Duration.ofSeconds(5));
+        try (var service = service(properties, stripe)) {
+            PaymentResult terminal = awaitTerminal(service.createPayment(request("stripe", null)));
+            assertEquals(PaymentStatus.FAILED, terminal.status());
+            assertEquals(2, stripe.calls.get());
+        }
+    }
+
+    @Test
+    void duplicateKeyGetsTheFirstPaymentBack() throws Exception {
+        var stripe = new ScriptedGateway("stripe", 0);
+        try (var service = service(ProductionPipelineProperties.DEFAULTS, stripe)) {
+            PaymentResult first = service.createPayment(request("stripe", "order-1"));
+            awaitTerminal(first);
+            PaymentResult again = service.createPayment(request("stripe", "order-1"));
+            assertEquals(first.paymentId(), again.paymentId());
+            assertEquals(PaymentStatus.SUCCESS, again.status()); // the settled result, not the 202
+            assertEquals(1, stripe.calls.get());
+        }
+    }
+
+    @Test
+    void unknownCurrencyOrMethodIsRefusedWithoutStoringAnything() {
+        var stripe = new ScriptedGateway("stripe", 0);
+        try (var service = service(ProductionPipelineProperties.DEFAULTS, stripe)) {
+            for (var request : List.of(new PaymentRequest(BigDecimal.TEN, "XYZ", "stripe", null),
+                    new PaymentRequest(BigDecimal.TEN, "USD", "bank-transfer", null))) {
+                PaymentResult result = service.createPayment(request);
+                assertEquals(PaymentStatus.FAILED, result.status());
+                assertTrue(result.message().startsWith("INVALID"), result.message());
+                assertTrue(repository.findById(result.paymentId()).isEmpty());
+            }
+            assertEquals(0, stripe.calls.get());
+        }
+    }
+
+    @Test
+    void fullPipelineAnswersOverloadedAfterTheAdmissionTimeout() throws Exception {
+        var stripe = new ScriptedGateway("stripe", 0);
+        var gate = stripe.hold();
+        var one = new ProductionPipelineProperties.StageSize(1, 1);
+        var properties = new ProductionPipelineProperties(
+                Map.of("validate", one, "persist", one, "route", one, "charge", one, "settle", one),
+                Duration.ofMillis(20), 1, Duration.ofMillis(1), 1_000,
+                Duration.ofHours(1), Duration.ofSeconds(5));
+        try (var service = service(properties, stripe)) {
+            // one charging, then one waiting in each queue and one held by each upstream thread
+            for (int i = 0; i < 9; i++) {
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        service.createPayment(request("stripe", null));
+                    } catch (ServiceOverloadedException ignored) {
+                    }
+                });
+            }
+            assertTrue(stripe.started.await(1, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            assertThrows(ServiceOverloadedException.class, () -> service.createPayment(request("stripe", null)));
+            gate.countDown(); // lets close() drain the pipeline
+        }
+    }
+
+    @Test
+    void recoveredProcessingPaymentsAreChargedAndSettledOnStartup() throws Exception {
+        Payment recovered = new Payment(UUID.randomUUID(), BigDecimal.TEN, "USD", "stripe", PaymentStatus.PROCESSING,
+                Instant.now().minusSeconds(60), null);
+        repository.save(recovered);
+        var stripe = new ScriptedGateway("stripe", 0);
+        try (var service = service(ProductionPipelineProperties.DEFAULTS, stripe)) {
+            Payment acceptedMeanwhile = new Payment(UUID.randomUUID(), BigDecimal.TEN, "USD", "stripe",
+                    PaymentStatus.PROCESSING, Instant.now(), null); // after the cut-off: already in the pipeline
+            repository.save(acceptedMeanwhile);
+
+            service.resumeRecoveredPayments();
+            assertEquals(PaymentStatus.SUCCESS, awaitTerminal(PaymentResult.accepted(recovered.id())).status());
+            assertEquals(1, stripe.calls.get());
+            assertEquals(PaymentStatus.PROCESSING, service.getStatus(acceptedMeanwhile.id()).status());
+        }
+    }
+
+    @Test
+    void aPaymentNotAcceptedInTimeIsRefusedAndNeverCharged() throws Exception {
+        var stripe = new ScriptedGateway("stripe", 0);
+        var properties = new ProductionPipelineProperties(Map.of(), Duration.ofMillis(50), 1, Duration.ofMillis(1), 1_000,
+                Duration.ofHours(1), Duration.ofMillis(100));
+        try (var service = service(properties, stripe)) {
+            saveGate = new CountDownLatch(1); // persist is stuck on the repository
+            assertThrows(ServiceOverloadedException.class, () -> service.createPayment(request("stripe", "order-7")));
+            saveGate.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); // persist gives the key back first
+            while (repository.findByStatus(PaymentStatus.FAILED, Instant.now()).isEmpty()
+                    && System.nanoTime() < deadline) Thread.sleep(1);
+
+            // the key was released with the refusal, so the client's retry is a new payment that goes through
+            PaymentResult retried = service.createPayment(request("stripe", "order-7"));
+            assertEquals(PaymentStatus.SUCCESS, awaitTerminal(retried).status());
+            assertEquals(1, stripe.calls.get());
+        }
+        assertEquals(1, repository.findByStatus(PaymentStatus.FAILED, Instant.now()).size());
+    }
+
+    @Test
+    void closingAStageFailsWhatItStillHeldAndRefusesNewItems() throws Exception {
+        var started = new CountDownLatch(1);
+        List<String> rejected = new CopyOnWriteArrayList<>();
+        var stage = new Stage<String>("test", 1, 4, item -> {
+                    started.countDown();
+                    new CountDownLatch(1).await(); // until close() interrupts it
+                },
+                (item, error) -> {
+                    if (error instanceof RejectedExecutionException) rejected.add(item);
+                }, registry);
+        stage.put("running");
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        stage.put("queued-1");
+        stage.put("queued-2");
+        stage.close();
+        assertEquals(List.of("queued-1", "queued-2"), rejected);
+        assertThrows(RejectedExecutionException.class, () -> stage.put("late"));
+        assertThrows(RejectedExecutionException.class, () -> stage.offer("late", 10));
+    }
+
+    private ProductionPaymentService service(ProductionPipelineProperties properties, PaymentGateway... gateways) {
+        var routing = new GatewayRoutingProperties("stripe", 0.2, 0, Map.of(
+                "stripe", new GatewayRoutingProperties.Rule(1.0, Set.of(), Set.of("stripe", "card")),
+                "paypal", new GatewayRoutingProperties.Rule(1.0, Set.of(), Set.of("paypal", "card"))));
+        return new ProductionPaymentService(new EventPublishingPaymentRepository(repository, events),
+                new GatewayRouter(List.of(gateways), routing), waiters, properties, registry);
+    }
+
+    private PaymentResult awaitTerminal(PaymentResult accepted) throws Exception {
+        return waiters.await(accepted.paymentId(), () -> {
+            Payment p = repository.findById(accepted.paymentId()).orElseThrow();
+            return new PaymentResult(p.id(), p.status(), p.failureReason());
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    private static PaymentRequest request(String method, String idempotencyKey) {
+        return new PaymentRequest(BigDecimal.TEN, "USD", method, idempotencyKey);
+    }
+
+    /** Instant charges, the first {@code failures} of which fail; {@link #hold} makes them wait for a latch. */
+    private static final class ScriptedGateway implements PaymentGateway {
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final String name;
+        final int failures;
+        volatile CountDownLatch gate = new CountDownLatch(0);
+
+        ScriptedGateway(String name, int failures) {
+            this.name = name;
+            this.failures = failures;
+        }
+
+        CountDownLatch hold() {
+            return gate = new CountDownLatch(1);
+        }
+
+        @Override
+        public PaymentResult charge(Payment payment) throws GatewayException {
+            started.countDown();
+            int call = calls.incrementAndGet();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GatewayException("interrupted");
+            }
+            if (call <= failures) throw new GatewayException("declined by " + name);
+            return PaymentResult.success(payment.id());
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+}